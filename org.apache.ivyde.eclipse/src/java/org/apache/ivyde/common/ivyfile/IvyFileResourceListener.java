@@ -51,17 +51,27 @@ public class IvyFileResourceListener implements IResourceChangeListener {
                 if ((delta.getFlags() & IResourceDelta.CONTENT) == IResourceDelta.CONTENT) {
                     resourceChanged(resource);
                 }
+            } else if (IResourceDelta.REMOVED == delta.getKind()
+                    && resource.getLocation() != null) {
+                IvyPlugin.getDefault().getModuleDescriptorCache()
+                        .invalidate(resource.getLocation().toFile());
             }
 
             return true;
         }
 
         private static void resourceChanged(IResource resource) {
-            if (!(resource instanceof IFile)
-                    || !IvyPlugin.getPreferenceStoreHelper().getAutoResolveOnChange()) {
+            if (!(resource instanceof IFile)) {
                 return;
             }
             IFile resourceFile = (IFile) resource;
+            if (resourceFile.getLocation() != null) {
+                IvyPlugin.getDefault().getModuleDescriptorCache()
+                        .invalidate(resourceFile.getLocation().toFile());
+            }
+            if (!IvyPlugin.getPreferenceStoreHelper().getAutoResolveOnChange()) {
+                return;
+            }
             IJavaProject javaProject = JavaCore.create(resource.getProject());
             if (javaProject == null) {
                 return;
@@ -17,7 +17,10 @@
  */
 package org.apache.ivyde.eclipse.cp;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 
 public class ClasspathSetup {
@@ -26,6 +29,8 @@ public class ClasspathSetup {
 
     private List<String> acceptedTypes;
 
+    private Set<String> acceptedTypeSet = Collections.emptySet();
+
     private boolean alphaOrder;
 
     private boolean retrievedClasspath;
@@ -46,6 +51,7 @@ public class ClasspathSetup {
     public void set(ClasspathSetup setup) {
         this.resolveInWorkspace = setup.resolveInWorkspace;
         this.acceptedTypes = setup.acceptedTypes;
+        this.acceptedTypeSet = setup.acceptedTypeSet;
         this.alphaOrder = setup.alphaOrder;
         this.retrievedClasspath = setup.retrievedClasspath;
         this.retrieveSetup.set(setup.retrieveSetup);
@@ -67,6 +73,21 @@ public class ClasspathSetup {
 
     public void setAcceptedTypes(List<String> acceptedTypes) {
         this.acceptedTypes = acceptedTypes;
+        this.acceptedTypeSet = acceptedTypes == null ? Collections.<String> emptySet()
+                : new HashSet<>(acceptedTypes);
+    }
+
+    /**
+     * @param type an artifact type
+     * @return <code>true</code> if the type is one of the accepted types, or if every type is
+     *         accepted
+     */
+    public boolean isAcceptedType(String type) {
+        if (acceptedTypeSet.contains(type)) {
+            return true;
+        }
+        return acceptedTypes != null && acceptedTypes.size() == 1
+                && acceptedTypes.get(0).equals("*");
     }
 
     public boolean isAlphaOrder() {
@@ -17,7 +17,10 @@
  */
 package org.apache.ivyde.eclipse.cp;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class MappingSetup {
 
@@ -25,6 +28,10 @@ public class MappingSetup {
 
     private List<String> javadocTypes;
 
+    private Set<String> sourceTypeSet = Collections.emptySet();
+
+    private Set<String> javadocTypeSet = Collections.emptySet();
+
     private List<String> sourceSuffixes;
 
     private List<String> javadocSuffixes;
@@ -43,6 +50,8 @@ public class MappingSetup {
     public void set(MappingSetup setup) {
         this.sourceTypes = setup.sourceTypes;
         this.javadocTypes = setup.javadocTypes;
+        this.sourceTypeSet = setup.sourceTypeSet;
+        this.javadocTypeSet = setup.javadocTypeSet;
         this.sourceSuffixes = setup.sourceSuffixes;
         this.javadocSuffixes = setup.javadocSuffixes;
         this.mapIfOnlyOneSource = setup.mapIfOnlyOneSource;
@@ -55,6 +64,11 @@ public class MappingSetup {
 
     public void setSourceTypes(List<String> sourceTypes) {
         this.sourceTypes = sourceTypes;
+        this.sourceTypeSet = toSet(sourceTypes);
+    }
+
+    public boolean isSourceType(String type) {
+        return sourceTypeSet.contains(type);
     }
 
     public List<String> getJavadocTypes() {
@@ -63,6 +77,15 @@ public class MappingSetup {
 
     public void setJavadocTypes(List<String> javadocTypes) {
         this.javadocTypes = javadocTypes;
+        this.javadocTypeSet = toSet(javadocTypes);
+    }
+
+    public boolean isJavadocType(String type) {
+        return javadocTypeSet.contains(type);
+    }
+
+    private static Set<String> toSet(List<String> types) {
+        return types == null ? Collections.<String> emptySet() : new HashSet<>(types);
     }
 
     public List<String> getSourceSuffixes() {
@@ -23,6 +23,22 @@ package org.apache.ivyde.eclipse.cp;
  */
 public class RetrieveSetup {
 
+    /**
+     * The retrieved artifacts are copies of the artifacts in the cache
+     */
+    public static final String RETRIEVE_MODE_COPY = "copy";
+
+    /**
+     * The retrieved artifacts are hard links to the artifacts in the cache
+     */
+    public static final String RETRIEVE_MODE_LINK = "link";
+
+    /**
+     * The retrieved artifacts are hard links to a store shared by the projects, where the files
+     * are kept by content
+     */
+    public static final String RETRIEVE_MODE_STORE = "store";
+
     private String retrievePattern = "lib/[type]s/[artifact]-[revision].[ext]";
 
     private boolean retrieveSync = false;
@@ -31,6 +47,8 @@ public class RetrieveSetup {
 
     private String retrieveTypes = "*";
 
+    private String retrieveMode = RETRIEVE_MODE_COPY;
+
     /**
      * Default constructor
      */
@@ -42,6 +60,7 @@ public class RetrieveSetup {
         this.retrievePattern = setup.retrievePattern;
         this.retrieveConfs = setup.retrieveConfs;
         this.retrieveTypes = setup.retrieveTypes;
+        this.retrieveMode = setup.retrieveMode;
     }
 
     public String getRetrievePattern() {
@@ -76,4 +95,12 @@ public class RetrieveSetup {
         this.retrieveTypes = retrieveTypes;
     }
 
+    public String getRetrieveMode() {
+        return retrieveMode;
+    }
+
+    public void setRetrieveMode(String retrieveMode) {
+        this.retrieveMode = retrieveMode;
+    }
+
 }
@@ -24,17 +24,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.settings.IvySettings;
-import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivyde.eclipse.IvyDEException;
 import org.apache.ivyde.eclipse.cp.ResolvedPath;
 import org.apache.ivyde.internal.eclipse.workspaceresolver.WorkspaceIvySettings;
+import org.apache.ivyde.internal.eclipse.workspaceresolver.WorkspaceModuleIndex;
 import org.apache.ivyde.internal.eclipse.workspaceresolver.WorkspaceResolver;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IPath;
@@ -49,20 +51,33 @@ import org.osgi.framework.BundleContext;
  */
 public abstract class CachedIvy {
 
-    private Ivy ivy;
+    private IvyPool.PooledIvy pooledIvy;
 
-    private long ivySettingsLastModified = -1;
+    private String ivyFingerprint;
+
+    private boolean reloadRequested;
+
+    private IvySettingsDependencies settingsDependencies;
 
     private ModuleDescriptor md;
 
     public void reset() {
         md = null;
-        ivy = null;
-        ivySettingsLastModified = -1;
+        pooledIvy = null;
+        ivyFingerprint = null;
+        reloadRequested = false;
+        settingsDependencies = null;
+        IvyPlugin plugin = IvyPlugin.getDefault();
+        if (plugin != null) {
+            plugin.getIvyPool().release(this);
+        }
     }
 
-    public void setIvySettingsLastModified(long ivySettingsLastModified) {
-        this.ivySettingsLastModified = ivySettingsLastModified;
+    /**
+     * Force the settings to be parsed again the next time the Ivy instance is requested.
+     */
+    public void reloadSettings() {
+        reloadRequested = true;
     }
 
     public void setErrorMarker(IvyDEException ex) {
@@ -93,12 +108,18 @@ public abstract class CachedIvy {
 
     protected abstract boolean isTransitiveResolve();
 
+    /**
+     * @return the identifier of the container or of the retrieve setup, stable across restarts
+     */
+    public abstract String getId();
+
     public Ivy getCachedIvy() {
+        Ivy ivy = getLeasedIvy();
         if (ivy != null) {
             return ivy;
         }
         try {
-            getIvy();
+            ivy = getIvy();
             setErrorMarker(null);
             return ivy;
         } catch (IvyDEException e) {
@@ -109,7 +130,7 @@ public abstract class CachedIvy {
 
     public Ivy getSafelyIvy() {
         try {
-            getIvy();
+            Ivy ivy = getIvy();
             setErrorMarker(null);
             return ivy;
         } catch (IvyDEException e) {
@@ -128,7 +149,7 @@ public abstract class CachedIvy {
     }
 
     private Ivy doGetIvy() throws IvyDEException {
-        ResolvedPath settingsPath = getIvySettingsPath();
+        final ResolvedPath settingsPath = getIvySettingsPath();
         if (settingsPath.getError() != null) {
             throw new IvyDEException("Incorrect path of the Ivy settings",
                     "The Ivy settings path '" + settingsPath.getInputPath() + "' is incorrect: "
@@ -136,85 +157,144 @@ public abstract class CachedIvy {
         }
         if (!settingsPath.isSet()) {
             IvyDEMessage.debug("No settings specified, so take the default one");
-            if (ivy == null) {
-                IvySettings ivySettings = createIvySettings();
-                ivy = Ivy.newInstance(ivySettings);
-                try {
-                    ivy.configureDefault();
-                } catch (ParseException e) {
-                    ivy = null;
-                    throw new IvyDEException(
-                            "Parsing error of the default Ivy settings",
-                            "The default Ivy settings file could not be parsed: " + e.getMessage(),
-                            e);
-                } catch (IOException e) {
-                    ivy = null;
-                    throw new IvyDEException("Read error of the default Ivy settings",
-                            "The default Ivy settings file could not be read: " + e.getMessage(), e);
-                }
+        } else if (settingsPath.getFile() != null) {
+            File file = settingsPath.getFile();
+            IvyDEMessage.debug("Loading settings from local file " + file);
+            if (!file.exists()) {
+                throw new IvyDEException("Ivy settings file not found", "The Ivy settings file '"
+                        + settingsPath.getResolvedPath() + "' cannot be found", null);
             }
-            return ivy;
         }
 
-        // before returning the found ivy, try to refresh it if the settings changed
-        if (settingsPath.getFile() != null) {
-            return getIvyFromFile(settingsPath);
+        if (pooledIvy != null && !reloadRequested && isLoadSettingsOnDemandPath()) {
+            IvyDEMessage.verbose("No change detected: using cached version of the settings");
+            return pooledIvy.getIvy();
         }
 
-        // an URL but not a file
-        if (ivy == null || ivySettingsLastModified == -1) {
-            IvySettings ivySettings = createIvySettings();
-            ivy = Ivy.newInstance(ivySettings);
-            try {
-                ivy.configure(settingsPath.getUrl());
-                ivySettingsLastModified = 0;
-            } catch (ParseException e) {
-                ivy = null;
-                throw new IvyDEException("Parsing error of the Ivy settings",
-                        "The Ivy settings file '" + settingsPath.getResolvedPath()
-                                + "' could not be parsed: " + e.getMessage(), e);
-            } catch (IOException e) {
-                ivy = null;
-                throw new IvyDEException("Read error of the Ivy settings",
-                        "The Ivy settings file '" + settingsPath.getResolvedPath()
-                                + "' could not be read: " + e.getMessage(), e);
-            }
+        String fingerprint = computeFingerprint(settingsPath);
+        if (ivyFingerprint != null && !ivyFingerprint.equals(fingerprint)) {
+            IvyDEMessage.info("Settings has changed, configuring Ivy again");
         }
-        return ivy;
+        pooledIvy = IvyPlugin.getDefault().getIvyPool().lease(this, fingerprint, reloadRequested,
+            new IvyPool.IvyFactory() {
+                public Ivy createIvy() throws IvyDEException {
+                    return configureIvy(settingsPath);
+                }
+            });
+        ivyFingerprint = fingerprint;
+        reloadRequested = false;
+        return pooledIvy.getIvy();
     }
 
-    private Ivy getIvyFromFile(ResolvedPath ivySettingsPath) throws IvyDEException {
-        File file = ivySettingsPath.getFile();
-        IvyDEMessage.debug("Loading settings from local file " + file);
-        if (!file.exists()) {
-            throw new IvyDEException("Ivy settings file not found", "The Ivy settings file '"
-                    + ivySettingsPath.getResolvedPath() + "' cannot be found", null);
-        }
+    /**
+     * @return the entry of the pool of the leased Ivy instance, <code>null</code> if none is
+     *         leased yet
+     */
+    public IvyPool.PooledIvy getPooledIvy() {
+        return pooledIvy;
+    }
+
+    /**
+     * @return the Ivy instance currently leased from the pool, <code>null</code> if none
+     */
+    private Ivy getLeasedIvy() {
+        return pooledIvy == null ? null : pooledIvy.getIvy();
+    }
 
-        if (file.lastModified() != ivySettingsLastModified || !isLoadSettingsOnDemandPath()) {
-            if (ivySettingsLastModified != -1) {
-                IvyDEMessage.info("Settings has changed, configuring Ivy again");
+    /**
+     * Compute the fingerprint under which the configured Ivy instance is pooled. Everything which
+     * is used to configure Ivy should be part of it.
+     */
+    private String computeFingerprint(ResolvedPath settingsPath) throws IvyDEException {
+        StringBuilder fingerprint = new StringBuilder();
+        if (!settingsPath.isSet()) {
+            fingerprint.append("settings=<default>");
+        } else {
+            fingerprint.append("settings=").append(settingsPath.getResolvedPath());
+        }
+        ResolvedPath ivyUserDir = getIvyUserDir();
+        if (ivyUserDir.isSet()) {
+            fingerprint.append(";userdir=").append(ivyUserDir.getResolvedPath());
+        }
+        fingerprint.append(";workspace=").append(isResolveInWorkspace());
+        List<File> propFiles = new ArrayList<>();
+        Collection<String> propFilePaths = getPropertyFiles();
+        if (propFilePaths != null) {
+            for (String file : propFilePaths) {
+                File propFile = new File(getPropertyFilePath(file));
+                propFiles.add(propFile);
+                fingerprint.append(";properties=").append(propFile);
             }
-            IvySettings ivySettings = createIvySettings();
-            ivy = Ivy.newInstance(ivySettings);
+        }
+        File settingsFile = settingsPath.getFile();
+        if (settingsFile == null) {
+            settingsDependencies = null;
+            return fingerprint.toString();
+        }
+        File baseDir = null;
+        if (getProject() != null && getProject().getLocation() != null) {
+            baseDir = getProject().getLocation().toFile();
+        }
+        settingsDependencies = IvyPlugin.getDefault().getIvyPool().getSettingsDependencies(
+            fingerprint.toString(), settingsFile, propFiles, baseDir);
+        fingerprint.append(";digest=").append(settingsDependencies.getDigest());
+        // the base dir of the project is only visible from the settings via the basedir
+        // variables, so only settings which refer to it cannot be shared across projects
+        if (settingsDependencies.isUsingBaseDir() && baseDir != null) {
+            fingerprint.append(";basedir=").append(baseDir);
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * @return the fingerprint of the settings of the current Ivy instance, <code>null</code> if
+     *         not loaded yet
+     */
+    public String getIvyFingerprint() {
+        return ivyFingerprint;
+    }
+
+    /**
+     * @return the local files the current Ivy settings depend on, <code>null</code> if the
+     *         settings are not local or not loaded yet
+     */
+    public IvySettingsDependencies getSettingsDependencies() {
+        return settingsDependencies;
+    }
+
+    private Ivy configureIvy(ResolvedPath settingsPath) throws IvyDEException {
+        Ivy newIvy = Ivy.newInstance(createIvySettings());
+        if (!settingsPath.isSet()) {
             try {
-                ivy.configure(file);
+                newIvy.configureDefault();
             } catch (ParseException e) {
-                ivy = null;
-                throw new IvyDEException("Parsing error of the Ivy settings",
-                        "The Ivy settings file '" + ivySettingsPath.getResolvedPath()
-                                + "' could not be parsed: " + e.getMessage(), e);
+                throw new IvyDEException(
+                        "Parsing error of the default Ivy settings",
+                        "The default Ivy settings file could not be parsed: " + e.getMessage(),
+                        e);
             } catch (IOException e) {
-                ivy = null;
-                throw new IvyDEException("Read error of the Ivy settings",
-                        "The Ivy settings file '" + ivySettingsPath.getResolvedPath()
-                                + "' could not be read: " + e.getMessage(), e);
+                throw new IvyDEException("Read error of the default Ivy settings",
+                        "The default Ivy settings file could not be read: " + e.getMessage(), e);
             }
-            ivySettingsLastModified = file.lastModified();
-        } else {
-            IvyDEMessage.verbose("No change detected: using cached version of the settings");
+            return newIvy;
+        }
+        try {
+            if (settingsPath.getFile() != null) {
+                newIvy.configure(settingsPath.getFile());
+            } else {
+                // an URL but not a file
+                newIvy.configure(settingsPath.getUrl());
+            }
+        } catch (ParseException e) {
+            throw new IvyDEException("Parsing error of the Ivy settings",
+                    "The Ivy settings file '" + settingsPath.getResolvedPath()
+                            + "' could not be parsed: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new IvyDEException("Read error of the Ivy settings",
+                    "The Ivy settings file '" + settingsPath.getResolvedPath()
+                            + "' could not be read: " + e.getMessage(), e);
         }
-        return ivy;
+        return newIvy;
     }
 
     private IvySettings createIvySettings() throws IvyDEException {
@@ -253,10 +333,8 @@ public abstract class CachedIvy {
         } else {
             IvyDEMessage.verbose(propFiles.size() + " property file(s) to load");
             for (String file : propFiles) {
-                Path p = new Path(file);
-                IvyDEMessage.debug("Loading property file " + p);
-                String propFile = (getProject() != null && !p.isAbsolute())
-                        ? getProject().getLocation().append(file).toString() : file;
+                String propFile = getPropertyFilePath(file);
+                IvyDEMessage.debug("Loading property file " + propFile);
                 Properties props = new Properties();
                 try (InputStream is = new FileInputStream(propFile)) {
                     props.load(is);
@@ -276,6 +354,12 @@ public abstract class CachedIvy {
         return ivySettings;
     }
 
+    private String getPropertyFilePath(String file) {
+        Path p = new Path(file);
+        return (getProject() != null && !p.isAbsolute())
+                ? getProject().getLocation().append(file).toString() : file;
+    }
+
     public File getIvyFile() throws IvyDEException {
         ResolvedPath ivyPath = new ResolvedPath(getIvyXmlPath(), getProject());
         if (ivyPath.getError() != null) {
@@ -296,11 +380,24 @@ public abstract class CachedIvy {
         return ivyPath.getFile();
     }
 
+    /**
+     * The index of the workspace modules holds the descriptors of the containers, it has to read
+     * the new one.
+     */
+    private void moduleDescriptorChanged() {
+        WorkspaceModuleIndex index = IvyPlugin.getDefault().getWorkspaceModuleIndex();
+        IProject project = getProject();
+        if (index != null && project != null) {
+            index.invalidate(project);
+        }
+    }
+
     public ModuleDescriptor getCachedModuleDescriptor() {
         if (md != null) {
             return md;
         }
         try {
+            Ivy ivy = getLeasedIvy();
             if (ivy == null) {
                 ivy = getIvy();
             }
@@ -349,8 +446,12 @@ public abstract class CachedIvy {
                     + file.getAbsolutePath() + "' was not found", null);
         }
         try {
-            md = ModuleDescriptorParserRegistry.getInstance().parseDescriptor(i.getSettings(),
-                file.toURI().toURL(), false);
+            ModuleDescriptor parsed = IvyPlugin.getDefault().getModuleDescriptorCache()
+                    .getModuleDescriptor(i.getSettings(), file);
+            if (parsed != md) {
+                md = parsed;
+                moduleDescriptorChanged();
+            }
             return md;
         } catch (MalformedURLException e) {
             throw new IvyDEException("Incorrect URL of the Ivy file",
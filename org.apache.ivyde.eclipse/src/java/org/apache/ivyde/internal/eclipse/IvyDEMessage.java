@@ -25,13 +25,45 @@ import org.apache.ivy.util.Message;
 import org.apache.ivy.util.MessageLogger;
 import org.apache.ivyde.eclipse.NopMessageLogger;
 import org.apache.ivyde.internal.eclipse.ui.console.IvyConsole;
+import org.apache.ivyde.internal.eclipse.ui.console.IvyDEMessageLogger;
 
 public class IvyDEMessage {
 
+    /**
+     * A message which is only built if it is actually logged, for the messages costly to build.
+     */
+    public interface MessageSupplier {
+        String get();
+    }
+
     public static void debug(String msg) {
         getLogger().debug(msg);
     }
 
+    public static void debug(MessageSupplier msg) {
+        if (isDebugEnabled()) {
+            debug(msg.get());
+        }
+    }
+
+    /**
+     * @param level the log level, as in {@link Message}
+     * @return <code>true</code> if the messages of that level are logged
+     */
+    public static boolean isEnabled(int level) {
+        MessageLogger logger = getLogger();
+        return logger instanceof IvyDEMessageLogger
+                && ((IvyDEMessageLogger) logger).isEnabled(level);
+    }
+
+    public static boolean isDebugEnabled() {
+        return isEnabled(Message.MSG_DEBUG);
+    }
+
+    public static boolean isVerboseEnabled() {
+        return isEnabled(Message.MSG_VERBOSE);
+    }
+
     private static MessageLogger getLogger() {
         IvyPlugin plugin = IvyPlugin.getDefault();
         if (plugin == null) {
@@ -48,6 +80,12 @@ public class IvyDEMessage {
         getLogger().verbose(msg);
     }
 
+    public static void verbose(MessageSupplier msg) {
+        if (isVerboseEnabled()) {
+            verbose(msg.get());
+        }
+    }
+
     public static void info(String msg) {
         getLogger().info(msg);
     }
@@ -102,7 +102,12 @@ public class IvyDERuntimeClasspathEntryResolver implements IRuntimeClasspathEntr
             if (status.getCode() != IStatus.OK) {
                 throw new CoreException(status);
             }
-            cpes = resolver.getClasspathEntries();
+            if (request.isResolveSkipped()) {
+                // nothing has changed since the last resolve, the container is up to date
+                cpes = ivycp.getClasspathEntries();
+            } else {
+                cpes = resolver.getClasspathEntries();
+            }
         } else {
             cpes = ivycp.getClasspathEntries();
         }
@@ -17,15 +17,36 @@
  */
 package org.apache.ivyde.internal.eclipse;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 
+/**
+ * Manages the markers of the resolve problems. The markers are only updated with the difference
+ * between the existing markers and the expected ones, and within a batch, typically a run of the
+ * resolve job or a synchronous resolve of some containers, the updates are delayed until the end
+ * of the batch to be applied in a single workspace operation.
+ */
 public class IvyMarkerManager {
 
+    private final Map<IResource, IStatus> pendingStatuses = new LinkedHashMap<>();
+
+    private int batchDepth = 0;
+
     private IResource findResource(IProject project, String ivyXmlFile) {
         if (project == null) {
             return null;
@@ -37,6 +58,31 @@ public class IvyMarkerManager {
         return r;
     }
 
+    /**
+     * Start a batch of updates. The updates are applied when the batch ends.
+     */
+    public void beginBatch() {
+        synchronized (pendingStatuses) {
+            batchDepth++;
+        }
+    }
+
+    /**
+     * End a batch of updates, and apply them if it is the outermost one.
+     */
+    public void endBatch() {
+        Map<IResource, IStatus> statuses;
+        synchronized (pendingStatuses) {
+            batchDepth--;
+            if (batchDepth > 0 || pendingStatuses.isEmpty()) {
+                return;
+            }
+            statuses = new LinkedHashMap<>(pendingStatuses);
+            pendingStatuses.clear();
+        }
+        applyStatuses(statuses);
+    }
+
     public void removeMarkers(IProject project, String ivyXmlFile) {
         IResource r = findResource(project, ivyXmlFile);
         if (r == null) {
@@ -46,50 +92,110 @@ public class IvyMarkerManager {
     }
 
     public void removeMarkers(IResource r) {
-        try {
-            r.deleteMarkers(IvyPlugin.MARKER_ID, true, IResource.DEPTH_INFINITE);
-        } catch (CoreException e) {
-            IvyPlugin.log(e);
-        }
+        updateStatus(r, Status.OK_STATUS);
     }
 
     public void setResolveStatus(IStatus status, IProject project, String ivyXmlFile) {
-        try {
-            IResource r = findResource(project, ivyXmlFile);
-            if (r == null) {
+        IResource r = findResource(project, ivyXmlFile);
+        if (r == null) {
+            return;
+        }
+        updateStatus(r, status);
+    }
+
+    private void updateStatus(IResource r, IStatus status) {
+        synchronized (pendingStatuses) {
+            if (batchDepth > 0) {
+                // the last status wins
+                pendingStatuses.remove(r);
+                pendingStatuses.put(r, status);
                 return;
             }
-            removeMarkers(r);
-            if (status == Status.OK_STATUS) {
-                return;
+        }
+        applyStatuses(Collections.singletonMap(r, status));
+    }
+
+    private void applyStatuses(final Map<IResource, IStatus> statuses) {
+        IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+            public void run(IProgressMonitor monitor) {
+                for (Entry<IResource, IStatus> entry : statuses.entrySet()) {
+                    try {
+                        updateMarkers(entry.getKey(), entry.getValue());
+                    } catch (CoreException e) {
+                        IvyPlugin.log(e);
+                    }
+                }
             }
+        };
+        try {
+            ResourcesPlugin.getWorkspace().run(runnable, null, IWorkspace.AVOID_UPDATE, null);
+        } catch (CoreException e) {
+            IvyPlugin.log(e);
+        }
+    }
+
+    private void updateMarkers(IResource r, IStatus status) throws CoreException {
+        if (!r.exists()) {
+            return;
+        }
+        List<IStatus> expected = new ArrayList<>();
+        if (status != Status.OK_STATUS) {
             if (status.isMultiStatus()) {
-                for (IStatus childStatus : status.getChildren()) {
-                    addMarker(r, childStatus);
+                Collections.addAll(expected, status.getChildren());
+            } else {
+                expected.add(status);
+            }
+        }
+        // keep the markers which are still expected, delete the others
+        for (IMarker marker : r.findMarkers(IvyPlugin.MARKER_ID, true,
+            IResource.DEPTH_INFINITE)) {
+            IStatus matching = null;
+            if (marker.getResource().equals(r)) {
+                for (IStatus s : expected) {
+                    if (matches(marker, s)) {
+                        matching = s;
+                        break;
+                    }
                 }
+            }
+            if (matching != null) {
+                expected.remove(matching);
             } else {
-                addMarker(r, status);
+                marker.delete();
             }
-        } catch (CoreException e) {
-            IvyPlugin.log(e);
+        }
+        for (IStatus s : expected) {
+            addMarker(r, s);
         }
     }
 
-    private void addMarker(IResource r, IStatus status) throws CoreException {
-        IMarker marker = r.createMarker(IvyPlugin.MARKER_ID);
-        marker.setAttribute(IMarker.MESSAGE, status.getMessage());
+    private boolean matches(IMarker marker, IStatus status) {
+        return status.getMessage().equals(marker.getAttribute(IMarker.MESSAGE, null))
+                && getSeverity(status) == marker.getAttribute(IMarker.SEVERITY, -1);
+    }
+
+    private int getSeverity(IStatus status) {
         switch (status.getSeverity()) {
             case IStatus.ERROR:
-                marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
-                break;
+                return IMarker.SEVERITY_ERROR;
             case IStatus.WARNING:
-                marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_WARNING);
-                break;
+                return IMarker.SEVERITY_WARNING;
             case IStatus.INFO:
-                marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_INFO);
-                break;
+                return IMarker.SEVERITY_INFO;
             default:
-                IvyPlugin.logWarn("Unsupported resolve status: " + status.getSeverity());
+                return -1;
+        }
+    }
+
+    private void addMarker(IResource r, IStatus status) throws CoreException {
+        IMarker marker = r.createMarker(IvyPlugin.MARKER_ID);
+        int severity = getSeverity(status);
+        if (severity == -1) {
+            IvyPlugin.logWarn("Unsupported resolve status: " + status.getSeverity());
+            marker.setAttribute(IMarker.MESSAGE, status.getMessage());
+        } else {
+            marker.setAttributes(new String[] {IMarker.MESSAGE, IMarker.SEVERITY},
+                new Object[] {status.getMessage(), Integer.valueOf(severity)});
         }
     }
 
@@ -22,6 +22,10 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,17 +34,24 @@ import org.apache.ivyde.common.ivyfile.IvyFileResourceListener;
 import org.apache.ivyde.eclipse.IvyDEsecurityHelper;
 import org.apache.ivyde.eclipse.cp.IvyClasspathContainer;
 import org.apache.ivyde.eclipse.cp.IvyClasspathContainerHelper;
+import org.apache.ivyde.internal.eclipse.cpcontainer.BundleMetadataIndex;
 import org.apache.ivyde.internal.eclipse.cpcontainer.IvyAttachmentManager;
 import org.apache.ivyde.internal.eclipse.cpcontainer.IvyClasspathContainerSerializer;
+import org.apache.ivyde.internal.eclipse.cpcontainer.StartupResolveScheduler;
+import org.apache.ivyde.internal.eclipse.resolve.IncrementalRetriever;
 import org.apache.ivyde.internal.eclipse.resolve.IvyResolveJob;
+import org.apache.ivyde.internal.eclipse.resolve.ResolveFingerprints;
 import org.apache.ivyde.internal.eclipse.retrieve.RetrieveSetupManager;
 import org.apache.ivyde.internal.eclipse.ui.console.IvyConsole;
 import org.apache.ivyde.internal.eclipse.ui.console.IvyConsoleFactory;
 import org.apache.ivyde.internal.eclipse.ui.editors.xml.ColorManager;
 import org.apache.ivyde.internal.eclipse.ui.preferences.IvyDEPreferenceStoreHelper;
 import org.apache.ivyde.internal.eclipse.ui.preferences.PreferenceConstants;
+import org.apache.ivyde.internal.eclipse.workspaceresolver.WorkspaceModuleIndex;
 import org.apache.ivyde.internal.eclipse.workspaceresolver.WorkspaceResourceChangeListener;
 import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -48,6 +59,7 @@ import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.ElementChangedEvent;
 import org.eclipse.jdt.core.IJavaModel;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
@@ -72,6 +84,9 @@ public class IvyPlugin extends AbstractUIPlugin {
     private static final Pattern IVY_VERSION_PATTERN = Pattern
             .compile("([0-9]+)\\.([0-9]+)\\.([0-9]+).*");
 
+    private static final int WORKER_THREADS = Math.max(4,
+        Runtime.getRuntime().availableProcessors());
+
     /** The ID of IvyDE plugin. */
     public static final String ID = "org.apache.ivyde.eclipse";
 
@@ -94,6 +109,22 @@ public class IvyPlugin extends AbstractUIPlugin {
 
     private IvyResolveJob ivyResolveJob;
 
+    private StartupResolveScheduler startupResolveScheduler;
+
+    private IvyPool ivyPool;
+
+    private ModuleDescriptorCache moduleDescriptorCache;
+
+    private ResolveFingerprints resolveFingerprints;
+
+    private BundleMetadataIndex bundleMetadataIndex;
+
+    private IncrementalRetriever incrementalRetriever;
+
+    private ExecutorService workerExecutor;
+
+    private WorkspaceModuleIndex workspaceModuleIndex;
+
     private RetrieveSetupManager retrieveSetupManager;
 
     private WorkspaceResourceChangeListener workspaceListener;
@@ -151,12 +182,52 @@ public class IvyPlugin extends AbstractUIPlugin {
             ivyVersionPatch = Integer.parseInt(matcher.group(3));
         }
 
+        ivyPool = new IvyPool();
+
+        workerExecutor = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "IvyDE worker #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                // for the SaxParserFactory, as in the resolve thread
+                thread.setContextClassLoader(IvyPlugin.class.getClassLoader());
+                return thread;
+            }
+        });
+
+        moduleDescriptorCache = new ModuleDescriptorCache();
+
         ivyResolveJob = new IvyResolveJob();
 
+        startupResolveScheduler = new StartupResolveScheduler();
+
         retrieveSetupManager = new RetrieveSetupManager();
 
         IWorkspace workspace = ResourcesPlugin.getWorkspace();
-        workspace.addSaveParticipant(ID, retrieveSetupManager);
+        // a single participant per plugin: it saves both the retrieve setups and the pending
+        // container states
+        workspace.addSaveParticipant(ID, new ISaveParticipant() {
+            public void prepareToSave(ISaveContext context) throws CoreException {
+                retrieveSetupManager.prepareToSave(context);
+            }
+
+            public void saving(ISaveContext context) throws CoreException {
+                retrieveSetupManager.saving(context);
+                IvyClasspathContainerSerializer serializer = ivyCpcSerializer;
+                if (serializer != null) {
+                    serializer.flush();
+                }
+            }
+
+            public void rollback(ISaveContext context) {
+                retrieveSetupManager.rollback(context);
+            }
+
+            public void doneSaving(ISaveContext context) {
+                retrieveSetupManager.doneSaving(context);
+            }
+        });
 
         colorManager = new ColorManager();
         Display.getDefault().asyncExec(new Runnable() {
@@ -171,6 +242,7 @@ public class IvyPlugin extends AbstractUIPlugin {
             public void propertyChange(PropertyChangeEvent event) {
                 try {
                     if (PreferenceConstants.ALL.contains(event.getProperty())) {
+                        prefStoreHelper.refreshSetups();
                         prefStoreChanged();
                     }
                 } catch (JavaModelException e) {
@@ -202,6 +274,11 @@ public class IvyPlugin extends AbstractUIPlugin {
         workspace.addResourceChangeListener(workspaceListener);
         ivyFileListener = new IvyFileResourceListener();
         workspace.addResourceChangeListener(ivyFileListener, IResourceChangeEvent.PRE_BUILD);
+        workspaceModuleIndex = new WorkspaceModuleIndex();
+        workspace.addResourceChangeListener(workspaceModuleIndex,
+            IResourceChangeEvent.POST_CHANGE);
+        JavaCore.addElementChangedListener(workspaceModuleIndex,
+            ElementChangedEvent.POST_CHANGE);
 
         ivyMarkerManager = new IvyMarkerManager();
 
@@ -214,6 +291,13 @@ public class IvyPlugin extends AbstractUIPlugin {
         }
         ivyCpcSerializer = new IvyClasspathContainerSerializer(containersStateDir,
                 ivyAttachmentManager);
+        ivyCpcSerializer.preloadStates();
+        resolveFingerprints = new ResolveFingerprints(new File(stateLocation,
+                "resolve-fingerprints.properties"));
+        bundleMetadataIndex = new BundleMetadataIndex(new File(stateLocation,
+                "bundle-metadata.properties"));
+        incrementalRetriever = new IncrementalRetriever(new File(stateLocation, "retrieve"),
+                new File(stateLocation, "retrieve-store"), workerExecutor);
 
         try {
             Class.forName("org.apache.ivy.osgi.core.ManifestParser");
@@ -241,24 +325,44 @@ public class IvyPlugin extends AbstractUIPlugin {
      */
     public void stop(BundleContext context) throws Exception {
         super.stop(context);
+        // stop the resolves before saving the states they may update
+        startupResolveScheduler.cancel();
+        startupResolveScheduler = null;
+        ivyResolveJob.dispose();
+        ivyResolveJob = null;
+        workerExecutor.shutdownNow();
+        workerExecutor = null;
+        ivyCpcSerializer.flush();
         ivyCpcSerializer = null;
+        resolveFingerprints.save();
+        resolveFingerprints = null;
+        bundleMetadataIndex.save();
+        bundleMetadataIndex = null;
+        incrementalRetriever = null;
         ivyAttachmentManager = null;
         resourceBundle = null;
         IWorkspace workspace = ResourcesPlugin.getWorkspace();
         workspace.removeSaveParticipant(ID);
         colorManager = null;
         ivyMarkerManager = null;
-        ivyResolveJob = null;
+        ivyPool.clear();
+        ivyPool = null;
+        moduleDescriptorCache.clear();
+        moduleDescriptorCache = null;
         retrieveSetupManager = null;
         workspace.removeResourceChangeListener(workspaceListener);
         workspaceListener = null;
         workspace.removeResourceChangeListener(ivyFileListener);
         ivyFileListener = null;
+        workspace.removeResourceChangeListener(workspaceModuleIndex);
+        JavaCore.removeElementChangedListener(workspaceModuleIndex);
+        workspaceModuleIndex = null;
 
         getPreferenceStore().removePropertyChangeListener(propertyListener);
         propertyListener = null;
 
         if (console != null) {
+            console.shutdown();
             console.destroy();
         }
         plugin = null;
@@ -502,6 +606,43 @@ public class IvyPlugin extends AbstractUIPlugin {
         return ivyResolveJob;
     }
 
+    public StartupResolveScheduler getStartupResolveScheduler() {
+        return startupResolveScheduler;
+    }
+
+    public IvyPool getIvyPool() {
+        return ivyPool;
+    }
+
+    public ModuleDescriptorCache getModuleDescriptorCache() {
+        return moduleDescriptorCache;
+    }
+
+    public ResolveFingerprints getResolveFingerprints() {
+        return resolveFingerprints;
+    }
+
+    public BundleMetadataIndex getBundleMetadataIndex() {
+        return bundleMetadataIndex;
+    }
+
+    public IncrementalRetriever getIncrementalRetriever() {
+        return incrementalRetriever;
+    }
+
+    /**
+     * @return the threads shared by the short tasks which the resolves run concurrently, like
+     *         parsing the reports or copying the retrieved files. The tasks must not wait for
+     *         other tasks of this executor.
+     */
+    public ExecutorService getWorkerExecutor() {
+        return workerExecutor;
+    }
+
+    public WorkspaceModuleIndex getWorkspaceModuleIndex() {
+        return workspaceModuleIndex;
+    }
+
     public RetrieveSetupManager getRetrieveSetupManager() {
         return retrieveSetupManager;
     }
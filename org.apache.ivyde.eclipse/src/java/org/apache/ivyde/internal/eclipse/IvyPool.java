@@ -0,0 +1,309 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivyde.eclipse.IvyDEException;
+
+/**
+ * Workspace wide pool of configured Ivy instances. Every {@link CachedIvy} leases its instance
+ * under a fingerprint of its settings, so that the containers which share the same settings file,
+ * property files, Ivy user dir and workspace resolution share a single Ivy instance.
+ * <p>
+ * The owners are weakly referenced: an instance is evicted as soon as no owner leases it anymore,
+ * either because they released it or because they were garbage collected.
+ */
+public class IvyPool {
+
+    /**
+     * Configures a new Ivy instance when none is pooled for the fingerprint.
+     */
+    public interface IvyFactory {
+        Ivy createIvy() throws IvyDEException;
+    }
+
+    /**
+     * An entry of the pool. The owners should always get the Ivy instance from it, so that they
+     * all see the instance configured again when one of them requests to reload the settings.
+     * <p>
+     * Ivy keeps the state of a running resolve in its instance, like its interruption, so the
+     * resolves borrow their instance: the shared one if it is not used by another resolve,
+     * otherwise a spare instance configured alike, which is kept for the next concurrent resolves.
+     */
+    public static final class PooledIvy {
+
+        private final String fingerprint;
+
+        private volatile Ivy ivy;
+
+        private IvyFactory factory;
+
+        private final Map<CachedIvy, Boolean> owners = new WeakHashMap<>();
+
+        private boolean sharedBorrowed;
+
+        /**
+         * The spare instances configured like the shared one
+         */
+        private final Set<Ivy> spares = new HashSet<>();
+
+        private final List<Ivy> idleSpares = new ArrayList<>();
+
+        /**
+         * Number of leases in progress, which must prevent the eviction
+         */
+        private int leasing;
+
+        private PooledIvy(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private synchronized Ivy configure(boolean reload, IvyFactory factory)
+                throws IvyDEException {
+            if (ivy == null) {
+                IvyDEMessage.verbose("Configuring a new shared Ivy instance for " + fingerprint);
+                setIvy(factory.createIvy(), factory);
+            } else if (reload) {
+                IvyDEMessage.info("Reloading the settings of the shared Ivy instance");
+                setIvy(factory.createIvy(), factory);
+            } else {
+                IvyDEMessage.verbose("No change detected: using the shared Ivy instance");
+            }
+            return ivy;
+        }
+
+        private void setIvy(Ivy newIvy, IvyFactory newFactory) {
+            synchronized (spares) {
+                ivy = newIvy;
+                factory = newFactory;
+                // the spares are configured with the former settings
+                sharedBorrowed = false;
+                spares.clear();
+                idleSpares.clear();
+            }
+        }
+
+        /**
+         * Borrow an Ivy instance to resolve with, which no other resolve is using. It must be given
+         * back with {@link #giveBack(Ivy)} once the resolve is done.
+         *
+         * @return the shared instance, or a spare one configured alike
+         * @throws IvyDEException if a spare instance had to be configured and it failed
+         */
+        public Ivy borrow() throws IvyDEException {
+            IvyFactory spareFactory;
+            synchronized (spares) {
+                if (!sharedBorrowed) {
+                    sharedBorrowed = true;
+                    return ivy;
+                }
+                if (!idleSpares.isEmpty()) {
+                    return idleSpares.remove(idleSpares.size() - 1);
+                }
+                spareFactory = factory;
+            }
+            IvyDEMessage.verbose("Configuring a spare Ivy instance for " + fingerprint
+                    + " to resolve concurrently");
+            Ivy spare = spareFactory.createIvy();
+            synchronized (spares) {
+                if (spareFactory == factory) {
+                    spares.add(spare);
+                }
+            }
+            return spare;
+        }
+
+        /**
+         * Give back an instance borrowed with {@link #borrow()}.
+         *
+         * @param borrowed the borrowed instance
+         */
+        public void giveBack(Ivy borrowed) {
+            synchronized (spares) {
+                if (borrowed == ivy) {
+                    sharedBorrowed = false;
+                } else if (spares.contains(borrowed)) {
+                    idleSpares.add(borrowed);
+                }
+            }
+        }
+
+        /**
+         * @return the current Ivy instance of the entry
+         */
+        public Ivy getIvy() {
+            return ivy;
+        }
+    }
+
+    private static final class CollectedDependencies {
+
+        private final String key;
+
+        private IvySettingsDependencies deps;
+
+        private CollectedDependencies(String key) {
+            this.key = key;
+        }
+    }
+
+    private final Map<String, PooledIvy> pool = new HashMap<>();
+
+    private final Map<CachedIvy, PooledIvy> leases = new WeakHashMap<>();
+
+    private final Map<String, CollectedDependencies> dependencies = new HashMap<>();
+
+    /**
+     * Lease the Ivy instance matching the fingerprint, configuring it if it is not pooled yet. Any
+     * instance previously leased by the owner under another fingerprint is released.
+     * <p>
+     * Only the leases of the same fingerprint wait for each other while Ivy is being configured.
+     *
+     * @param owner the holder of the lease
+     * @param fingerprint the fingerprint of the settings of the owner
+     * @param reload <code>true</code> to configure again the pooled instance
+     * @param factory the factory to use if the Ivy instance has to be configured
+     * @return the entry of the shared Ivy instance
+     * @throws IvyDEException if the configuration of Ivy failed
+     */
+    public PooledIvy lease(CachedIvy owner, String fingerprint, boolean reload, IvyFactory factory)
+            throws IvyDEException {
+        PooledIvy pooled;
+        synchronized (this) {
+            pooled = pool.get(fingerprint);
+            if (pooled == null) {
+                pooled = new PooledIvy(fingerprint);
+                pool.put(fingerprint, pooled);
+            }
+            pooled.leasing++;
+        }
+        Ivy ivy = null;
+        try {
+            ivy = pooled.configure(reload, factory);
+        } finally {
+            synchronized (this) {
+                pooled.leasing--;
+                if (ivy != null) {
+                    PooledIvy previous = leases.put(owner, pooled);
+                    if (previous != null && previous != pooled) {
+                        previous.owners.remove(owner);
+                    }
+                    pooled.owners.put(owner, Boolean.TRUE);
+                }
+                evictUnused();
+            }
+        }
+        return pooled;
+    }
+
+    /**
+     * Get the files a local settings depends on, walking through them again only if one of them
+     * has changed since the last call. Only the calls for the same settings wait for each other.
+     *
+     * @param key the fingerprint of the settings, excluding the content of the files
+     * @param settingsFile the settings file
+     * @param propertyFiles the property files loaded before the settings
+     * @param baseDir the base dir of the settings, <code>null</code> if unknown
+     * @return the dependencies of the settings
+     */
+    public IvySettingsDependencies getSettingsDependencies(String key, File settingsFile,
+            Collection<File> propertyFiles, File baseDir) {
+        // the included files may depend on the base dir
+        String collectedKey = key + ";basedir=" + baseDir;
+        CollectedDependencies collected;
+        synchronized (this) {
+            collected = dependencies.get(collectedKey);
+            if (collected == null) {
+                collected = new CollectedDependencies(key);
+                dependencies.put(collectedKey, collected);
+            }
+        }
+        synchronized (collected) {
+            if (collected.deps == null || !collected.deps.isUpToDate()) {
+                collected.deps = IvySettingsDependencies.collect(settingsFile, propertyFiles,
+                    baseDir);
+                IvyDEMessage.verbose("The settings " + settingsFile + " depend on "
+                        + collected.deps);
+            }
+            return collected.deps;
+        }
+    }
+
+    /**
+     * Release the Ivy instance leased by the owner, if any.
+     *
+     * @param owner the holder of the lease
+     */
+    public synchronized void release(CachedIvy owner) {
+        PooledIvy pooled = leases.remove(owner);
+        if (pooled != null) {
+            pooled.owners.remove(owner);
+        }
+        evictUnused();
+    }
+
+    /**
+     * @return the number of Ivy instances currently pooled
+     */
+    public synchronized int size() {
+        evictUnused();
+        return pool.size();
+    }
+
+    public synchronized void clear() {
+        pool.clear();
+        leases.clear();
+        dependencies.clear();
+    }
+
+    private void evictUnused() {
+        Iterator<PooledIvy> it = pool.values().iterator();
+        while (it.hasNext()) {
+            PooledIvy pooled = it.next();
+            if (pooled.owners.isEmpty() && pooled.leasing == 0) {
+                IvyDEMessage.verbose("Evicting the unused Ivy instance of " + pooled.fingerprint);
+                it.remove();
+            }
+        }
+        Iterator<CollectedDependencies> collected = dependencies.values().iterator();
+        while (collected.hasNext()) {
+            String key = collected.next().key;
+            boolean used = false;
+            for (String fingerprint : pool.keySet()) {
+                if (fingerprint.startsWith(key)) {
+                    used = true;
+                    break;
+                }
+            }
+            if (!used) {
+                collected.remove();
+            }
+        }
+    }
+}
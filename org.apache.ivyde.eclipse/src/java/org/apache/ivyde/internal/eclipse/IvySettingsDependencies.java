@@ -0,0 +1,358 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.HexEncoder;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The closure of the local files which contribute to an Ivy settings: the settings file itself,
+ * the settings files it includes, the property files it loads and the property files configured
+ * in IvyDE. Each file is tracked with its timestamp, its size and a digest of its content, so that
+ * a touched but unchanged file is not considered as a change.
+ */
+public class IvySettingsDependencies {
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}]*)\\}");
+
+    private static final Pattern BASEDIR_PATTERN = Pattern.compile("\\$\\{(ivy\\.)?basedir\\}");
+
+    private static final String DIGEST_ALGORITHM = "md5";
+
+    private static final class FileStamp {
+
+        private long lastModified;
+
+        private long length;
+
+        private final String digest;
+
+        private FileStamp(File file, String digest) {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.digest = digest;
+        }
+    }
+
+    private final Map<File, FileStamp> stamps;
+
+    private final boolean usingBaseDir;
+
+    private final String digest;
+
+    private IvySettingsDependencies(Map<File, FileStamp> stamps, boolean usingBaseDir) {
+        this.stamps = stamps;
+        this.usingBaseDir = usingBaseDir;
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            for (Map.Entry<File, FileStamp> entry : stamps.entrySet()) {
+                md.update(entry.getKey().getPath().getBytes(StandardCharsets.UTF_8));
+                md.update(entry.getValue().digest.getBytes(StandardCharsets.UTF_8));
+            }
+            digest = HexEncoder.encode(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Collect the files which contribute to the settings.
+     *
+     * @param settingsFile the main settings file
+     * @param propertyFiles the property files loaded by IvyDE before the settings
+     * @param baseDir the base dir of the settings, <code>null</code> if unknown
+     * @return the dependencies of the settings
+     */
+    public static IvySettingsDependencies collect(File settingsFile,
+            Collection<File> propertyFiles, File baseDir) {
+        Collector collector = new Collector(baseDir);
+        for (File propertyFile : propertyFiles) {
+            collector.addProperties(propertyFile);
+        }
+        collector.addSettings(settingsFile);
+        return new IvySettingsDependencies(collector.stamps, collector.usingBaseDir);
+    }
+
+    /**
+     * @return the files the settings depend on
+     */
+    public Collection<File> getFiles() {
+        return Collections.unmodifiableSet(stamps.keySet());
+    }
+
+    /**
+     * @return <code>true</code> if one of the settings or property files refers to the base dir
+     *         variables
+     */
+    public boolean isUsingBaseDir() {
+        return usingBaseDir;
+    }
+
+    /**
+     * @return a digest of the content of every file of the settings
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Check that none of the files has changed. The content of a file is digested only if its
+     * timestamp or its size changed.
+     *
+     * @return <code>true</code> if the content of every file is unchanged
+     */
+    public synchronized boolean isUpToDate() {
+        for (Map.Entry<File, FileStamp> entry : stamps.entrySet()) {
+            File file = entry.getKey();
+            FileStamp stamp = entry.getValue();
+            long lastModified = file.lastModified();
+            long length = file.length();
+            if (lastModified == stamp.lastModified && length == stamp.length) {
+                continue;
+            }
+            if (!stamp.digest.equals(digest(file))) {
+                IvyDEMessage.verbose("The settings file " + file + " has changed");
+                return false;
+            }
+            IvyDEMessage.debug("The settings file " + file + " was touched but is unchanged");
+            stamp.lastModified = lastModified;
+            stamp.length = length;
+        }
+        return true;
+    }
+
+    private static String digest(File file) {
+        if (!file.exists()) {
+            return "<missing>";
+        }
+        try {
+            return ChecksumHelper.computeAsString(file, DIGEST_ALGORITHM);
+        } catch (IOException e) {
+            return "<unreadable>";
+        }
+    }
+
+    public String toString() {
+        return stamps.keySet().toString();
+    }
+
+    /**
+     * Walks through the settings files, following the includes and the loaded property files.
+     * Variables are substituted on a best effort basis: an include which cannot be resolved is
+     * just not tracked.
+     */
+    private static final class Collector extends DefaultHandler {
+
+        private final Map<File, FileStamp> stamps = new LinkedHashMap<>();
+
+        private final Map<String, String> variables = new HashMap<>();
+
+        private boolean usingBaseDir;
+
+        private File currentFile;
+
+        private Collector(File baseDir) {
+            for (String name : System.getProperties().stringPropertyNames()) {
+                variables.put(name, System.getProperty(name));
+            }
+            if (baseDir != null) {
+                // as IvySettings.setBaseDir does
+                variables.put("ivy.basedir", baseDir.getAbsolutePath());
+                variables.put("basedir", baseDir.getAbsolutePath());
+            }
+        }
+
+        private void addProperties(File file) {
+            if (track(file, false) == null) {
+                return;
+            }
+            Properties props = new Properties();
+            try (InputStream is = new FileInputStream(file)) {
+                props.load(is);
+            } catch (IOException e) {
+                return;
+            }
+            for (String key : props.stringPropertyNames()) {
+                String value = props.getProperty(key);
+                if (BASEDIR_PATTERN.matcher(value).find()) {
+                    usingBaseDir = true;
+                }
+                variables.put(key, value);
+            }
+        }
+
+        private void addSettings(File file) {
+            String content = track(file, true);
+            if (content == null) {
+                return;
+            }
+            if (BASEDIR_PATTERN.matcher(content).find()) {
+                usingBaseDir = true;
+            }
+            File previousFile = currentFile;
+            currentFile = file;
+            String previousDir = variables.get("ivy.settings.dir");
+            variables.put("ivy.settings.dir", file.getParentFile().getAbsolutePath());
+            variables.put("ivy.settings.file", file.getAbsolutePath());
+            try {
+                SAXParserFactory factory = SAXParserFactory.newInstance();
+                factory.setNamespaceAware(false);
+                SAXParser parser = factory.newSAXParser();
+                parser.parse(file, this);
+            } catch (ParserConfigurationException | SAXException | IOException e) {
+                // Ivy will report the error when configuring itself
+                IvyDEMessage.debug("Unable to walk through the settings " + file + ": "
+                        + e.getMessage());
+            } finally {
+                currentFile = previousFile;
+                if (previousDir != null) {
+                    variables.put("ivy.settings.dir", previousDir);
+                }
+            }
+        }
+
+        /**
+         * @return the content of the file if it exists and was not tracked yet
+         */
+        private String track(File file, boolean readContent) {
+            if (stamps.containsKey(file)) {
+                return null;
+            }
+            stamps.put(file, new FileStamp(file, digest(file)));
+            if (!file.exists()) {
+                return null;
+            }
+            if (!readContent) {
+                return "";
+            }
+            try {
+                return new String(Files.readAllBytes(file.toPath()),
+                        StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) throws SAXException {
+            if ("property".equals(qName)) {
+                String name = attributes.getValue("name");
+                String value = attributes.getValue("value");
+                if (name == null || value == null) {
+                    return;
+                }
+                boolean override = !"false".equals(attributes.getValue("override"));
+                value = substitute(value);
+                if (value != null && (override || !variables.containsKey(name))) {
+                    variables.put(name, value);
+                }
+            } else if ("include".equals(qName)) {
+                File file = toFile(attributes.getValue("file"), attributes.getValue("url"));
+                if (file != null) {
+                    addSettings(file);
+                }
+            } else if ("properties".equals(qName)) {
+                String environment = attributes.getValue("environment");
+                if (environment != null) {
+                    for (Map.Entry<String, String> env : System.getenv().entrySet()) {
+                        variables.put(environment + "." + env.getKey(), env.getValue());
+                    }
+                }
+                File file = toFile(attributes.getValue("file"), attributes.getValue("url"));
+                if (file != null) {
+                    addProperties(file);
+                }
+            }
+        }
+
+        private File toFile(String path, String url) {
+            if (path != null) {
+                String resolved = substitute(path);
+                if (resolved == null) {
+                    return null;
+                }
+                File file = new File(resolved);
+                if (!file.isAbsolute()) {
+                    file = new File(currentFile.getParentFile(), resolved);
+                }
+                return file.getAbsoluteFile();
+            }
+            if (url != null) {
+                String resolved = substitute(url);
+                if (resolved == null) {
+                    return null;
+                }
+                try {
+                    URL u = new URL(resolved);
+                    if ("file".equals(u.getProtocol())) {
+                        return new File(new URI(u.toString()));
+                    }
+                } catch (MalformedURLException | URISyntaxException
+                        | IllegalArgumentException e) {
+                    // not a local file
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the substituted value, or <code>null</code> if a variable is unknown
+         */
+        private String substitute(String value) {
+            Matcher m = VARIABLE_PATTERN.matcher(value);
+            StringBuffer sb = new StringBuffer();
+            while (m.find()) {
+                String var = variables.get(m.group(1));
+                if (var == null) {
+                    return null;
+                }
+                m.appendReplacement(sb, Matcher.quoteReplacement(var));
+            }
+            m.appendTail(sb);
+            return sb.toString();
+        }
+    }
+}
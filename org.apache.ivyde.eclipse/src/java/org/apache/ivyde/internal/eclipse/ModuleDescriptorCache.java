@@ -0,0 +1,272 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
+import org.apache.ivy.util.ChecksumHelper;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Cache of the parsed ivy.xml files. A descriptor is reused as long as it is requested with the
+ * same settings instance and the file is unchanged: same timestamp and size, or else same content
+ * digest. The local files the descriptor is made of, the parent descriptors it extends and the
+ * configurations files it includes, must also keep their timestamp and size.
+ */
+public class ModuleDescriptorCache {
+
+    private static final class CachedDescriptor {
+
+        private final WeakReference<IvySettings> settings;
+
+        private final ModuleDescriptor md;
+
+        private final String digest;
+
+        private final Map<File, String> includedFiles;
+
+        private volatile long lastModified;
+
+        private volatile long length;
+
+        private CachedDescriptor(IvySettings settings, ModuleDescriptor md, String digest,
+                Map<File, String> includedFiles, long lastModified, long length) {
+            this.settings = new WeakReference<>(settings);
+            this.md = md;
+            this.digest = digest;
+            this.includedFiles = includedFiles;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private boolean isIncludedFilesUnchanged() {
+            for (Map.Entry<File, String> entry : includedFiles.entrySet()) {
+                if (!entry.getValue().equals(getStamp(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Map<File, CachedDescriptor> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Get the parsed descriptor of the ivy.xml file, parsing it only if it was not cached for
+     * these settings or if it has changed.
+     *
+     * @param settings the settings to parse with
+     * @param file the ivy.xml file
+     * @return the module descriptor
+     * @throws ParseException if the file is not a valid descriptor
+     * @throws IOException if the file cannot be read
+     */
+    public ModuleDescriptor getModuleDescriptor(IvySettings settings, File file)
+            throws ParseException, IOException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        CachedDescriptor cached = cache.get(file);
+        String digest = null;
+        if (cached != null && cached.settings.get() == settings
+                && cached.isIncludedFilesUnchanged()) {
+            if (cached.lastModified == lastModified && cached.length == length) {
+                hits.incrementAndGet();
+                return cached.md;
+            }
+            digest = ChecksumHelper.computeAsString(file, "md5");
+            if (digest.equals(cached.digest)) {
+                cached.lastModified = lastModified;
+                cached.length = length;
+                hits.incrementAndGet();
+                return cached.md;
+            }
+        }
+        misses.incrementAndGet();
+        if (digest == null) {
+            digest = ChecksumHelper.computeAsString(file, "md5");
+        }
+        Map<File, String> includedFiles = new IncludeCollector(settings).collect(file);
+        ModuleDescriptor md = ModuleDescriptorParserRegistry.getInstance().parseDescriptor(
+            settings, file.toURI().toURL(), false);
+        cache.put(file, new CachedDescriptor(settings, md, digest, includedFiles, lastModified,
+                length));
+        return md;
+    }
+
+    /**
+     * Get the local files a cached descriptor is made of besides the ivy.xml file: the parent
+     * descriptors it extends and the configurations files it includes.
+     *
+     * @param file the ivy.xml file
+     * @param md the descriptor parsed from the file
+     * @return the size and the timestamp of each file, <code>null</code> if this descriptor is
+     *         not the cached one or if one of these files has changed since it was parsed
+     */
+    public Map<File, String> getIncludedFiles(File file, ModuleDescriptor md) {
+        CachedDescriptor cached = cache.get(file);
+        if (cached == null || cached.md != md || !cached.isIncludedFilesUnchanged()) {
+            return null;
+        }
+        return Collections.unmodifiableMap(cached.includedFiles);
+    }
+
+    /**
+     * @return the size and the timestamp of the file, which are both 0 if it doesn't exist
+     */
+    private static String getStamp(File file) {
+        return file.length() + "/" + file.lastModified();
+    }
+
+    /**
+     * Forget the descriptor parsed from the file.
+     *
+     * @param file the ivy.xml file
+     */
+    public void invalidate(File file) {
+        cache.remove(file);
+    }
+
+    /**
+     * Forget the descriptors parsed from the files under the folder.
+     *
+     * @param folder the folder of the ivy.xml files
+     */
+    public void invalidateAll(File folder) {
+        String prefix = folder.getAbsolutePath() + File.separator;
+        Iterator<File> it = cache.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getAbsolutePath().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public String toString() {
+        return cache.size() + " descriptor(s) cached, " + hits.get() + " hit(s), " + misses.get()
+                + " miss(es)";
+    }
+
+    /**
+     * Walks through a descriptor and the local descriptors it extends, collecting them with the
+     * configurations files they include. Ivy looks for a parent in the repository if it is not
+     * found locally: a missing parent is still tracked, in case it is created later.
+     */
+    private static final class IncludeCollector extends DefaultHandler {
+
+        private static final String DEFAULT_PARENT_LOCATION = "../ivy.xml";
+
+        private final IvySettings settings;
+
+        private final Map<File, String> stamps = new LinkedHashMap<>();
+
+        private File currentFile;
+
+        private IncludeCollector(IvySettings settings) {
+            this.settings = settings;
+        }
+
+        private Map<File, String> collect(File file) {
+            currentFile = file;
+            parse(file);
+            stamps.remove(file);
+            return stamps;
+        }
+
+        private void parse(File file) {
+            if (!file.isFile()) {
+                return;
+            }
+            File previousFile = currentFile;
+            currentFile = file;
+            try {
+                SAXParserFactory factory = SAXParserFactory.newInstance();
+                factory.setNamespaceAware(false);
+                factory.newSAXParser().parse(file, this);
+            } catch (ParserConfigurationException | SAXException | IOException e) {
+                // Ivy will report the error when parsing the descriptor
+                IvyDEMessage.debug("Unable to walk through the descriptor " + file + ": "
+                        + e.getMessage());
+            } finally {
+                currentFile = previousFile;
+            }
+        }
+
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) throws SAXException {
+            if ("extends".equals(qName)) {
+                String location = attributes.getValue("location");
+                File parent = track(location == null ? DEFAULT_PARENT_LOCATION : location);
+                if (parent != null) {
+                    parse(parent);
+                }
+            } else if ("include".equals(qName) && attributes.getValue("file") != null) {
+                // only the include of configurations has a file
+                track(attributes.getValue("file"));
+            }
+        }
+
+        /**
+         * @return the file if it was not tracked yet
+         */
+        private File track(String path) {
+            File file = new File(settings.substitute(path));
+            if (!file.isAbsolute()) {
+                file = new File(currentFile.getParentFile(), file.getPath());
+            }
+            file = file.getAbsoluteFile();
+            if (stamps.containsKey(file)) {
+                return null;
+            }
+            stamps.put(file, getStamp(file));
+            return file;
+        }
+    }
+}
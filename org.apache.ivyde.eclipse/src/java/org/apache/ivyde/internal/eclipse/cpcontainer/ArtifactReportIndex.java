@@ -0,0 +1,92 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivyde.internal.eclipse.cpcontainer.IvyClasspathContainerMapper.ArtifactMatcher;
+
+/**
+ * Index of the downloaded artifacts accepted by a matcher, by module revision and by name, so that
+ * looking for the sources or the javadoc of an artifact doesn't require to go through every
+ * resolved artifact.
+ */
+class ArtifactReportIndex {
+
+    private static final class IndexedReport {
+
+        private final int position;
+
+        private final ArtifactDownloadReport adr;
+
+        private IndexedReport(int position, ArtifactDownloadReport adr) {
+            this.position = position;
+            this.adr = adr;
+        }
+    }
+
+    private final ArtifactMatcher matcher;
+
+    private final Map<ModuleRevisionId, Map<String, IndexedReport>> reports = new HashMap<>();
+
+    ArtifactReportIndex(Collection<ArtifactDownloadReport> all, ArtifactMatcher matcher) {
+        this.matcher = matcher;
+        int position = 0;
+        for (ArtifactDownloadReport adr : all) {
+            Artifact artifact = adr.getArtifact();
+            if (adr.getLocalFile() != null && matcher.match(artifact)) {
+                Map<String, IndexedReport> byName = reports.get(artifact.getModuleRevisionId());
+                if (byName == null) {
+                    byName = new HashMap<>();
+                    reports.put(artifact.getModuleRevisionId(), byName);
+                }
+                if (!byName.containsKey(artifact.getName())) {
+                    byName.put(artifact.getName(), new IndexedReport(position, adr));
+                }
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Find the downloaded artifact matching the given artifact. If several are matching, the first
+     * one in the order of the resolved artifacts is returned.
+     *
+     * @param artifact the artifact to find the sources or the javadoc of
+     * @return the matching artifact report, <code>null</code> if none is matching
+     */
+    ArtifactDownloadReport find(Artifact artifact) {
+        Map<String, IndexedReport> byName = reports.get(artifact.getModuleRevisionId());
+        if (byName == null) {
+            return null;
+        }
+        IndexedReport found = null;
+        for (String name : matcher.getNames(artifact)) {
+            IndexedReport report = byName.get(name);
+            if (report != null && (found == null || report.position < found.position)) {
+                found = report;
+            }
+        }
+        return found == null ? null : found.adr;
+    }
+}
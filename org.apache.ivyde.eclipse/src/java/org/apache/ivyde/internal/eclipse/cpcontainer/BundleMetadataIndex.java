@@ -0,0 +1,264 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.core.ExportPackage;
+import org.apache.ivy.osgi.core.ManifestParser;
+import org.apache.ivyde.internal.eclipse.IvyPlugin;
+import org.eclipse.jdt.core.IAccessRule;
+
+/**
+ * Index of the OSGi metadata of the unzipped bundles put in a classpath: the Bundle-Classpath, the
+ * exported packages and which inner jars actually exist. An entry is reused as long as the
+ * MANIFEST.MF of the bundle has the same timestamp and size and the inner jars the same
+ * timestamps, and the index is persisted so that the bundles are not read again after a restart.
+ */
+public class BundleMetadataIndex {
+
+    private static final String STAMP = ".stamp";
+
+    private static final String CLASSPATH = ".classpath";
+
+    private static final String EXPORTS = ".exports";
+
+    private static final String MISSING = ".missing";
+
+    /**
+     * The metadata of a bundle which are relevant to build the classpath.
+     */
+    public static final class BundleMetadata {
+
+        private final String stamp;
+
+        private final List<String> classpath;
+
+        private final List<String> exportedPackages;
+
+        private final Set<String> missingInnerPaths;
+
+        private volatile IAccessRule[] accessRules;
+
+        private BundleMetadata(String stamp, List<String> classpath,
+                List<String> exportedPackages, Set<String> missingInnerPaths) {
+            this.stamp = stamp;
+            this.classpath = classpath;
+            this.exportedPackages = exportedPackages;
+            this.missingInnerPaths = missingInnerPaths;
+        }
+
+        /**
+         * @return the Bundle-Classpath, <code>null</code> if the bundle doesn't declare one
+         */
+        public List<String> getClasspath() {
+            return classpath;
+        }
+
+        public List<String> getExportedPackages() {
+            return exportedPackages;
+        }
+
+        /**
+         * @param innerPath a path of the Bundle-Classpath
+         * @return <code>true</code> if the path exists within the bundle
+         */
+        public boolean isExisting(String innerPath) {
+            return !missingInnerPaths.contains(innerPath);
+        }
+
+        IAccessRule[] getAccessRules() {
+            return accessRules;
+        }
+
+        void setAccessRules(IAccessRule[] accessRules) {
+            this.accessRules = accessRules;
+        }
+    }
+
+    private final Map<File, BundleMetadata> metadata = new ConcurrentHashMap<>();
+
+    private final File file;
+
+    private volatile boolean dirty = false;
+
+    public BundleMetadataIndex(File file) {
+        this.file = file;
+        if (!file.exists()) {
+            return;
+        }
+        Properties props = new Properties();
+        try (FileInputStream in = new FileInputStream(file)) {
+            props.load(in);
+        } catch (IOException e) {
+            IvyPlugin.logWarn("IvyDE bundle metadata could not be loaded", e);
+            return;
+        }
+        for (String key : props.stringPropertyNames()) {
+            if (!key.endsWith(STAMP)) {
+                continue;
+            }
+            String root = key.substring(0, key.length() - STAMP.length());
+            String classpath = props.getProperty(root + CLASSPATH);
+            metadata.put(new File(root), new BundleMetadata(props.getProperty(key),
+                    classpath == null ? null : split(classpath),
+                    split(props.getProperty(root + EXPORTS, "")),
+                    new HashSet<>(split(props.getProperty(root + MISSING, "")))));
+        }
+    }
+
+    /**
+     * Get the metadata of an unzipped bundle, reading its manifest only if it was not indexed yet
+     * or if it has changed.
+     *
+     * @param bundleDir the folder of the unzipped bundle
+     * @return the metadata, <code>null</code> if the bundle has no manifest
+     * @throws IOException if the manifest is unreadable
+     * @throws ParseException if the manifest is malformed
+     */
+    public BundleMetadata getMetadata(File bundleDir) throws IOException, ParseException {
+        File manifestFile = getManifestFile(bundleDir);
+        long lastModified = manifestFile.lastModified();
+        if (lastModified == 0) {
+            // no manifest
+            return null;
+        }
+        String manifestStamp = lastModified + "/" + manifestFile.length();
+        BundleMetadata bundleMetadata = metadata.get(bundleDir);
+        if (bundleMetadata != null && bundleMetadata.stamp.equals(
+            getStamp(bundleDir, manifestStamp, bundleMetadata.classpath))) {
+            return bundleMetadata;
+        }
+        BundleInfo bundleInfo = ManifestParser.parseManifest(manifestFile);
+        List<String> classpath = bundleInfo.getClasspath();
+        List<String> exportedPackages = new ArrayList<>(bundleInfo.getExports().size());
+        for (ExportPackage exportPackage : bundleInfo.getExports()) {
+            exportedPackages.add(exportPackage.getName());
+        }
+        Set<String> missingInnerPaths = new HashSet<>();
+        if (classpath != null) {
+            classpath = new ArrayList<>(classpath);
+            for (String innerPath : classpath) {
+                if (!new File(bundleDir, innerPath).exists()) {
+                    missingInnerPaths.add(innerPath);
+                }
+            }
+        }
+        bundleMetadata = new BundleMetadata(getStamp(bundleDir, manifestStamp, classpath),
+                classpath, exportedPackages, missingInnerPaths);
+        metadata.put(bundleDir, bundleMetadata);
+        dirty = true;
+        return bundleMetadata;
+    }
+
+    /**
+     * @return the stamp of the manifest followed by the timestamps of the inner jars, which are 0
+     *         for the missing ones
+     */
+    private static String getStamp(File bundleDir, String manifestStamp, List<String> classpath) {
+        if (classpath == null) {
+            return manifestStamp;
+        }
+        StringBuilder stamp = new StringBuilder(manifestStamp);
+        for (String innerPath : classpath) {
+            stamp.append(';').append(new File(bundleDir, innerPath).lastModified());
+        }
+        return stamp.toString();
+    }
+
+    public static File getManifestFile(File bundleDir) {
+        return new File(bundleDir, "META-INF/MANIFEST.MF");
+    }
+
+    /**
+     * Persist the index, if it has changed. The bundles which do not exist anymore are forgotten.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Properties props = new Properties();
+        for (Map.Entry<File, BundleMetadata> entry : metadata.entrySet()) {
+            File bundleDir = entry.getKey();
+            if (!getManifestFile(bundleDir).exists()) {
+                metadata.remove(bundleDir);
+                continue;
+            }
+            BundleMetadata bundleMetadata = entry.getValue();
+            String root = bundleDir.getPath();
+            props.setProperty(root + STAMP, bundleMetadata.stamp);
+            if (bundleMetadata.classpath != null) {
+                props.setProperty(root + CLASSPATH, join(bundleMetadata.classpath));
+            }
+            props.setProperty(root + EXPORTS, join(bundleMetadata.exportedPackages));
+            props.setProperty(root + MISSING, join(bundleMetadata.missingInnerPaths));
+        }
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                props.store(out, "");
+            }
+            // an interrupted save should never leave a truncated index behind
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            tmpFile.delete();
+            IvyPlugin.logWarn("IvyDE bundle metadata could not be saved", e);
+        }
+    }
+
+    private static List<String> split(String value) {
+        if (value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(value.split(","));
+    }
+
+    private static String join(Iterable<String> values) {
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            if (builder.length() != 0) {
+                builder.append(',');
+            }
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -17,8 +17,13 @@
  */
 package org.apache.ivyde.internal.eclipse.cpcontainer;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.ivy.Ivy;
@@ -31,9 +36,11 @@ import org.apache.ivyde.eclipse.cp.IvyClasspathContainer;
 import org.apache.ivyde.eclipse.cp.IvyClasspathContainerConfiguration;
 import org.apache.ivyde.eclipse.cp.RetrieveSetup;
 import org.apache.ivyde.internal.eclipse.IvyDEMessage;
+import org.apache.ivyde.internal.eclipse.IvyPlugin;
 import org.apache.ivyde.internal.eclipse.resolve.IvyResolver;
 import org.apache.ivyde.internal.eclipse.resolve.ResolveResult;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
 
 /**
@@ -41,15 +48,20 @@ import org.eclipse.jdt.core.IClasspathEntry;
  */
 public class ClasspathEntriesResolver extends IvyResolver {
 
+    private final IvyClasspathContainer container;
+
     private final IvyClasspathContainerConfiguration conf;
 
     private IClasspathEntry[] classpathEntries = null;
 
     private ResolveReport resolveReport;
 
+    private IvyClasspathContainerMapper pendingAttachmentsMapper;
+
     public ClasspathEntriesResolver(IvyClasspathContainer container, boolean usePreviousResolveIfExist) {
         super(container.getConf().getIvyXmlPath(), container.getConf().getConfs(), container.getConf()
                 .getJavaProject() == null ? null : container.getConf().getJavaProject().getProject());
+        this.container = container;
         this.conf = container.getConf();
         setUsePreviousResolveIfExist(conf.getInheritedAdvancedSetup().isUseExtendedResolveId());
         setUsePreviousResolveIfExist(usePreviousResolveIfExist);
@@ -59,6 +71,7 @@ public class ClasspathEntriesResolver extends IvyResolver {
             setRetrievePattern(setup.getRetrievePattern());
             setRetrieveSync(setup.isRetrieveSync());
             setRetrieveTypes(setup.getRetrieveTypes());
+            setRetrieveMode(setup.getRetrieveMode());
         }
     }
 
@@ -67,12 +80,27 @@ public class ClasspathEntriesResolver extends IvyResolver {
         IvyClasspathContainerMapper mapper = new IvyClasspathContainerMapper(monitor, ivy, conf,
                 resolveResult);
 
-        warnIfDuplicates(ivy, mapper, resolveResult.getArtifactReports());
+        warnIfDuplicates(mapper, resolveResult);
 
-        classpathEntries = mapper.map();
+        boolean deferAttachments = IvyPlugin.getPreferenceStoreHelper()
+                .isDeferAttachmentDownload();
+        classpathEntries = mapper.map(!deferAttachments);
+        pendingAttachmentsMapper = mapper.hasPendingAttachments() ? mapper : null;
         resolveReport = resolveResult.getReport();
     }
 
+    protected void appendFingerprint(StringBuilder builder) {
+        super.appendFingerprint(builder);
+        // the path of the container holds its whole configuration
+        builder.append(";container=").append(conf.getPath());
+    }
+
+    public boolean canSkipResolve(Ivy ivy, ModuleDescriptor md) {
+        return container instanceof IClasspathContainer
+                && ((IClasspathContainer) container).getClasspathEntries() != null
+                && super.canSkipResolve(ivy, md);
+    }
+
     public IClasspathEntry[] getClasspathEntries() {
         return classpathEntries;
     }
@@ -82,54 +110,80 @@ public class ClasspathEntriesResolver extends IvyResolver {
     }
 
     /**
-     * Trigger a warn if there are duplicates entries due to configuration conflict.
-     * <p>
-     * TODO: the algorithm can be more clever and find which configuration are conflicting.
-     * </p>
-     * @param ivy Ivy
-     * @param mapper IvyClasspathContainerMapper
-     * @param artifactReports Set&lt;ArtifactDownloadReport&gt;
+     * @return the mapper which has left some sources or javadocs to download, <code>null</code> if
+     *         there are none
      */
-    private void warnIfDuplicates(Ivy ivy, IvyClasspathContainerMapper mapper, Set<ArtifactDownloadReport> artifactReports) {
-        ArtifactDownloadReport[] reports = artifactReports.toArray(new ArtifactDownloadReport[0]);
-
-        Set<ModuleId> duplicates = new HashSet<>();
-
-        for (int i = 0; i < reports.length - 1; i++) {
-            if (!mapper.accept(reports[i].getArtifact())) {
-                continue;
-            }
-
-            ModuleRevisionId mrid1 = reports[i].getArtifact().getModuleRevisionId();
+    IvyClasspathContainerMapper getPendingAttachmentsMapper() {
+        return pendingAttachmentsMapper;
+    }
 
-            for (int j = i + 1; j < reports.length; j++) {
-                if (!mapper.accept(reports[j].getArtifact())) {
-                    continue;
-                }
-                ModuleRevisionId mrid2 = reports[j].getArtifact().getModuleRevisionId();
-                if (mrid1.getModuleId().equals(mrid2.getModuleId())
-                        && !mrid1.getRevision().equals(mrid2.getRevision())) {
-                    duplicates.add(mrid1.getModuleId());
-                    break;
-                }
+    /**
+     * Trigger a warn if there are duplicates entries due to configuration conflict, telling which
+     * configurations are pulling each conflicting revision.
+     *
+     * @param mapper IvyClasspathContainerMapper
+     * @param resolveResult the result of the resolve
+     */
+    private void warnIfDuplicates(IvyClasspathContainerMapper mapper, ResolveResult resolveResult) {
+        List<ModuleRevisionId> mrids = new ArrayList<>();
+        for (ArtifactDownloadReport report : resolveResult.getArtifactReports()) {
+            if (mapper.accept(report.getArtifact())) {
+                mrids.add(report.getArtifact().getModuleRevisionId());
             }
         }
 
+        Map<ModuleId, Collection<ModuleRevisionId>> duplicates = findDuplicates(mrids);
         if (duplicates.isEmpty()) {
             return;
         }
 
         StringBuilder buffer = new StringBuilder("There are some duplicates entries due to conflicts"
                 + " between the resolved configurations " + conf.getConfs());
-        buffer.append(":\n  - ");
-        Iterator<ModuleId> it = duplicates.iterator();
-        while (it.hasNext()) {
-            buffer.append(it.next());
-            if (it.hasNext()) {
-                buffer.append("\n  - ");
+        buffer.append(":");
+        for (Entry<ModuleId, Collection<ModuleRevisionId>> duplicate : duplicates.entrySet()) {
+            buffer.append("\n  - ").append(duplicate.getKey()).append(':');
+            Iterator<ModuleRevisionId> it = duplicate.getValue().iterator();
+            while (it.hasNext()) {
+                ModuleRevisionId mrid = it.next();
+                buffer.append(' ').append(mrid.getRevision());
+                Set<String> confs = resolveResult.getConfs(mrid);
+                if (!confs.isEmpty()) {
+                    buffer.append(" (").append(confs).append(')');
+                }
+                if (it.hasNext()) {
+                    buffer.append(',');
+                }
             }
         }
         IvyDEMessage.warn(buffer.toString());
     }
 
+    /**
+     * Group the revisions by module, in a single pass.
+     *
+     * @param mrids the resolved revisions
+     * @return the modules which have been resolved in several revisions, with these revisions
+     */
+    static Map<ModuleId, Collection<ModuleRevisionId>> findDuplicates(
+            Collection<ModuleRevisionId> mrids) {
+        Map<ModuleId, Map<String, ModuleRevisionId>> revisionsByModule = new LinkedHashMap<>();
+        for (ModuleRevisionId mrid : mrids) {
+            Map<String, ModuleRevisionId> revisions = revisionsByModule.get(mrid.getModuleId());
+            if (revisions == null) {
+                revisions = new LinkedHashMap<>();
+                revisionsByModule.put(mrid.getModuleId(), revisions);
+            }
+            if (!revisions.containsKey(mrid.getRevision())) {
+                revisions.put(mrid.getRevision(), mrid);
+            }
+        }
+        Map<ModuleId, Collection<ModuleRevisionId>> duplicates = new LinkedHashMap<>();
+        for (Entry<ModuleId, Map<String, ModuleRevisionId>> entry : revisionsByModule.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                duplicates.put(entry.getKey(), entry.getValue().values());
+            }
+        }
+        return duplicates;
+    }
+
 }
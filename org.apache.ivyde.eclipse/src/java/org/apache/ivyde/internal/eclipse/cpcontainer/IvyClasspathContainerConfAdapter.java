@@ -225,6 +225,10 @@ public final class IvyClasspathContainerConfAdapter {
                     classpathSetup.getRetrieveSetup().setRetrieveTypes(value);
                     conf.setClassthProjectSpecific(true);
                     break;
+                case "retrievedClasspathMode":
+                    classpathSetup.getRetrieveSetup().setRetrieveMode(value);
+                    conf.setClassthProjectSpecific(true);
+                    break;
                 case "mapIfOnlyOneSource":
                     mappingSetup.setMapIfOnlyOneSource(Boolean.valueOf(value));
                     conf.setMappingProjectSpecific(true);
@@ -454,6 +458,11 @@ public final class IvyClasspathContainerConfAdapter {
                     append(path, "retrievedClasspathPattern", retrieveSetup.getRetrievePattern());
                     append(path, "retrievedClasspathSync", retrieveSetup.isRetrieveSync());
                     append(path, "retrievedClasspathTypes", retrieveSetup.getRetrieveTypes());
+                    if (!RetrieveSetup.RETRIEVE_MODE_COPY.equals(retrieveSetup
+                            .getRetrieveMode())) {
+                        // only when needed, to keep the path of the existing containers
+                        append(path, "retrievedClasspathMode", retrieveSetup.getRetrieveMode());
+                    }
                 }
             }
             if (conf.isMappingProjectSpecific()) {
@@ -119,10 +119,25 @@ public class IvyClasspathContainerImpl implements IClasspathContainer, IvyClassp
     }
 
     public IStatus launchResolve(boolean usePreviousResolveIfExist, IProgressMonitor monitor) {
-        ResolveRequest request = new ResolveRequest(new IvyClasspathResolver(this,
-                usePreviousResolveIfExist), getState());
-        request.setInWorkspace(getConf().getInheritedClasspathSetup().isResolveInWorkspace());
-        request.setTransitive(getConf().getInheritedClasspathSetup().isTransitiveResolve());
+        return launchResolve(usePreviousResolveIfExist, false, monitor);
+    }
+
+    /**
+     * Launch a resolve of the container.
+     *
+     * @param usePreviousResolveIfExist
+     *            <code>true</code> to only refresh the container from the previous resolve
+     * @param force
+     *            <code>true</code> if the resolve is explicitly requested by the end user, so that
+     *            the incremental mode never skips it
+     * @param monitor
+     *            the monitor to run the resolve synchronously, <code>null</code> to schedule it
+     * @return the status of the resolve, always OK if it is scheduled
+     */
+    public IStatus launchResolve(boolean usePreviousResolveIfExist, boolean force,
+            IProgressMonitor monitor) {
+        ResolveRequest request = createResolveRequest(usePreviousResolveIfExist);
+        request.setForce(force);
         IvyResolveJob resolveJob = IvyPlugin.getDefault().getIvyResolveJob();
         if (monitor != null) {
             return resolveJob.launchRequest(request, monitor);
@@ -131,6 +146,14 @@ public class IvyClasspathContainerImpl implements IClasspathContainer, IvyClassp
         return Status.OK_STATUS;
     }
 
+    ResolveRequest createResolveRequest(boolean usePreviousResolveIfExist) {
+        ResolveRequest request = new ResolveRequest(new IvyClasspathResolver(this,
+                usePreviousResolveIfExist), getState());
+        request.setInWorkspace(getConf().getInheritedClasspathSetup().isResolveInWorkspace());
+        request.setTransitive(getConf().getInheritedClasspathSetup().isTransitiveResolve());
+        return request;
+    }
+
     void updateClasspathEntries(final IClasspathEntry[] newEntries) {
         IvyDEMessage.verbose("Updating the classpath container " + toString());
         IClasspathEntry[] entries;
@@ -175,8 +198,9 @@ public class IvyClasspathContainerImpl implements IClasspathContainer, IvyClassp
             // unless there are some issues with the JDT, this should never happen
             IvyPlugin.log(e);
         }
-        IvyClasspathContainerSerializer serializer = IvyPlugin.getDefault().getIvyClasspathContainerSerializer();
-        serializer.save(conf.getJavaProject());
+        IvyClasspathContainerSerializer serializer = IvyPlugin.getDefault()
+                .getIvyClasspathContainerSerializer();
+        serializer.scheduleSave(conf.getJavaProject());
     }
 
     public URL getReportUrl() {
@@ -202,7 +226,7 @@ public class IvyClasspathContainerImpl implements IClasspathContainer, IvyClassp
     }
 
     public void reloadSettings() {
-        state.setIvySettingsLastModified(-1);
+        state.reloadSettings();
         launchResolve(false, null);
     }
 
@@ -210,11 +234,37 @@ public class IvyClasspathContainerImpl implements IClasspathContainer, IvyClassp
         return conf.toString();
     }
 
-    public void setResolveReport(ResolveReport resolveReport) {
+    public synchronized void setResolveReport(ResolveReport resolveReport) {
         this.resolveReport = resolveReport;
     }
 
-    public ResolveReport getResolveReport() {
+    public synchronized ResolveReport getResolveReport() {
         return resolveReport;
     }
+
+    /**
+     * Set the report and the classpath entries of a resolve, atomically with
+     * {@link #updateAttachedClasspathEntries(ResolveReport, IClasspathEntry[])}.
+     */
+    synchronized void setResolveResult(ResolveReport report, IClasspathEntry[] entries) {
+        resolveReport = report;
+        updateClasspathEntries(entries);
+    }
+
+    /**
+     * Set the classpath entries mapped again once the attachments of a resolve are downloaded,
+     * unless the container has been resolved again meanwhile.
+     *
+     * @param report the report of the resolve
+     * @param entries the entries with the attachments
+     * @return <code>false</code> if the container has been resolved again
+     */
+    synchronized boolean updateAttachedClasspathEntries(ResolveReport report,
+            IClasspathEntry[] entries) {
+        if (resolveReport != report) {
+            return false;
+        }
+        updateClasspathEntries(entries);
+        return true;
+    }
 }
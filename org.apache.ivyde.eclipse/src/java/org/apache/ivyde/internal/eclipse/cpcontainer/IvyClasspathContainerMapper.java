@@ -24,24 +24,31 @@ import java.net.URL;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.resolve.DownloadOptions;
-import org.apache.ivy.osgi.core.BundleInfo;
-import org.apache.ivy.osgi.core.ExportPackage;
-import org.apache.ivy.osgi.core.ManifestParser;
 import org.apache.ivyde.eclipse.cp.ClasspathSetup;
 import org.apache.ivyde.eclipse.cp.IvyClasspathContainerConfiguration;
 import org.apache.ivyde.eclipse.cp.MappingSetup;
 import org.apache.ivyde.internal.eclipse.IvyDEMessage;
 import org.apache.ivyde.internal.eclipse.IvyPlugin;
+import org.apache.ivyde.internal.eclipse.cpcontainer.BundleMetadataIndex.BundleMetadata;
 import org.apache.ivyde.internal.eclipse.resolve.ResolveResult;
 import org.apache.ivyde.internal.eclipse.workspaceresolver.WorkspaceResolver;
 import org.eclipse.core.runtime.IPath;
@@ -65,9 +72,11 @@ public class IvyClasspathContainerMapper {
 
     private static final String IVYDE_NS_PREFIX = "ivyde:";
 
-    private final IProgressMonitor monitor;
+    private static final long CANCEL_CHECK_PERIOD = 500;
 
-    private final Ivy ivy;
+    private IProgressMonitor monitor;
+
+    private Ivy ivy;
 
     private final IJavaProject javaProject;
 
@@ -85,9 +94,23 @@ public class IvyClasspathContainerMapper {
 
     private final boolean osgiClasspathAvailable;
 
+    private final Map<ArtifactMatcher, ArtifactReportIndex> indexes = new HashMap<>();
+
+    /**
+     * The source and javadoc artifacts downloaded by {@link #provisionAttachments}
+     */
+    private final Map<Artifact, ArtifactDownloadReport> attachments = new ConcurrentHashMap<>();
+
+    private volatile boolean attachmentsProvisioned = false;
+
+    private volatile boolean pendingAttachments = false;
+
     private final IvyAttachmentManager attachmentManager = IvyPlugin.getDefault()
             .getIvyAttachmentManager();
 
+    private final BundleMetadataIndex bundleMetadataIndex = IvyPlugin.getDefault()
+            .getBundleMetadataIndex();
+
     public IvyClasspathContainerMapper(IProgressMonitor monitor, Ivy ivy,
             IvyClasspathContainerConfiguration conf, ResolveResult resolveResult) {
         this.monitor = monitor;
@@ -102,7 +125,31 @@ public class IvyClasspathContainerMapper {
         this.osgiClasspathAvailable = IvyPlugin.getDefault().isOsgiClasspathAvailable();
     }
 
-    public IClasspathEntry[] map() {
+    /**
+     * Continue the mapping after the resolve, which has given back its Ivy instance and has ended
+     * its progress report.
+     *
+     * @param newIvy the Ivy instance to download the attachments with
+     * @param newMonitor the monitor to report the progress to
+     */
+    void setContext(Ivy newIvy, IProgressMonitor newMonitor) {
+        this.ivy = newIvy;
+        this.monitor = newMonitor;
+    }
+
+    /**
+     * Build the classpath entries.
+     *
+     * @param downloadAttachments <code>false</code> to not download the sources and javadocs
+     *            which were not resolved, {@link #hasPendingAttachments()} then tells whether some
+     *            are missing
+     * @return the classpath entries
+     */
+    public IClasspathEntry[] map(boolean downloadAttachments) {
+        if (downloadAttachments && !attachmentsProvisioned) {
+            provisionAttachments(monitor);
+        }
+        pendingAttachments = false;
         Collection<IClasspathEntry> paths = new LinkedHashSet<>();
 
         IvyDEMessage.verbose("Building classpath from " + all.size() + " resolved artifact(s)");
@@ -123,7 +170,9 @@ public class IvyClasspathContainerMapper {
                             + artifact.getName());
                 }
             } else if (artifact.getLocalFile() != null && accept(artifact.getArtifact())) {
-                IvyDEMessage.verbose("Adding " + artifact.getName() + " to the classpath");
+                if (IvyDEMessage.isVerboseEnabled()) {
+                    IvyDEMessage.verbose("Adding " + artifact.getName() + " to the classpath");
+                }
 
                 // handle unzipped jar with 'Bundle-Classpath'
                 if (!osgiClasspathAvailable || !artifact.getLocalFile().isDirectory()
@@ -131,37 +180,37 @@ public class IvyClasspathContainerMapper {
                             // simple entry
                             paths.add(buildEntry(artifact));
                 } else {
-                    File manifestFile = new File(artifact.getLocalFile(), "META-INF/MANIFEST.MF");
-                    if (!manifestFile.exists()) {
-                        // no manifest : back to simple classpath
-                        paths.add(buildEntry(artifact));
-                    } else {
-                        try {
-                            BundleInfo bundleInfo = ManifestParser.parseManifest(manifestFile);
-                            if (bundleInfo.getClasspath() == null) {
-                                // no inner classpath : a simple entry
-                                paths.add(buildEntry(artifact));
-                            } else {
-                                IAccessRule[] rules = getAccessRules(bundleInfo);
-                                for (String innerPath : bundleInfo.getClasspath()) {
-                                    IClasspathEntry buildEntry = buildEntry(artifact, rules,
-                                        manifestFile, innerPath);
-                                    if (buildEntry != null) {
-                                        paths.add(buildEntry);
-                                    }
+                    File manifestFile = BundleMetadataIndex.getManifestFile(artifact
+                            .getLocalFile());
+                    try {
+                        BundleMetadata bundleMetadata = bundleMetadataIndex.getMetadata(artifact
+                                .getLocalFile());
+                        if (bundleMetadata == null) {
+                            // no manifest : back to simple classpath
+                            paths.add(buildEntry(artifact));
+                        } else if (bundleMetadata.getClasspath() == null) {
+                            // no inner classpath : a simple entry
+                            paths.add(buildEntry(artifact));
+                        } else {
+                            IAccessRule[] rules = getAccessRules(bundleMetadata);
+                            for (String innerPath : bundleMetadata.getClasspath()) {
+                                IClasspathEntry buildEntry = buildEntry(artifact, rules,
+                                    manifestFile, bundleMetadata, innerPath);
+                                if (buildEntry != null) {
+                                    paths.add(buildEntry);
                                 }
                             }
-                        } catch (IOException e) {
-                            IvyDEMessage.error(
-                                "Unreadable MANIFEST.MF for artifact " + artifact.getName() + ": "
-                                        + manifestFile.getAbsolutePath() + " (" + e.getMessage()
-                                        + ")", e);
-                        } catch (ParseException e) {
-                            IvyDEMessage.error(
-                                "Malformed MANIFEST.MF for artifact " + artifact.getName() + ": "
-                                        + manifestFile.getAbsolutePath() + " (" + e.getMessage()
-                                        + ")", e);
                         }
+                    } catch (IOException e) {
+                        IvyDEMessage.error(
+                            "Unreadable MANIFEST.MF for artifact " + artifact.getName() + ": "
+                                    + manifestFile.getAbsolutePath() + " (" + e.getMessage() + ")",
+                            e);
+                    } catch (ParseException e) {
+                        IvyDEMessage.error(
+                            "Malformed MANIFEST.MF for artifact " + artifact.getName() + ": "
+                                    + manifestFile.getAbsolutePath() + " (" + e.getMessage() + ")",
+                            e);
                     }
                 }
             }
@@ -171,10 +220,125 @@ public class IvyClasspathContainerMapper {
         return paths.toArray(new IClasspathEntry[paths.size()]);
     }
 
+    /**
+     * @return <code>true</code> if the last mapping has left some sources or javadocs to download
+     */
+    public boolean hasPendingAttachments() {
+        return pendingAttachments;
+    }
+
+    /**
+     * Download, concurrently, the source and javadoc artifacts which are not part of the resolved
+     * artifacts but declared by the modules of the classpath artifacts. Each artifact is
+     * downloaded only once, even if attached to several classpath artifacts.
+     *
+     * @param progressMonitor the monitor to cancel the downloads
+     */
+    public void provisionAttachments(IProgressMonitor progressMonitor) {
+        Set<Artifact> toDownload = new LinkedHashSet<>();
+        for (ArtifactDownloadReport adr : all) {
+            if (!adr.getType().equals(WorkspaceResolver.ECLIPSE_PROJECT_TYPE)
+                    && adr.getLocalFile() != null && accept(adr.getArtifact())) {
+                collectAttachments(adr.getArtifact(), sourceArtifactMatcher,
+                    mapping.isMapIfOnlyOneSource(), toDownload);
+                collectAttachments(adr.getArtifact(), javadocArtifactMatcher,
+                    mapping.isMapIfOnlyOneJavadoc(), toDownload);
+            }
+        }
+        toDownload.removeAll(attachments.keySet());
+        if (!toDownload.isEmpty()) {
+            IvyDEMessage.verbose("Downloading " + toDownload.size() + " source and javadoc"
+                    + " artifact(s)");
+            downloadAttachments(toDownload, progressMonitor);
+        }
+        attachmentsProvisioned = true;
+    }
+
+    private void collectAttachments(Artifact artifact, ArtifactMatcher matcher,
+            boolean mapIfOnlyOne, Set<Artifact> toDownload) {
+        if (getIndex(matcher).find(artifact) != null) {
+            // already resolved
+            return;
+        }
+        Artifact[] artifacts = artifactsByDependency.get(artifact.getId().getModuleRevisionId());
+        if (artifacts == null) {
+            return;
+        }
+        Artifact foundArtifact = null;
+        int nbFound = 0;
+        for (Artifact metaArtifact : artifacts) {
+            if (matcher.match(metaArtifact)) {
+                if (matcher.matchName(artifact, metaArtifact.getName())) {
+                    toDownload.add(metaArtifact);
+                }
+                nbFound++;
+                foundArtifact = metaArtifact;
+            }
+        }
+        if (mapIfOnlyOne && nbFound == 1) {
+            toDownload.add(foundArtifact);
+        }
+    }
+
+    private void downloadAttachments(Collection<Artifact> toDownload,
+            IProgressMonitor progressMonitor) {
+        ExecutorService executor = IvyPlugin.getDefault().getWorkerExecutor();
+        List<Future<?>> futures = new ArrayList<>(toDownload.size());
+        try {
+            for (final Artifact metaArtifact : toDownload) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        ivy.pushContext();
+                        try {
+                            attachments.put(metaArtifact, ivy.getResolveEngine().download(
+                                metaArtifact, new DownloadOptions()));
+                        } finally {
+                            ivy.popContext();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                while (true) {
+                    if (progressMonitor != null && progressMonitor.isCanceled()) {
+                        return;
+                    }
+                    try {
+                        future.get(CANCEL_CHECK_PERIOD, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        // check the cancellation again
+                    } catch (ExecutionException e) {
+                        IvyDEMessage.warn("Unable to download a source or javadoc artifact: "
+                                + e.getCause());
+                        break;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        } finally {
+            // on cancel, don't download the remaining attachments
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private ArtifactDownloadReport getAttachment(Artifact metaArtifact) {
+        if (!attachmentsProvisioned) {
+            pendingAttachments = true;
+            return null;
+        }
+        return attachments.get(metaArtifact);
+    }
+
     private IClasspathEntry buildEntry(ArtifactDownloadReport artifact, IAccessRule[] rules,
-            File manifestFile, String innerPath) {
+            File manifestFile, BundleMetadata bundleMetadata, String innerPath) {
         IPath classpathArtifact = getArtifactPath(artifact, "/" + innerPath);
-        if (!classpathArtifact.toFile().exists()) {
+        if (!bundleMetadata.isExisting(innerPath)) {
             // an non existing inner jar is 'just' a broken MANIFEST.MF, which happens sometimes
             // with Eclipse bundles
             IvyDEMessage.warn("The MANIFEST of " + artifact + " (" + manifestFile
@@ -200,14 +364,17 @@ public class IvyClasspathContainerMapper {
             sourcesArtifact);
         IClasspathAttribute[] att = getExtraAttribute(classpathArtifact, javadocArtifact);
 
-        if (sources != null) {
-            IvyDEMessage.debug("Attaching sources " + sources + " to " + classpathArtifact);
-        }
-        if (javadocArtifact != null) {
-            IvyDEMessage.debug("Attaching javadoc " + javadocArtifact + " to " + classpathArtifact);
-        }
-        if (rules != null) {
-            IvyDEMessage.debug("Setting OSGi access rules on  " + classpathArtifact);
+        if (IvyDEMessage.isDebugEnabled()) {
+            if (sources != null) {
+                IvyDEMessage.debug("Attaching sources " + sources + " to " + classpathArtifact);
+            }
+            if (javadocArtifact != null) {
+                IvyDEMessage.debug("Attaching javadoc " + javadocArtifact + " to "
+                        + classpathArtifact);
+            }
+            if (rules != null) {
+                IvyDEMessage.debug("Setting OSGi access rules on  " + classpathArtifact);
+            }
         }
         return JavaCore.newLibraryEntry(classpathArtifact, sources, sourcesRoot, rules, att, false);
     }
@@ -222,19 +389,25 @@ public class IvyClasspathContainerMapper {
         return null;
     }
 
-    private IAccessRule[] getAccessRules(BundleInfo bundleInfo) {
-        if (bundleInfo == null || !classpathSetup.isReadOSGiMetadata()) {
+    private IAccessRule[] getAccessRules(BundleMetadata bundleMetadata) {
+        if (bundleMetadata == null || !classpathSetup.isReadOSGiMetadata()) {
             return null;
         }
-        List<IAccessRule> rules = new ArrayList<>(bundleInfo.getExports().size() + 1);
-        for (ExportPackage exportPackage : bundleInfo.getExports()) {
+        IAccessRule[] accessRules = bundleMetadata.getAccessRules();
+        if (accessRules != null) {
+            return accessRules;
+        }
+        List<IAccessRule> rules = new ArrayList<>(bundleMetadata.getExportedPackages().size() + 1);
+        for (String exportedPackage : bundleMetadata.getExportedPackages()) {
             rules.add(JavaCore.newAccessRule(
-                new Path(exportPackage.getName().replace('.', IPath.SEPARATOR) + "/*"),
+                new Path(exportedPackage.replace('.', IPath.SEPARATOR) + "/*"),
                 IAccessRule.K_ACCESSIBLE));
         }
         rules.add(JavaCore.newAccessRule(new Path("**/*"), IAccessRule.K_NON_ACCESSIBLE
                 | IAccessRule.IGNORE_IF_BETTER));
-        return rules.toArray(new IAccessRule[rules.size()]);
+        accessRules = rules.toArray(new IAccessRule[rules.size()]);
+        bundleMetadata.setAccessRules(accessRules);
+        return accessRules;
     }
 
     private Path getArtifactPath(ArtifactDownloadReport artifact, String innerPath) {
@@ -250,6 +423,11 @@ public class IvyClasspathContainerMapper {
     interface ArtifactMatcher {
         boolean matchName(Artifact artifact, String artifactName);
 
+        /**
+         * @return the names of the artifacts which would match the given one
+         */
+        Collection<String> getNames(Artifact artifact);
+
         boolean match(Artifact a);
 
         String getName();
@@ -259,13 +437,9 @@ public class IvyClasspathContainerMapper {
             boolean mapIfOnlyOne, String innerPath) {
         Artifact artifact = adr.getArtifact();
         monitor.subTask("searching " + matcher.getName() + " for " + artifact);
-        for (ArtifactDownloadReport otherAdr : all) {
-            Artifact otherArtifact = otherAdr.getArtifact();
-            if (otherAdr.getLocalFile() != null && matcher.matchName(artifact, otherArtifact.getName())
-                    && otherArtifact.getModuleRevisionId().equals(artifact.getModuleRevisionId())
-                    && matcher.match(otherArtifact)) {
-                return getArtifactPath(otherAdr, innerPath);
-            }
+        ArtifactDownloadReport otherAdr = getIndex(matcher).find(artifact);
+        if (otherAdr != null) {
+            return getArtifactPath(otherAdr, innerPath);
         }
         // we haven't found source artifact in resolved artifacts,
         // let's look in the module declaring the artifact
@@ -277,10 +451,10 @@ public class IvyClasspathContainerMapper {
             for (Artifact metaArtifact : artifacts) {
                 if (matcher.match(metaArtifact)) {
                     if (matcher.matchName(artifact, metaArtifact.getName())) {
-                        // we've found a matching artifact, let's provision it
-                        ArtifactDownloadReport metaAdr = ivy.getResolveEngine().download(
-                            metaArtifact, new DownloadOptions());
-                        if (metaAdr.getLocalFile() != null && metaAdr.getLocalFile().exists()) {
+                        // we've found a matching artifact, it should have been provisioned
+                        ArtifactDownloadReport metaAdr = getAttachment(metaArtifact);
+                        if (metaAdr != null && metaAdr.getLocalFile() != null
+                                && metaAdr.getLocalFile().exists()) {
                             return getArtifactPath(metaAdr, innerPath);
                         }
                     }
@@ -295,9 +469,9 @@ public class IvyClasspathContainerMapper {
                 // a matching name.
                 if (nbFound == 1) {
                     // If there is only 1 found artifact, it is the winner ;-)
-                    ArtifactDownloadReport metaAdr = ivy.getResolveEngine().download(foundArtifact,
-                        new DownloadOptions());
-                    if (metaAdr.getLocalFile() != null && metaAdr.getLocalFile().exists()) {
+                    ArtifactDownloadReport metaAdr = getAttachment(foundArtifact);
+                    if (metaAdr != null && metaAdr.getLocalFile() != null
+                            && metaAdr.getLocalFile().exists()) {
                         return new Path(metaAdr.getLocalFile().getAbsolutePath());
                     }
                 }
@@ -307,13 +481,26 @@ public class IvyClasspathContainerMapper {
         return null;
     }
 
+    private ArtifactReportIndex getIndex(ArtifactMatcher matcher) {
+        ArtifactReportIndex index = indexes.get(matcher);
+        if (index == null) {
+            index = new ArtifactReportIndex(all, matcher);
+            indexes.put(matcher, index);
+        }
+        return index;
+    }
+
     private final ArtifactMatcher sourceArtifactMatcher = new ArtifactMatcher() {
         public boolean matchName(Artifact artifact, String source) {
-            return isArtifactName(artifact, source, mapping.getSourceSuffixes(), "source");
+            return getNames(artifact).contains(source);
+        }
+
+        public Collection<String> getNames(Artifact artifact) {
+            return getArtifactNames(artifact, mapping.getSourceSuffixes(), "source");
         }
 
         public boolean match(Artifact a) {
-            return mapping.getSourceTypes().contains(a.getType());
+            return mapping.isSourceType(a.getType());
         }
 
         public String getName() {
@@ -323,11 +510,15 @@ public class IvyClasspathContainerMapper {
 
     private final ArtifactMatcher javadocArtifactMatcher = new ArtifactMatcher() {
         public boolean matchName(Artifact artifact, String javadoc) {
-            return isArtifactName(artifact, javadoc, mapping.getJavadocSuffixes(), "javadoc");
+            return getNames(artifact).contains(javadoc);
+        }
+
+        public Collection<String> getNames(Artifact artifact) {
+            return getArtifactNames(artifact, mapping.getJavadocSuffixes(), "javadoc");
         }
 
         public boolean match(Artifact a) {
-            return mapping.getJavadocTypes().contains(a.getType());
+            return mapping.isJavadocType(a.getType());
         }
 
         public String getName() {
@@ -335,23 +526,20 @@ public class IvyClasspathContainerMapper {
         }
     };
 
-    private boolean isArtifactName(Artifact artifact, String name, Collection<String> suffixes,
+    private List<String> getArtifactNames(Artifact artifact, Collection<String> suffixes,
             String type) {
         String artifactNameToMatch = artifact.getExtraAttribute(IVYDE_NS_PREFIX + type);
         if (artifactNameToMatch != null) {
             // some name is specified, it overrides suffix matching
-            return name.equals(artifactNameToMatch);
+            return Collections.singletonList(artifactNameToMatch);
         }
         String jar = artifact.getName();
-        if (name.equals(jar)) {
-            return true;
-        }
+        List<String> names = new ArrayList<>(suffixes.size() + 1);
+        names.add(jar);
         for (String suffix : suffixes) {
-            if (name.equals(jar + suffix)) {
-                return true;
-            }
+            names.add(jar + suffix);
         }
-        return false;
+        return names;
     }
 
     private IClasspathAttribute[] getExtraAttribute(IPath classpathArtifact, IPath javadocArtifact) {
@@ -391,13 +579,9 @@ public class IvyClasspathContainerMapper {
      * @return <code>true</code> if the artifact can be added
      */
     public boolean accept(Artifact artifact) {
-        boolean accepted = classpathSetup.getAcceptedTypes().contains(artifact.getType());
-        if (!accepted && classpathSetup.getAcceptedTypes().size() == 1
-                && classpathSetup.getAcceptedTypes().get(0).equals("*")) {
-            accepted = true;
-        }
-        return accepted && !mapping.getSourceTypes().contains(artifact.getType())
-                && !mapping.getJavadocTypes().contains(artifact.getType());
+        String type = artifact.getType();
+        return classpathSetup.isAcceptedType(type) && !mapping.isSourceType(type)
+                && !mapping.isJavadocType(type);
     }
 
 }
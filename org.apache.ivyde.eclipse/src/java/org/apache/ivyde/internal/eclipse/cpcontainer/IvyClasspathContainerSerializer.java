@@ -17,25 +17,35 @@
  */
 package org.apache.ivyde.internal.eclipse.cpcontainer;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.apache.ivyde.eclipse.cp.IvyClasspathContainer;
 import org.apache.ivyde.eclipse.cp.IvyClasspathContainerHelper;
@@ -44,13 +54,16 @@ import org.apache.ivyde.internal.eclipse.IvyPlugin;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IAccessRule;
 import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
-import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -58,9 +71,40 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+/**
+ * Persists the classpath containers of a project, so that they can be set without any resolve
+ * at startup. The state is saved in a compact binary format, with a header holding a version
+ * number. The state files of the former XML format are still read, and replaced by the binary
+ * ones at the next save.
+ * <p>
+ * The updates of the containers are saved behind, so that a project is written once even if
+ * several of its containers are updated in a row. The pending saves are flushed after a short
+ * delay, when the workspace is saved and when the plugin is stopped.
+ * <p>
+ * At startup, the states of the open projects are read in parallel ahead of the initialization of
+ * the containers, and each project state is kept until all its containers are initialized.
+ */
 public class IvyClasspathContainerSerializer {
 
-    private static final String ROOT = "ivydecontainers";
+    private static final String STATE_EXTENSION = ".cpstate";
+
+    private static final String LEGACY_EXTENSION = ".xml";
+
+    /**
+     * "IVDE"
+     */
+    private static final int MAGIC = 0x49564445;
+
+    private static final int VERSION = 1;
+
+    private static final long SAVE_DELAY = 1000;
+
+    private static final int PRELOAD_CONCURRENCY = 4;
+
+    /**
+     * Delay after which the preloaded states which were not consumed are released
+     */
+    private static final long PRELOAD_RELEASE_DELAY = 60000;
 
     private static final String IVYCP = "ivycp";
 
@@ -94,175 +138,380 @@ public class IvyClasspathContainerSerializer {
 
     private final IvyAttachmentManager ivyAttachmentManager;
 
+    private final Set<IJavaProject> dirtyProjects = new LinkedHashSet<>();
+
+    private final Job saveJob = new Job("IvyDE container states saving") {
+        protected IStatus run(IProgressMonitor monitor) {
+            flush();
+            return Status.OK_STATUS;
+        }
+    };
+
+    private final Map<String, Future<Map<IPath, IvyClasspathContainer>>> preloadedStates =
+            new ConcurrentHashMap<>();
+
+    private final Job releaseJob = new Job("IvyDE preloaded container states release") {
+        protected IStatus run(IProgressMonitor monitor) {
+            preloadedStates.clear();
+            return Status.OK_STATUS;
+        }
+    };
+
     public IvyClasspathContainerSerializer(File containersStateDir,
             IvyAttachmentManager ivyAttachmentManager) {
         this.containersStateDir = containersStateDir;
         this.ivyAttachmentManager = ivyAttachmentManager;
+        saveJob.setSystem(true);
+        releaseJob.setSystem(true);
+    }
+
+    /**
+     * Start reading in parallel the saved states of the open projects, so that they are ready when
+     * the JDT initializes the containers.
+     */
+    public void preloadStates() {
+        File[] files = containersStateDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (File file : files) {
+            String fileName = file.getName();
+            if (fileName.endsWith(STATE_EXTENSION)) {
+                names.add(fileName.substring(0, fileName.length() - STATE_EXTENSION.length()));
+            } else if (fileName.endsWith(LEGACY_EXTENSION)) {
+                names.add(fileName.substring(0, fileName.length() - LEGACY_EXTENSION.length()));
+            }
+        }
+        final List<IJavaProject> projects = new ArrayList<>();
+        for (String name : names) {
+            IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+            if (project.isOpen()) {
+                projects.add(JavaCore.create(project));
+            }
+        }
+        if (projects.isEmpty()) {
+            return;
+        }
+        IvyDEMessage.verbose("Preloading the state of the containers of " + projects.size()
+                + " projects");
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(PRELOAD_CONCURRENCY, projects.size()), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "IvyDE container state loading #"
+                            + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        for (final IJavaProject project : projects) {
+            preloadedStates.put(project.getProject().getName(),
+                executor.submit(new Callable<Map<IPath, IvyClasspathContainer>>() {
+                    public Map<IPath, IvyClasspathContainer> call() {
+                        return read(project);
+                    }
+                }));
+        }
+        // the submitted reads are still executed
+        executor.shutdown();
+        releaseJob.schedule(PRELOAD_RELEASE_DELAY);
     }
 
-    public void save(IJavaProject project) {
+    /**
+     * Get the saved state of a container. The preloaded state of the project is used if any, and it
+     * is released once all its containers have been read.
+     *
+     * @param project the project of the container
+     * @param containerPath the path of the container
+     * @return the container, <code>null</code> if there was none saved
+     */
+    public IvyClasspathContainer read(IJavaProject project, IPath containerPath) {
+        String name = project.getProject().getName();
+        Future<Map<IPath, IvyClasspathContainer>> preloaded = preloadedStates.get(name);
+        if (preloaded == null) {
+            Map<IPath, IvyClasspathContainer> containers = read(project);
+            return containers == null ? null : containers.get(containerPath);
+        }
+        Map<IPath, IvyClasspathContainer> containers;
+        try {
+            containers = preloaded.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            preloadedStates.remove(name, preloaded);
+            IvyPlugin.logWarn("IvyDE container states of the project " + name
+                    + " could not be read", e.getCause());
+            return null;
+        }
+        if (containers == null) {
+            preloadedStates.remove(name, preloaded);
+            return null;
+        }
+        synchronized (containers) {
+            IvyClasspathContainer container = containers.remove(containerPath);
+            if (containers.isEmpty()) {
+                preloadedStates.remove(name, preloaded);
+            }
+            return container;
+        }
+    }
+
+    /**
+     * Mark the state of the containers of a project as to be saved. The save actually happens
+     * after a short delay, once for all the updates of the project which occurred meanwhile.
+     *
+     * @param project the project to save the containers of
+     */
+    public void scheduleSave(IJavaProject project) {
+        synchronized (dirtyProjects) {
+            dirtyProjects.add(project);
+        }
+        saveJob.schedule(SAVE_DELAY);
+    }
+
+    /**
+     * Save the projects which have some pending updates.
+     */
+    public void flush() {
+        List<IJavaProject> projects;
+        synchronized (dirtyProjects) {
+            projects = new ArrayList<>(dirtyProjects);
+            dirtyProjects.clear();
+        }
+        for (IJavaProject project : projects) {
+            if (project.getProject().exists()) {
+                save(project);
+            }
+        }
+    }
+
+    public synchronized void save(IJavaProject project) {
         List<IvyClasspathContainer> containers = IvyClasspathContainerHelper
                 .getContainers(project);
-        File file = new File(containersStateDir, project.getProject().getName() + ".xml");
-        IvyDEMessage.verbose("Saving the state of the containers of the project "
-                + project.getProject().getName() + " into " + file);
-        try (FileOutputStream out = new FileOutputStream(file)) {
-            write(out, containers);
+        String name = project.getProject().getName();
+        // the preloaded state is obsolete
+        preloadedStates.remove(name);
+        File file = new File(containersStateDir, name + STATE_EXTENSION);
+        IvyDEMessage.verbose("Saving the state of the containers of the project " + name
+                + " into " + file);
+        File tmpFile = new File(containersStateDir, name + STATE_EXTENSION + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmpFile)))) {
+                write(out, containers);
+            }
+            // an interrupted save should never leave a truncated state behind
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            // the state has been migrated
+            new File(containersStateDir, name + LEGACY_EXTENSION).delete();
         } catch (IOException ioe) {
-            IvyPlugin.logWarn("IvyDE container states of the project "
-                    + project.getProject().getName() + " could not be saved", ioe);
+            tmpFile.delete();
+            IvyPlugin.logWarn("IvyDE container states of the project " + name
+                    + " could not be saved", ioe);
         }
     }
 
     public Map<IPath, IvyClasspathContainer> read(IJavaProject project) {
-        File file = new File(containersStateDir, project.getProject().getName() + ".xml");
-        IvyDEMessage.verbose("Loading the state of the containers of the project "
-                + project.getProject().getName() + " from " + file);
-        if (!file.exists()) {
-            IvyPlugin.logWarn("IvyDE container states of the project "
-                    + project.getProject().getName() + " doesn't exist.");
+        String name = project.getProject().getName();
+        File file = new File(containersStateDir, name + STATE_EXTENSION);
+        if (file.exists()) {
+            IvyDEMessage.verbose("Loading the state of the containers of the project " + name
+                    + " from " + file);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file)))) {
+                return read(in);
+            } catch (IOException ioe) {
+                IvyPlugin.logWarn("IvyDE container states of the project " + name
+                        + " could not be read", ioe);
+                return null;
+            }
+        }
+        File legacyFile = new File(containersStateDir, name + LEGACY_EXTENSION);
+        if (!legacyFile.exists()) {
+            IvyPlugin.logWarn("IvyDE container states of the project " + name
+                    + " doesn't exist.");
             return null;
         }
-        try (FileInputStream in = new FileInputStream(file)) {
-            return read(in);
+        IvyDEMessage.verbose("Loading the state of the containers of the project " + name
+                + " from the former format " + legacyFile);
+        try (FileInputStream in = new FileInputStream(legacyFile)) {
+            return readLegacy(in);
         } catch (IOException | SAXException ioe) {
-            IvyPlugin.logWarn("IvyDE container states of the project "
-                    + project.getProject().getName() + " could not be read", ioe);
+            IvyPlugin.logWarn("IvyDE container states of the project " + name
+                    + " could not be read", ioe);
             return null;
         }
     }
 
-    private void write(OutputStream out, List<IvyClasspathContainer> containers)
+    private void write(DataOutputStream out, List<IvyClasspathContainer> containers)
             throws IOException {
-        try {
-            StreamResult result = new StreamResult(out);
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.newDocument();
-
-            Node root = document.createElement(ROOT);
-            document.appendChild(root);
-
-            for (IvyClasspathContainer container : containers) {
-                IvyClasspathContainerImpl ivycp = (IvyClasspathContainerImpl) container;
-
-                Node node = document.createElement(IVYCP);
-                root.appendChild(node);
-                NamedNodeMap attributes = node.getAttributes();
-                Attr attr = document.createAttribute(PATH);
-                attr.setValue(ivycp.getPath().toString());
-                attributes.setNamedItem(attr);
-
-                attr = document.createAttribute(PROJECT);
-                attr.setValue(ivycp.getConf().getProject().getName());
-                attributes.setNamedItem(attr);
-
-                writeCpEntries(ivycp, document, node, ivycp.getClasspathEntries());
-
-                writeCpAttr(ivycp, document, node, ivycp.getConf().getAttributes());
-            }
-
-            Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-            DOMSource source = new DOMSource(document);
-
-            transformer.transform(source, result);
-
-        } catch (ParserConfigurationException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        } catch (TransformerException e) {
-            if (e.getException() instanceof IOException) {
-                throw (IOException) e.getException();
-            }
-            throw new IOException(e.getMessage(), e);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(containers.size());
+        for (IvyClasspathContainer container : containers) {
+            IvyClasspathContainerImpl ivycp = (IvyClasspathContainerImpl) container;
+            out.writeUTF(ivycp.getPath().toString());
+            out.writeUTF(ivycp.getConf().getProject().getName());
+            writeCpEntries(out, ivycp.getClasspathEntries());
+            writeCpAttrs(out, ivycp.getConf().getAttributes());
         }
     }
 
-    private void writeCpEntries(IvyClasspathContainerImpl ivycp, Document document, Node node,
-            IClasspathEntry[] classpathEntries) {
+    /**
+     * Write some classpath entries. A <code>null</code> array is written as a negative count, as
+     * are the <code>null</code> arrays of the access rules and of the attributes.
+     */
+    void writeCpEntries(DataOutputStream out, IClasspathEntry[] classpathEntries)
+            throws IOException {
         if (classpathEntries == null) {
+            out.writeInt(-1);
             return;
         }
-
-        Node cpEntriesNode = document.createElement(CPENTRIES);
-        node.appendChild(cpEntriesNode);
-
+        out.writeInt(classpathEntries.length);
         for (IClasspathEntry classpathEntry : classpathEntries) {
-            Node cpEntryNode = document.createElement(CPENTRY);
-            cpEntriesNode.appendChild(cpEntryNode);
-
-            int kind = classpathEntry.getEntryKind();
-            NamedNodeMap attributes = cpEntryNode.getAttributes();
-            Attr attr = document.createAttribute(KIND);
-            attr.setValue(Integer.toString(kind));
-            attributes.setNamedItem(attr);
-
-            attr = document.createAttribute(PATH);
-            attr.setValue(classpathEntry.getPath().toString());
-            attributes.setNamedItem(attr);
-
+            out.writeInt(classpathEntry.getEntryKind());
+            out.writeUTF(classpathEntry.getPath().toString());
             IPath source = classpathEntry.getSourceAttachmentPath();
+            out.writeBoolean(source != null);
             if (source != null) {
-                attr = document.createAttribute(SOURCE);
-                attr.setValue(source.toString());
-                attributes.setNamedItem(attr);
+                out.writeUTF(source.toString());
             }
-
-            writeAccessRules(ivycp, document, cpEntryNode, classpathEntry.getAccessRules());
-
-            writeCpAttr(ivycp, document, cpEntryNode, classpathEntry.getExtraAttributes());
+            writeAccessRules(out, classpathEntry.getAccessRules());
+            writeCpAttrs(out, classpathEntry.getExtraAttributes());
         }
     }
 
-    private void writeAccessRules(IvyClasspathContainerImpl ivycp, Document document, Node cpEntryNode,
-            IAccessRule[] accessRules) {
+    private void writeAccessRules(DataOutputStream out, IAccessRule[] accessRules)
+            throws IOException {
         if (accessRules == null) {
+            out.writeInt(-1);
             return;
         }
-        Node accessRulesNode = document.createElement(ACCESS_RULES);
-        cpEntryNode.appendChild(accessRulesNode);
-
+        out.writeInt(accessRules.length);
         for (IAccessRule accessRule : accessRules) {
-            Node accessRuleNode = document.createElement(RULE);
-            accessRulesNode.appendChild(accessRuleNode);
-
-            NamedNodeMap attributes = accessRuleNode.getAttributes();
-            Attr attr = document.createAttribute(PATTERN);
-            attr.setValue(accessRule.getPattern().toString());
-            attributes.setNamedItem(attr);
-
-            attr = document.createAttribute(KIND);
-            attr.setValue(Integer.toString(accessRule.getKind()));
-            attributes.setNamedItem(attr);
-
+            out.writeUTF(accessRule.getPattern().toString());
+            out.writeInt(accessRule.getKind());
         }
     }
 
-    private void writeCpAttr(IvyClasspathContainerImpl ivycp, Document document, Node node,
-            IClasspathAttribute[] attrs) {
+    private void writeCpAttrs(DataOutputStream out, IClasspathAttribute[] attrs)
+            throws IOException {
         if (attrs == null) {
+            out.writeInt(-1);
             return;
         }
-        Node cpAttrsNode = document.createElement(CPATTRS);
-        node.appendChild(cpAttrsNode);
-
+        out.writeInt(attrs.length);
         for (IClasspathAttribute attribute : attrs) {
-            Node attrNode = document.createElement(ATTR);
-            cpAttrsNode.appendChild(attrNode);
+            out.writeUTF(attribute.getName());
+            out.writeUTF(attribute.getValue());
+        }
+    }
 
-            NamedNodeMap attributes = attrNode.getAttributes();
-            Attr attr = document.createAttribute(NAME);
-            attr.setValue(attribute.getName());
-            attributes.setNamedItem(attr);
+    private Map<IPath, IvyClasspathContainer> read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Incorrect saved classpath: not an IvyDE container state");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Incorrect saved classpath: unsupported version " + version);
+        }
+        int count = in.readInt();
+        Map<IPath, IvyClasspathContainer> containers = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            IPath path = new Path(in.readUTF());
+            IProject p = ResourcesPlugin.getWorkspace().getRoot().getProject(in.readUTF());
+            IJavaProject project = JavaCore.create(p);
+            IClasspathEntry[] cpEntries = readCpEntries(in);
+            if (cpEntries == null) {
+                cpEntries = new IClasspathEntry[0];
+            }
+            IClasspathAttribute[] cpAttributes = readCpAttrs(in);
+            containers.put(path, new IvyClasspathContainerImpl(project, path, cpEntries,
+                    cpAttributes));
+        }
+        return containers;
+    }
 
-            attr = document.createAttribute(VALUE);
-            attr.setValue(attribute.getValue());
-            attributes.setNamedItem(attr);
+    IClasspathEntry[] readCpEntries(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<IClasspathEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int kind = in.readInt();
+            IPath path = new Path(in.readUTF());
+            IPath sourcePath = null;
+            if (in.readBoolean()) {
+                sourcePath = new Path(in.readUTF());
+            }
+            IAccessRule[] accessRules = readAccessRules(in);
+            IClasspathAttribute[] cpAttrs = readCpAttrs(in);
+            IClasspathEntry cpEntry = buildCpEntry(kind, path, sourcePath, accessRules, cpAttrs);
+            if (cpEntry != null) {
+                entries.add(cpEntry);
+            }
         }
+        return entries.toArray(new IClasspathEntry[entries.size()]);
     }
 
-    public Map<IPath, IvyClasspathContainer> read(InputStream in) throws IOException,
+    private IAccessRule[] readAccessRules(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        IAccessRule[] rules = new IAccessRule[count];
+        for (int i = 0; i < count; i++) {
+            IPath pattern = new Path(in.readUTF());
+            rules[i] = JavaCore.newAccessRule(pattern, in.readInt());
+        }
+        return rules;
+    }
+
+    private IClasspathAttribute[] readCpAttrs(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        IClasspathAttribute[] attrs = new IClasspathAttribute[count];
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            attrs[i] = JavaCore.newClasspathAttribute(name, in.readUTF());
+        }
+        return attrs;
+    }
+
+    /**
+     * @return the entry, <code>null</code> if its kind is not supported
+     */
+    IClasspathEntry buildCpEntry(int kind, IPath path, IPath sourcePath,
+            IAccessRule[] accessRules, IClasspathAttribute[] cpAttrs) {
+        switch (kind) {
+            case IClasspathEntry.CPE_PROJECT:
+                return JavaCore.newProjectEntry(path, accessRules, true, cpAttrs, true);
+            case IClasspathEntry.CPE_LIBRARY:
+                IPath sources = ivyAttachmentManager.getSourceAttachment(path, sourcePath);
+                IPath sourcesRoot = ivyAttachmentManager.getSourceAttachmentRoot(path, sourcePath);
+                return JavaCore.newLibraryEntry(path, sources, sourcesRoot, accessRules, cpAttrs,
+                    false);
+            default:
+                return null;
+        }
+    }
+
+    /*
+     * Reader of the former XML format
+     */
+
+    private Map<IPath, IvyClasspathContainer> readLegacy(InputStream in) throws IOException,
             SAXException {
         try {
             InputSource source = new InputSource(in);
@@ -310,7 +559,7 @@ public class IvyClasspathContainerSerializer {
 
     }
 
-    private IClasspathEntry[] readCpEntries(Node cpEntries) throws IOException {
+    IClasspathEntry[] readCpEntries(Node cpEntries) throws IOException {
         List<IClasspathEntry> entries = new ArrayList<>();
         NodeList children = cpEntries.getChildNodes();
         for (int i = 0; i < children.getLength(); i++) {
@@ -347,22 +596,7 @@ public class IvyClasspathContainerSerializer {
             }
         }
 
-        IClasspathEntry entry;
-        switch (kind) {
-            case IClasspathEntry.CPE_PROJECT:
-                entry = JavaCore.newProjectEntry(path, accessRules, true, cpAttrs, true);
-                break;
-            case IClasspathEntry.CPE_LIBRARY:
-                IPath sources = ivyAttachmentManager.getSourceAttachment(path, sourcePath);
-                IPath sourcesRoot = ivyAttachmentManager.getSourceAttachmentRoot(path, sourcePath);
-                entry = JavaCore.newLibraryEntry(path, sources, sourcesRoot, accessRules, cpAttrs,
-                    false);
-                break;
-            default:
-                return null;
-        }
-
-        return entry;
+        return buildCpEntry(kind, path, sourcePath, accessRules, cpAttrs);
     }
 
     private IAccessRule[] readAccessRules(Node accessRulesNode) throws IOException {
@@ -74,6 +74,11 @@ public class IvyClasspathContainerState extends CachedIvy {
         return conf.getInheritedClasspathSetup().isTransitiveResolve();
     }
 
+    public String getId() {
+        IProject project = getProject();
+        return (project == null ? "" : project.getName()) + ":" + conf.getPath();
+    }
+
     public String toString() {
         return conf.toString();
     }
@@ -20,9 +20,7 @@ package org.apache.ivyde.internal.eclipse.cpcontainer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-import org.apache.ivyde.eclipse.cp.IvyClasspathContainer;
 import org.apache.ivyde.eclipse.cp.IvyClasspathContainerHelper;
 import org.apache.ivyde.internal.eclipse.IvyDEMessage;
 import org.apache.ivyde.internal.eclipse.IvyPlugin;
@@ -97,12 +95,11 @@ public class IvyClasspathInitializer extends ClasspathContainerInitializer {
                         // try what the IvyDE plugin saved
                         IvyClasspathContainerSerializer serializer = IvyPlugin.getDefault()
                                 .getIvyClasspathContainerSerializer();
-                        Map<IPath, IvyClasspathContainer> containers = serializer.read(project);
-                        if (containers != null) {
-                            IvyDEMessage.debug("Found serialized containers");
-                            ivycp = (IvyClasspathContainerImpl) containers.get(containerPath);
-                        }
-                        if (ivycp == null) {
+                        ivycp = (IvyClasspathContainerImpl) serializer.read(project,
+                            containerPath);
+                        if (ivycp != null) {
+                            IvyDEMessage.debug("Found the serialized container");
+                        } else {
                             IvyDEMessage.debug("No serialized containers match the expected container path");
                             // still bad luck or just a new classpath container
                             ivycp = new IvyClasspathContainerImpl(project, containerPath,
@@ -151,8 +148,10 @@ public class IvyClasspathInitializer extends ClasspathContainerInitializer {
                 } else {
                     IvyDEMessage.info("Scheduling a resolve of the container");
                 }
-                // now refresh the container to be synchronized with the ivy.xml
-                ivycp.launchResolve(refresh, null);
+                // now refresh the container to be synchronized with the ivy.xml, the containers
+                // initialized at startup being resolved by priority
+                IvyPlugin.getDefault().getStartupResolveScheduler().launchResolve(ivycp,
+                    refresh);
             } catch (Exception ex) {
                 IStatus status = new Status(IStatus.ERROR, IvyPlugin.ID, IStatus.OK,
                         "Unable to set container for " + containerPath.toString(), ex);
@@ -17,6 +17,17 @@
  */
 package org.apache.ivyde.internal.eclipse.cpcontainer;
 
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivyde.eclipse.IvyDEException;
+import org.apache.ivyde.internal.eclipse.IvyDEMessage;
+import org.apache.ivyde.internal.eclipse.IvyPool;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathEntry;
+
 /**
  * Eclipse classpath container that will contain the ivy resolved entries.
  */
@@ -36,9 +47,56 @@ public class IvyClasspathResolver extends ClasspathEntriesResolver {
      */
     public void postBatchResolve() {
         if (getClasspathEntries() != null) {
-            ivycp.setResolveReport(getResolveReport());
-            ivycp.updateClasspathEntries(getClasspathEntries());
+            ivycp.setResolveResult(getResolveReport(), getClasspathEntries());
+            IvyClasspathContainerMapper mapper = getPendingAttachmentsMapper();
+            if (mapper != null) {
+                scheduleAttachmentDownload(mapper, getResolveReport());
+            }
         }
     }
 
+    /*
+     * The classpath is already set, download the missing sources and javadocs and then set it
+     * again with them attached, unless the container has been resolved again meanwhile. As a
+     * resolve, the download borrows its own Ivy instance.
+     */
+    private void scheduleAttachmentDownload(final IvyClasspathContainerMapper mapper,
+            final ResolveReport report) {
+        Job job = new Job("IvyDE attachment download for " + ivycp.getDescription()) {
+            protected IStatus run(IProgressMonitor monitor) {
+                IvyPool.PooledIvy pooledIvy = ivycp.getState().getPooledIvy();
+                if (pooledIvy == null) {
+                    IvyDEMessage.verbose("The container " + ivycp
+                            + " has been reset, its attachments are not downloaded");
+                    return Status.OK_STATUS;
+                }
+                Ivy ivy;
+                try {
+                    ivy = pooledIvy.borrow();
+                } catch (IvyDEException e) {
+                    return e.asStatus(IStatus.ERROR, "Failed to configure Ivy to download the"
+                            + " attachments of " + ivycp);
+                }
+                IClasspathEntry[] entries;
+                try {
+                    mapper.setContext(ivy, monitor);
+                    mapper.provisionAttachments(monitor);
+                    if (monitor.isCanceled()) {
+                        return Status.CANCEL_STATUS;
+                    }
+                    entries = mapper.map(true);
+                } finally {
+                    pooledIvy.giveBack(ivy);
+                }
+                if (!ivycp.updateAttachedClasspathEntries(report, entries)) {
+                    IvyDEMessage.verbose("The container " + ivycp
+                            + " has been resolved again, its attachments are not updated");
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setPriority(Job.DECORATE);
+        job.schedule();
+    }
+
 }
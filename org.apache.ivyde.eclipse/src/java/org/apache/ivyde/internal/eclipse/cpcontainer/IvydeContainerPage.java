@@ -297,7 +297,7 @@ public class IvydeContainerPage extends NewElementWizardPage implements IClasspa
                 try {
                     conf.setSettingsProjectSpecific(isProjectSpecific());
                     conf.setIvySettingsSetup(getSettingsEditor().getIvySettingsSetup());
-                    state.setIvySettingsLastModified(-1);
+                    state.reloadSettings();
                     state.getIvy();
                     getSettingsEditor().setSettingsError(null);
                     checkIvyXmlPath();
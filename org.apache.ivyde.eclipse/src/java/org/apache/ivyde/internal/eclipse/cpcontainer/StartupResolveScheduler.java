@@ -0,0 +1,287 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ivyde.internal.eclipse.IvyDEMessage;
+import org.apache.ivyde.internal.eclipse.IvyPlugin;
+import org.apache.ivyde.internal.eclipse.resolve.ResolveRequest;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * Schedules the resolves of the containers initialized at startup. The containers are set with
+ * their persisted entries by the initializer, and then resolved by stages: first the containers of
+ * the projects opened in an editor, then the ones of the projects referencing them, then the rest.
+ * The resolves are launched by small batches, with a pause in between so that they don't hog the
+ * workspace, and the job can be canceled, leaving the remaining containers with their persisted
+ * entries.
+ * <p>
+ * Once the startup resolves are done, the containers initialized later are resolved right away.
+ */
+public class StartupResolveScheduler extends Job {
+
+    private static final String[] STAGE_NAMES = new String[] {"projects opened in an editor",
+            "projects referencing them", "other projects"};
+
+    private static final int STAGE_EDITORS = 0;
+
+    private static final int STAGE_DEPENDENTS = 1;
+
+    private static final int STAGE_OTHERS = 2;
+
+    /**
+     * Delay to let the JDT initialize the containers before launching the first resolves
+     */
+    private static final long COLLECT_DELAY = 1000;
+
+    private static final int BATCH_SIZE = 10;
+
+    private static final long PAUSE_BETWEEN_BATCHES = 500;
+
+    private static final class StartupResolve {
+
+        private final IvyClasspathContainerImpl ivycp;
+
+        private final boolean usePreviousResolveIfExist;
+
+        private int stage;
+
+        private StartupResolve(IvyClasspathContainerImpl ivycp,
+                boolean usePreviousResolveIfExist) {
+            this.ivycp = ivycp;
+            this.usePreviousResolveIfExist = usePreviousResolveIfExist;
+        }
+    }
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final List<StartupResolve> queue = new ArrayList<>();
+
+    private boolean running = false;
+
+    private boolean done = false;
+
+    private boolean firstBatchReported = false;
+
+    private int resolvedCount = 0;
+
+    public StartupResolveScheduler() {
+        super("IvyDE startup resolve");
+        setUser(false);
+        addJobChangeListener(new JobChangeAdapter() {
+            public void done(IJobChangeEvent event) {
+                // canceled while running or while waiting for the next batch
+                if (event.getResult().getSeverity() == IStatus.CANCEL) {
+                    abandon();
+                }
+            }
+        });
+    }
+
+    /**
+     * Resolve a container which has just been initialized.
+     *
+     * @param ivycp the container
+     * @param usePreviousResolveIfExist <code>true</code> to only refresh the container
+     */
+    public void launchResolve(IvyClasspathContainerImpl ivycp,
+            boolean usePreviousResolveIfExist) {
+        synchronized (queue) {
+            if (!done) {
+                queue.add(new StartupResolve(ivycp, usePreviousResolveIfExist));
+                if (queue.size() == 1 && !running) {
+                    schedule(COLLECT_DELAY);
+                }
+                return;
+            }
+        }
+        ivycp.launchResolve(usePreviousResolveIfExist, null);
+    }
+
+    protected IStatus run(IProgressMonitor monitor) {
+        synchronized (queue) {
+            running = true;
+        }
+        IStatus status = Status.CANCEL_STATUS;
+        try {
+            status = runBatch(monitor);
+            return status;
+        } finally {
+            synchronized (queue) {
+                running = false;
+                if (status.getSeverity() != IStatus.CANCEL && !queue.isEmpty()) {
+                    schedule(PAUSE_BETWEEN_BATCHES);
+                }
+            }
+        }
+    }
+
+    private void abandon() {
+        int remaining;
+        synchronized (queue) {
+            if (done) {
+                return;
+            }
+            remaining = queue.size();
+            queue.clear();
+            done = true;
+        }
+        IvyDEMessage.warn("Startup resolve canceled, " + remaining + " container(s) left with"
+                + " their persisted entries");
+    }
+
+    private IStatus runBatch(IProgressMonitor monitor) {
+        // the editors may have changed since the last batch
+        Set<IProject> editorProjects = getEditorProjects();
+        Set<IProject> dependentProjects = new HashSet<>();
+        for (IProject project : editorProjects) {
+            if (project.isAccessible()) {
+                for (IProject referencing : project.getReferencingProjects()) {
+                    dependentProjects.add(referencing);
+                }
+            }
+        }
+
+        List<StartupResolve> batch = new ArrayList<>();
+        int stage;
+        synchronized (queue) {
+            stage = STAGE_OTHERS;
+            for (StartupResolve resolve : queue) {
+                IProject project = resolve.ivycp.getConf().getProject();
+                if (editorProjects.contains(project)) {
+                    resolve.stage = STAGE_EDITORS;
+                } else if (dependentProjects.contains(project)) {
+                    resolve.stage = STAGE_DEPENDENTS;
+                } else {
+                    resolve.stage = STAGE_OTHERS;
+                }
+                stage = Math.min(stage, resolve.stage);
+            }
+            for (StartupResolve resolve : queue) {
+                if (resolve.stage == stage && batch.size() < BATCH_SIZE) {
+                    batch.add(resolve);
+                }
+            }
+            queue.removeAll(batch);
+            if (batch.isEmpty()) {
+                done = true;
+                return Status.OK_STATUS;
+            }
+        }
+
+        IvyDEMessage.info("Startup resolve of " + batch.size() + " container(s) of the "
+                + STAGE_NAMES[stage]);
+        List<ResolveRequest> requests = new ArrayList<>(batch.size());
+        for (StartupResolve resolve : batch) {
+            requests.add(resolve.ivycp.createResolveRequest(resolve.usePreviousResolveIfExist));
+        }
+
+        IStatus status;
+        // resolve under the same rule as the resolve job
+        ISchedulingRule rule = ResourcesPlugin.getWorkspace().getRuleFactory().buildRule();
+        try {
+            getJobManager().beginRule(rule, monitor);
+            try {
+                status = IvyPlugin.getDefault().getIvyResolveJob()
+                        .launchRequests(requests, monitor);
+            } finally {
+                getJobManager().endRule(rule);
+            }
+        } catch (OperationCanceledException e) {
+            status = Status.CANCEL_STATUS;
+        }
+        if (status.getSeverity() == IStatus.CANCEL || monitor.isCanceled()) {
+            return Status.CANCEL_STATUS;
+        }
+
+        resolvedCount += batch.size();
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (!firstBatchReported) {
+            firstBatchReported = true;
+            IvyDEMessage.info("Startup resolve: first usable classpath " + elapsed
+                    + "ms after the start of IvyDE");
+        }
+        boolean last;
+        synchronized (queue) {
+            last = queue.isEmpty();
+            if (last) {
+                done = true;
+            }
+        }
+        if (last) {
+            IvyDEMessage.info("Startup resolve: " + resolvedCount + " container(s) resolved "
+                    + elapsed + "ms after the start of IvyDE");
+        }
+        return status;
+    }
+
+    /**
+     * @return the projects of the resources opened in an editor
+     */
+    private Set<IProject> getEditorProjects() {
+        final Set<IProject> projects = new HashSet<>();
+        if (!PlatformUI.isWorkbenchRunning()) {
+            return projects;
+        }
+        Display display = PlatformUI.getWorkbench().getDisplay();
+        if (display.isDisposed()) {
+            return projects;
+        }
+        display.syncExec(new Runnable() {
+            public void run() {
+                for (IWorkbenchWindow window : PlatformUI.getWorkbench().getWorkbenchWindows()) {
+                    for (IWorkbenchPage page : window.getPages()) {
+                        for (IEditorReference editor : page.getEditorReferences()) {
+                            try {
+                                IEditorInput input = editor.getEditorInput();
+                                IResource resource = IvyPlugin.adapt(input, IResource.class);
+                                if (resource != null) {
+                                    projects.add(resource.getProject());
+                                }
+                            } catch (PartInitException e) {
+                                // the editor cannot be restored, ignore it
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return projects;
+    }
+}
@@ -116,4 +116,17 @@ public abstract class AbstractIvyDEHandler extends AbstractHandler {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Launch a resolve requested by the end user, which the incremental mode never skips.
+     */
+    static void launchUserResolve(IvyClasspathContainer container,
+            boolean usePreviousResolveIfExist) {
+        if (container instanceof IvyClasspathContainerImpl) {
+            ((IvyClasspathContainerImpl) container).launchResolve(usePreviousResolveIfExist, true,
+                null);
+        } else {
+            container.launchResolve(usePreviousResolveIfExist, null);
+        }
+    }
+
 }
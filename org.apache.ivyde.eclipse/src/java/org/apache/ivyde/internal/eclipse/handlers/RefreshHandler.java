@@ -25,7 +25,7 @@ public class RefreshHandler extends AbstractIvyDEHandler {
     public static final String COMMAND_ID = "org.apache.ivyde.commands.refresh";
 
     protected void handleContainer(IProject project, IvyClasspathContainer container) {
-        container.launchResolve(true, null);
+        launchUserResolve(container, true);
     }
 
 }
@@ -42,7 +42,7 @@ public class ResolveAllHandler extends AbstractHandler {
 
         for (IJavaProject project : projects) {
             for (IvyClasspathContainer container : IvyClasspathContainerHelper.getContainers(project)) {
-                container.launchResolve(false, null);
+                AbstractIvyDEHandler.launchUserResolve(container, false);
             }
         }
 
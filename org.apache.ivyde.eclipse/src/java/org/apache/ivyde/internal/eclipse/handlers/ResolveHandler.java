@@ -25,7 +25,7 @@ public class ResolveHandler extends AbstractIvyDEHandler {
     public static final String COMMAND_ID = "org.apache.ivyde.commands.resolve";
 
     protected void handleContainer(IProject project, IvyClasspathContainer container) {
-        container.launchResolve(false, null);
+        launchUserResolve(container, false);
     }
 
 }
@@ -0,0 +1,740 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.resolve;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.ivyde.eclipse.cp.RetrieveSetup;
+import org.apache.ivyde.internal.eclipse.IvyDEMessage;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Copies the retrieved artifacts into the retrieve folder, skipping the files which are already up
+ * to date. A manifest of the files of every retrieve folder is kept, with the size and the
+ * timestamp of the copied file and of its source, and when needed a digest of its content: a file
+ * is copied again only if its source or itself has changed, and if the content actually differs.
+ * The files are copied concurrently, and a synchronized retrieve deletes the files of the folder
+ * which are not retrieved anymore.
+ * <p>
+ * Instead of copies, the retrieved files can be hard links to the files of the cache, or to the
+ * files of a store where they are kept by digest, so that the projects retrieving the same
+ * artifacts share their content. If a link cannot be made, typically because the retrieve folder
+ * is on another file system, the file is copied. A retrieved file is always deleted before being
+ * retrieved again, and deleting a link never alters the file it is linked to.
+ * <p>
+ * The permissions of the links are left untouched, as they are the ones of the linked file of the
+ * cache or of the store. A link which has been written through is detected by its stamp and linked
+ * again: the modified file of the store is dropped so that it is stored again from the cache,
+ * while a modified file of the cache is reported, as only Ivy can download it again.
+ */
+public class IncrementalRetriever {
+
+    /**
+     * The statistics of a retrieve
+     */
+    public static final class RetrieveStats {
+
+        private int copiedFiles;
+
+        private int linkedFiles;
+
+        private long copiedBytes;
+
+        private int skippedFiles;
+
+        private long skippedBytes;
+
+        private int deletedFiles;
+
+        private final Set<File> changedFiles = new LinkedHashSet<>();
+
+        private final Set<File> changedFolders = new LinkedHashSet<>();
+
+        public int getCopiedFiles() {
+            return copiedFiles;
+        }
+
+        public int getLinkedFiles() {
+            return linkedFiles;
+        }
+
+        public long getCopiedBytes() {
+            return copiedBytes;
+        }
+
+        public int getSkippedFiles() {
+            return skippedFiles;
+        }
+
+        public long getSkippedBytes() {
+            return skippedBytes;
+        }
+
+        public int getDeletedFiles() {
+            return deletedFiles;
+        }
+
+        /**
+         * @return the files which have been retrieved or deleted, except the ones in a changed
+         *         folder
+         */
+        public Set<File> getChangedFiles() {
+            return changedFiles;
+        }
+
+        /**
+         * @return the folders which have been created or deleted, with all their content
+         */
+        public Set<File> getChangedFolders() {
+            return changedFolders;
+        }
+
+        public String toString() {
+            return copiedFiles + " file(s) copied (" + copiedBytes + " bytes), " + linkedFiles
+                    + " file(s) linked, " + skippedFiles
+                    + " file(s) up to date (" + skippedBytes + " bytes), " + deletedFiles
+                    + " file(s) deleted";
+        }
+    }
+
+    /**
+     * The state of a retrieved file when it was last checked
+     */
+    private static final class ManifestEntry {
+
+        private final String sourceStamp;
+
+        private final String stamp;
+
+        private final String digest;
+
+        private final String mode;
+
+        private ManifestEntry(String sourceStamp, String stamp, String digest, String mode) {
+            this.sourceStamp = sourceStamp;
+            this.stamp = stamp;
+            this.digest = digest;
+            this.mode = mode;
+        }
+
+        private static ManifestEntry parse(String value) {
+            String[] parts = value.split("\\|", -1);
+            if (parts.length == 3) {
+                // written before the retrieve modes
+                return new ManifestEntry(parts[0], parts[1], parts[2].isEmpty() ? null
+                        : parts[2], RetrieveSetup.RETRIEVE_MODE_COPY);
+            }
+            if (parts.length != 4) {
+                return null;
+            }
+            return new ManifestEntry(parts[0], parts[1], parts[2].isEmpty() ? null : parts[2],
+                    parts[3]);
+        }
+
+        public String toString() {
+            return sourceStamp + "|" + stamp + "|" + (digest == null ? "" : digest) + "|" + mode;
+        }
+    }
+
+    /**
+     * A lock of a retrieve folder, which is forgotten once no retrieve holds it
+     */
+    private static final class RootLock extends WeakReference<Object> {
+
+        private final File root;
+
+        private RootLock(File root, Object lock, ReferenceQueue<Object> queue) {
+            super(lock, queue);
+            this.root = root;
+        }
+    }
+
+    private final File manifestDir;
+
+    private final File storeDir;
+
+    private final ExecutorService executor;
+
+    private final Map<File, RootLock> rootLocks = new HashMap<>();
+
+    private final ReferenceQueue<Object> unusedRootLocks = new ReferenceQueue<>();
+
+    /**
+     * @param manifestDir the folder where to store the manifests of the retrieve folders
+     * @param storeDir the folder of the store of the files retrieved by digest
+     * @param executor the executor copying the files concurrently
+     */
+    public IncrementalRetriever(File manifestDir, File storeDir, ExecutorService executor) {
+        this.manifestDir = manifestDir;
+        this.storeDir = storeDir;
+        this.executor = executor;
+    }
+
+    /**
+     * Copy some files into a retrieve folder.
+     *
+     * @param copies the files to copy, by destination. A source may be a folder, copied with its
+     *            content.
+     * @param root the root folder of the retrieve
+     * @param sync <code>true</code> to delete the files of the root folder which are not copied
+     * @param ignoredNames the names of the files to never delete
+     * @param mode one of the <code>RETRIEVE_MODE_*</code> of {@link RetrieveSetup}
+     * @param monitor the monitor to check the cancellation against
+     * @return the statistics of the retrieve
+     * @throws IOException if a file could not be copied or deleted
+     */
+    public RetrieveStats retrieve(Map<File, File> copies, File root, boolean sync,
+            Collection<String> ignoredNames, String mode, IProgressMonitor monitor)
+            throws IOException {
+        root = root.getAbsoluteFile();
+        synchronized (getRootLock(root)) {
+            return doRetrieve(expand(copies), root, sync, ignoredNames, mode, monitor);
+        }
+    }
+
+    /**
+     * @return the lock of the retrieve folder, shared by the retrieves into it running at the same
+     *         time
+     */
+    private Object getRootLock(File root) {
+        synchronized (rootLocks) {
+            Reference<?> unused;
+            while ((unused = unusedRootLocks.poll()) != null) {
+                File unusedRoot = ((RootLock) unused).root;
+                if (rootLocks.get(unusedRoot) == unused) {
+                    rootLocks.remove(unusedRoot);
+                }
+            }
+            RootLock rootLock = rootLocks.get(root);
+            Object lock = rootLock == null ? null : rootLock.get();
+            if (lock == null) {
+                lock = new Object();
+                rootLocks.put(root, new RootLock(root, lock, unusedRootLocks));
+            }
+            return lock;
+        }
+    }
+
+    /**
+     * Check that the files of a retrieve folder are still as they were retrieved, neither modified
+     * nor deleted.
+     *
+     * @param root the root folder of the retrieve
+     * @return <code>false</code> if a file has changed, or if the folder has never been retrieved
+     */
+    public boolean isUpToDate(File root) {
+        root = root.getAbsoluteFile();
+        File manifestFile = getManifestFile(root);
+        if (!manifestFile.exists()) {
+            return false;
+        }
+        Properties manifest = loadManifest(manifestFile);
+        for (String key : manifest.stringPropertyNames()) {
+            ManifestEntry entry = ManifestEntry.parse(manifest.getProperty(key));
+            File file = new File(key);
+            if (!file.isAbsolute()) {
+                file = new File(root, key);
+            }
+            if (entry == null || !entry.stamp.equals(getStamp(file))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private RetrieveStats doRetrieve(Map<File, File> copies, File root, boolean sync,
+            Collection<String> ignoredNames, String mode, IProgressMonitor monitor)
+            throws IOException {
+        RetrieveStats stats = new RetrieveStats();
+        File manifestFile = getManifestFile(root);
+        Properties manifest = loadManifest(manifestFile);
+        Properties newManifest = new Properties();
+
+        List<File> toCopy = new ArrayList<>();
+        for (Map.Entry<File, File> copy : copies.entrySet()) {
+            File dest = copy.getKey();
+            File source = copy.getValue();
+            String key = getKey(root, dest);
+            String sourceStamp = getStamp(source);
+            String stamp = getStamp(dest);
+            ManifestEntry entry = null;
+            String value = manifest.getProperty(key);
+            if (value != null) {
+                entry = ManifestEntry.parse(value);
+            }
+            ManifestEntry upToDate = checkUpToDate(source, dest, sourceStamp, stamp, entry,
+                mode);
+            if (upToDate != null) {
+                newManifest.setProperty(key, upToDate.toString());
+                stats.skippedFiles++;
+                stats.skippedBytes += dest.length();
+            } else {
+                if (entry != null && stamp != null && !entry.stamp.equals(stamp)
+                        && entry.mode.equals(mode)) {
+                    forgetModifiedLink(source, dest, entry);
+                }
+                toCopy.add(dest);
+            }
+        }
+
+        for (File dest : toCopy) {
+            // the new files are changes of their first new folder
+            File newFolder = null;
+            for (File f = dest.getParentFile(); f != null && !f.exists(); f = f.getParentFile()) {
+                newFolder = f;
+            }
+            if (newFolder != null) {
+                stats.changedFolders.add(newFolder);
+            } else {
+                stats.changedFiles.add(dest);
+            }
+        }
+
+        Map<File, Retrieved> retrieved = retrieveAll(toCopy, copies, mode, monitor);
+        for (Map.Entry<File, Retrieved> entry : retrieved.entrySet()) {
+            File dest = entry.getKey();
+            Retrieved r = entry.getValue();
+            newManifest.setProperty(getKey(root, dest), new ManifestEntry(r.sourceStamp,
+                    getStamp(dest), r.digest, mode).toString());
+            if (r.linked) {
+                stats.linkedFiles++;
+            } else {
+                stats.copiedFiles++;
+                stats.copiedBytes += dest.length();
+            }
+        }
+
+        if (sync) {
+            Set<File> kept = new HashSet<>();
+            for (File dest : copies.keySet()) {
+                // the files and every folder up to the root
+                for (File f = dest; f != null && !f.equals(root); f = f.getParentFile()) {
+                    kept.add(f);
+                }
+            }
+            deleteOthers(root, kept, new HashSet<>(ignoredNames), stats);
+        }
+
+        saveManifest(manifestFile, newManifest);
+        return stats;
+    }
+
+    /**
+     * Check whether a file is up to date.
+     *
+     * @return the new state of the file if it is up to date, <code>null</code> if it has to be
+     *         copied
+     */
+    private ManifestEntry checkUpToDate(File source, File dest, String sourceStamp, String stamp,
+            ManifestEntry entry, String mode) throws IOException {
+        if (stamp == null) {
+            // not retrieved yet
+            return null;
+        }
+        if (!RetrieveSetup.RETRIEVE_MODE_COPY.equals(mode)
+                && (entry == null || !entry.mode.equals(mode))) {
+            // not known to be a link
+            return null;
+        }
+        if (entry == null) {
+            // not known, like Ivy consider it up to date if it has the size of the source and is
+            // more recent
+            if (dest.length() == source.length() && dest.lastModified() >= source.lastModified()) {
+                return new ManifestEntry(sourceStamp, stamp, null, mode);
+            }
+            return null;
+        }
+        if (!entry.stamp.equals(stamp) || !entry.mode.equals(mode)) {
+            // modified since it was retrieved
+            return null;
+        }
+        if (entry.sourceStamp.equals(sourceStamp)) {
+            return entry;
+        }
+        // the source has been touched, but it may have the same content, like a jar downloaded
+        // again
+        if (source.length() != dest.length()) {
+            return null;
+        }
+        String digest = entry.digest;
+        if (digest == null) {
+            digest = digest(dest);
+        }
+        if (digest.equals(digest(source))) {
+            return new ManifestEntry(sourceStamp, stamp, digest, mode);
+        }
+        return null;
+    }
+
+    /**
+     * The result of the retrieve of a file
+     */
+    private static final class Retrieved {
+
+        private final String sourceStamp;
+
+        private final String digest;
+
+        private final boolean linked;
+
+        private Retrieved(String sourceStamp, String digest, boolean linked) {
+            this.sourceStamp = sourceStamp;
+            this.digest = digest;
+            this.linked = linked;
+        }
+    }
+
+    /**
+     * Retrieve the files concurrently.
+     *
+     * @return the retrieved files, by destination
+     */
+    private Map<File, Retrieved> retrieveAll(List<File> toCopy, final Map<File, File> copies,
+            final String mode, IProgressMonitor monitor) throws IOException {
+        Map<File, Retrieved> retrieved = new LinkedHashMap<>();
+        if (toCopy.isEmpty()) {
+            return retrieved;
+        }
+        Map<File, Future<Retrieved>> futures = new LinkedHashMap<>();
+        try {
+            for (final File dest : toCopy) {
+                futures.put(dest, executor.submit(new Callable<Retrieved>() {
+                    public Retrieved call() throws IOException {
+                        return retrieve(copies.get(dest), dest, mode);
+                    }
+                }));
+            }
+            for (Map.Entry<File, Future<Retrieved>> future : futures.entrySet()) {
+                retrieved.put(future.getKey(), waitFor(future.getValue(), monitor));
+            }
+        } finally {
+            // on error or cancel, don't retrieve the remaining files
+            for (Future<Retrieved> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        return retrieved;
+    }
+
+    private Retrieved retrieve(File source, File dest, String mode) throws IOException {
+        String sourceStamp = getStamp(source);
+        String digest = null;
+        boolean linked = false;
+        if (RetrieveSetup.RETRIEVE_MODE_LINK.equals(mode)) {
+            linked = link(source, dest);
+        } else if (RetrieveSetup.RETRIEVE_MODE_STORE.equals(mode)) {
+            digest = digest(source);
+            linked = link(store(source, digest), dest);
+        }
+        if (!linked) {
+            copy(source, dest);
+        }
+        return new Retrieved(sourceStamp, digest, linked);
+    }
+
+    /**
+     * Handle a retrieved link which has been written through, so that it is not linked again to
+     * the modified content.
+     */
+    private void forgetModifiedLink(File source, File dest, ManifestEntry entry)
+            throws IOException {
+        if (RetrieveSetup.RETRIEVE_MODE_STORE.equals(entry.mode) && entry.digest != null) {
+            File stored = getStoredFile(entry.digest);
+            if (stored.exists() && Files.isSameFile(stored.toPath(), dest.toPath())) {
+                IvyDEMessage.warn("The retrieved file " + dest + " has been modified, the file "
+                        + stored + " it was linked to is removed from the store");
+                Files.deleteIfExists(stored.toPath());
+            }
+        } else if (RetrieveSetup.RETRIEVE_MODE_LINK.equals(entry.mode) && source.exists()
+                && Files.isSameFile(source.toPath(), dest.toPath())) {
+            IvyDEMessage.warn("The retrieved file " + dest + " has been modified, and so has the"
+                    + " file " + source + " of the cache it is linked to");
+        }
+    }
+
+    private File getStoredFile(String digest) {
+        return new File(storeDir, digest.substring(0, 2) + "/" + digest);
+    }
+
+    /**
+     * @return the file in the store with the content of the source
+     */
+    private File store(File source, String digest) throws IOException {
+        File stored = getStoredFile(digest);
+        if (stored.isFile() && stored.length() == source.length()) {
+            return stored;
+        }
+        File tmp = new File(stored.getParentFile(), digest + "."
+                + Thread.currentThread().getId() + ".tmp");
+        copy(source, tmp);
+        try {
+            Files.move(tmp.toPath(), stored.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp.toPath(), stored.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return stored;
+    }
+
+    /**
+     * @return <code>true</code> if the link has been made
+     */
+    private static boolean link(File target, File dest) throws IOException {
+        mkdirs(dest.getParentFile());
+        // if it is a link, only the link is deleted
+        Files.deleteIfExists(dest.toPath());
+        try {
+            Files.createLink(dest.toPath(), target.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            // on another file system, or not supported by the file system
+            IvyDEMessage.debug("Unable to link " + dest + " to " + target + ", copying it: "
+                    + e.getMessage());
+            return false;
+        }
+        if (IvyDEMessage.isDebugEnabled()) {
+            IvyDEMessage.debug("Linking " + dest + " to " + target);
+        }
+        return true;
+    }
+
+    private Retrieved waitFor(Future<Retrieved> future, IProgressMonitor monitor)
+            throws IOException {
+        while (true) {
+            if (monitor != null && monitor.isCanceled()) {
+                throw new InterruptedIOException("Retrieve canceled");
+            }
+            try {
+                return future.get(500, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // check the cancellation again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Retrieve interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private static void mkdirs(File dir) throws IOException {
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Unable to create the folder " + dir);
+        }
+    }
+
+    private static void copy(File source, File dest) throws IOException {
+        mkdirs(dest.getParentFile());
+        // it may be a link, which must not be written through
+        Files.deleteIfExists(dest.toPath());
+        if (IvyDEMessage.isDebugEnabled()) {
+            IvyDEMessage.debug("Retrieving " + source + " into " + dest);
+        }
+        try (FileInputStream in = new FileInputStream(source);
+                FileOutputStream out = new FileOutputStream(dest)) {
+            FileChannel inChannel = in.getChannel();
+            FileChannel outChannel = out.getChannel();
+            long size = inChannel.size();
+            long position = 0;
+            while (position < size) {
+                position += inChannel.transferTo(position, size - position, outChannel);
+            }
+        }
+        // like Ivy, keep the timestamp of the source
+        dest.setLastModified(source.lastModified());
+    }
+
+    /**
+     * Delete the files and the folders under the root which are not kept. The symbolic links are
+     * never followed: a link to a folder is deleted, not the content of the folder.
+     */
+    private void deleteOthers(File dir, Set<File> kept, Set<String> ignoredNames,
+            RetrieveStats stats) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (ignoredNames.contains(file.getName())) {
+                continue;
+            }
+            boolean isFolder = file.isDirectory() && !Files.isSymbolicLink(file.toPath());
+            if (kept.contains(file)) {
+                if (isFolder) {
+                    deleteOthers(file, kept, ignoredNames, stats);
+                }
+                continue;
+            }
+            if (isFolder) {
+                stats.changedFolders.add(file);
+            } else {
+                stats.changedFiles.add(file);
+            }
+            stats.deletedFiles += delete(file);
+        }
+    }
+
+    private int delete(File file) throws IOException {
+        int deleted = 0;
+        File[] children = Files.isSymbolicLink(file.toPath()) ? null : file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleted += delete(child);
+            }
+        } else {
+            deleted++;
+        }
+        if (IvyDEMessage.isDebugEnabled()) {
+            IvyDEMessage.debug("Deleting " + file);
+        }
+        if (!file.delete() && file.exists()) {
+            throw new IOException("Unable to delete " + file);
+        }
+        return deleted;
+    }
+
+    /**
+     * Replace the sources which are folders by their files.
+     */
+    private static Map<File, File> expand(Map<File, File> copies) {
+        Map<File, File> expanded = new LinkedHashMap<>();
+        for (Map.Entry<File, File> copy : copies.entrySet()) {
+            expand(copy.getKey().getAbsoluteFile(), copy.getValue(), expanded);
+        }
+        return expanded;
+    }
+
+    private static void expand(File dest, File source, Map<File, File> expanded) {
+        File[] children = source.listFiles();
+        if (children == null) {
+            expanded.put(dest, source);
+            return;
+        }
+        for (File child : children) {
+            expand(new File(dest, child.getName()), child, expanded);
+        }
+    }
+
+    private static String getKey(File root, File dest) {
+        String rootPath = root.getPath();
+        String path = dest.getPath();
+        if (path.startsWith(rootPath + File.separator)) {
+            return path.substring(rootPath.length() + 1).replace(File.separatorChar, '/');
+        }
+        return path;
+    }
+
+    /**
+     * @return the size and the timestamp of the file, <code>null</code> if it doesn't exist
+     */
+    private static String getStamp(File file) {
+        long lastModified = file.lastModified();
+        if (lastModified == 0 && !file.exists()) {
+            return null;
+        }
+        return file.length() + "/" + lastModified;
+    }
+
+    private static String digest(File file) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM supports it
+            throw new RuntimeException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                md.update(buffer, 0, n);
+            }
+        }
+        return String.format("%040x", new BigInteger(1, md.digest()));
+    }
+
+    private File getManifestFile(File root) {
+        String name = root.getName() + "-" + Integer.toHexString(root.getPath().hashCode());
+        return new File(manifestDir, name + ".properties");
+    }
+
+    private static Properties loadManifest(File manifestFile) {
+        Properties manifest = new Properties();
+        if (manifestFile.exists()) {
+            try (FileInputStream in = new FileInputStream(manifestFile)) {
+                manifest.load(in);
+            } catch (IOException e) {
+                // everything will be checked against the files themselves
+                IvyDEMessage.warn("The retrieve manifest " + manifestFile
+                        + " could not be read", e);
+            }
+        }
+        return manifest;
+    }
+
+    private static void saveManifest(File manifestFile, Properties manifest) {
+        File parent = manifestFile.getParentFile();
+        if (!parent.isDirectory()) {
+            parent.mkdirs();
+        }
+        File tmpFile = new File(parent, manifestFile.getName() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                manifest.store(out, "");
+            }
+            Files.move(tmpFile.toPath(), manifestFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            IvyDEMessage.warn("The retrieve manifest " + manifestFile + " could not be saved", e);
+        }
+    }
+}
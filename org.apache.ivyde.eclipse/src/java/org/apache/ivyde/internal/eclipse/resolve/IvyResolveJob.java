@@ -18,13 +18,24 @@
 package org.apache.ivyde.internal.eclipse.resolve;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.sort.ModuleDescriptorSorter;
 import org.apache.ivy.core.sort.WarningNonMatchingVersionReporter;
 import org.apache.ivy.plugins.circular.CircularDependencyStrategy;
@@ -35,6 +46,7 @@ import org.apache.ivyde.internal.eclipse.CachedIvy;
 import org.apache.ivyde.internal.eclipse.IvyDEMessage;
 import org.apache.ivyde.internal.eclipse.IvyMarkerManager;
 import org.apache.ivyde.internal.eclipse.IvyPlugin;
+import org.apache.ivyde.internal.eclipse.IvyPool;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -54,10 +66,37 @@ public class IvyResolveJob extends Job {
 
     private static final int POST_RESOLVE_LENGTH = 100;
 
-    private static final int WAIT_BEFORE_LAUNCH = 1000;
+    /**
+     * Quiet period to wait after an isolated request, before launching the resolve.
+     */
+    private static final long MIN_WAIT_BEFORE_LAUNCH = 200;
+
+    /**
+     * Longest quiet period to wait for the next request of a burst.
+     */
+    private static final long MAX_WAIT_BEFORE_LAUNCH = 1000;
+
+    /**
+     * Longest time a burst of requests can delay the resolve.
+     */
+    private static final long MAX_BURST_DURATION = 5000;
 
     private final List<ResolveRequest> resolveQueue = new ArrayList<>();
 
+    private long burstStart;
+
+    private long lastRequestTime;
+
+    private long quietPeriod = MIN_WAIT_BEFORE_LAUNCH;
+
+    private final IvyRunner ivyRunner = new IvyRunner();
+
+    /**
+     * The monitor of the running job, so that canceling the job doesn't cancel the resolves
+     * launched synchronously by other callers.
+     */
+    private volatile IProgressMonitor jobMonitor;
+
     public IvyResolveJob() {
         super("IvyDE resolve");
         setUser(false);
@@ -66,20 +105,107 @@ public class IvyResolveJob extends Job {
     }
 
     public IStatus launchRequest(ResolveRequest request, IProgressMonitor monitor) {
-        synchronized (resolveQueue) {
-            resolveQueue.add(request);
+        return launchRequests(Collections.singletonList(request), monitor);
+    }
+
+    /**
+     * Resolve some requests right away, in the current thread, as a single batch.
+     */
+    public IStatus launchRequests(List<ResolveRequest> requests, IProgressMonitor monitor) {
+        // opened before queuing, so that the markers are updated at once even for the requests
+        // the job would resolve meanwhile
+        IvyMarkerManager ivyMarkerManager = IvyPlugin.getDefault().getIvyMarkerManager();
+        ivyMarkerManager.beginBatch();
+        try {
+            synchronized (resolveQueue) {
+                for (ResolveRequest request : requests) {
+                    enqueue(request);
+                }
+            }
+            return resolveQueued(monitor);
+        } finally {
+            ivyMarkerManager.endBatch();
         }
-        return run(monitor);
     }
 
     public void addRequest(ResolveRequest request) {
+        long delay;
         synchronized (resolveQueue) {
-            resolveQueue.add(request);
+            enqueue(request);
+            long now = System.currentTimeMillis();
+            long gap = now - lastRequestTime;
+            if (gap > MAX_WAIT_BEFORE_LAUNCH) {
+                // an isolated request, or the start of a burst
+                burstStart = now;
+                quietPeriod = MIN_WAIT_BEFORE_LAUNCH;
+            } else {
+                // within a burst, wait a bit longer than the pace of the incoming requests
+                quietPeriod = Math.max(MIN_WAIT_BEFORE_LAUNCH,
+                    Math.min(MAX_WAIT_BEFORE_LAUNCH, 2 * gap));
+            }
+            lastRequestTime = now;
+            delay = quietPeriod;
+        }
+        schedule(delay);
+    }
+
+    /**
+     * Add the request to the queue, merging it with an already queued request on the same
+     * container and of the same kind.
+     */
+    private void enqueue(ResolveRequest request) {
+        for (int i = 0; i < resolveQueue.size(); i++) {
+            ResolveRequest queued = resolveQueue.get(i);
+            if (queued.canMerge(request)) {
+                IvyDEMessage.verbose("Merging the resolve request " + request
+                        + " with an already queued one");
+                request.merge(queued);
+                resolveQueue.set(i, request);
+                return;
+            }
+        }
+        resolveQueue.add(request);
+    }
+
+    protected void canceling() {
+        IProgressMonitor monitor = jobMonitor;
+        if (monitor != null) {
+            ivyRunner.cancel(monitor);
         }
-        schedule(WAIT_BEFORE_LAUNCH);
+    }
+
+    /**
+     * Release the threads used to run Ivy.
+     */
+    public void dispose() {
+        cancel();
+        ivyRunner.shutdown();
     }
 
     protected IStatus run(IProgressMonitor monitor) {
+        synchronized (resolveQueue) {
+            long now = System.currentTimeMillis();
+            long quietFor = now - lastRequestTime;
+            if (!resolveQueue.isEmpty() && quietFor < quietPeriod
+                    && now - burstStart < MAX_BURST_DURATION) {
+                // requests are still coming, wait for the burst to settle
+                schedule(quietPeriod - quietFor);
+                return Status.OK_STATUS;
+            }
+        }
+        // update the problem markers of the whole batch at once
+        IvyMarkerManager ivyMarkerManager = IvyPlugin.getDefault().getIvyMarkerManager();
+        ivyMarkerManager.beginBatch();
+        jobMonitor = monitor;
+        try {
+            return resolveQueued(monitor);
+        } finally {
+            jobMonitor = null;
+            ivyMarkerManager.endBatch();
+        }
+    }
+
+    private IStatus resolveQueued(IProgressMonitor monitor) {
         try {
             return doRun(monitor);
         } catch (RuntimeException e) {
@@ -187,53 +313,94 @@ public class IvyResolveJob extends Job {
 
         step = (MONITOR_LENGTH - IVY_LOAD_LENGTH - POST_RESOLVE_LENGTH) / toResolve.size();
 
-        if (inworkspaceModules.isEmpty()) {
-            IvyDEMessage.verbose("No module to resolve in workspace");
-        } else {
-            IvyDEMessage.info(inworkspaceModules.size() + " module(s) to resolve in workspace");
-            // for the modules which are using the workspace resolver, make sure
-            // we resolve them in the correct order
-
-            // The version matcher used will be the one configured for the first project
-            ResolveRequest request = inworkspaceModules.values().iterator().next().get(0);
-            VersionMatcher versionMatcher = ivys.get(request).getSettings().getVersionMatcher();
-
-            WarningNonMatchingVersionReporter vReporter = new WarningNonMatchingVersionReporter();
-            CircularDependencyStrategy circularDependencyStrategy = WarnCircularDependencyStrategy
-                    .getInstance();
-            ModuleDescriptorSorter sorter = new ModuleDescriptorSorter(inworkspaceModules.keySet(),
-                    versionMatcher, vReporter, circularDependencyStrategy);
-
-            for (ModuleDescriptor module : sorter.sortModuleDescriptors()) {
-                List<ResolveRequest> requests = inworkspaceModules.get(module);
-                IvyDEMessage.info(requests.size() + " container(s) of module " + module
-                        + " to resolve in workspace");
-                for (ResolveRequest req : requests) {
-                    boolean canceled = launchResolveThread(req, monitor, step, errorsStatus,
-                            ivys.get(req), mds.get(req));
-                    if (canceled) {
-                        IvyDEMessage.warn("Resolve job canceled");
-                        return Status.CANCEL_STATUS;
+        ExecutorService executor = null;
+        IProgressMonitor resolveMonitor = monitor;
+        int concurrency = IvyPlugin.getPreferenceStoreHelper().getResolveConcurrency();
+        if (concurrency > 1 && ivys.size() > 1) {
+            IvyDEMessage.verbose("Resolving up to " + concurrency + " container(s) concurrently");
+            executor = Executors.newFixedThreadPool(Math.min(concurrency, ivys.size()),
+                new ResolveThreadFactory());
+            resolveMonitor = new SynchronizedProgressMonitor(monitor);
+        }
+
+        try {
+            if (inworkspaceModules.isEmpty()) {
+                IvyDEMessage.verbose("No module to resolve in workspace");
+            } else {
+                IvyDEMessage.info(inworkspaceModules.size()
+                        + " module(s) to resolve in workspace");
+                // for the modules which are using the workspace resolver, make sure
+                // we resolve them in the correct order
+
+                // The version matcher used will be the one configured for the first project
+                ResolveRequest request = inworkspaceModules.values().iterator().next().get(0);
+                VersionMatcher versionMatcher = ivys.get(request).getSettings()
+                        .getVersionMatcher();
+
+                WarningNonMatchingVersionReporter vReporter =
+                        new WarningNonMatchingVersionReporter();
+                CircularDependencyStrategy circularDependencyStrategy =
+                        WarnCircularDependencyStrategy.getInstance();
+                ModuleDescriptorSorter sorter = new ModuleDescriptorSorter(
+                        inworkspaceModules.keySet(), versionMatcher, vReporter,
+                        circularDependencyStrategy);
+                List<ModuleDescriptor> sortedModules = sorter.sortModuleDescriptors();
+
+                if (executor == null) {
+                    for (ModuleDescriptor module : sortedModules) {
+                        List<ResolveRequest> requests = inworkspaceModules.get(module);
+                        IvyDEMessage.info(requests.size() + " container(s) of module " + module
+                                + " to resolve in workspace");
+                        boolean canceled = launchResolveBatch(requests, null, resolveMonitor,
+                            step, errorsStatus, ivys, mds);
+                        if (canceled) {
+                            IvyDEMessage.warn("Resolve job canceled");
+                            return Status.CANCEL_STATUS;
+                        }
+                    }
+                } else {
+                    List<List<ResolveRequest>> levels = computeWorkspaceLevels(sortedModules,
+                        inworkspaceModules);
+                    for (int i = 0; i < levels.size(); i++) {
+                        List<ResolveRequest> requests = levels.get(i);
+                        IvyDEMessage.info(requests.size() + " container(s) of level " + i
+                                + " to resolve in workspace");
+                        boolean canceled = launchResolveBatch(requests, executor,
+                            resolveMonitor, step, errorsStatus, ivys, mds);
+                        if (canceled) {
+                            IvyDEMessage.warn("Resolve job canceled");
+                            return Status.CANCEL_STATUS;
+                        }
                     }
                 }
             }
-        }
 
-        if (otherModules.isEmpty()) {
-            IvyDEMessage.verbose("No module to resolve outside the workspace");
-        } else {
-            IvyDEMessage.info(otherModules.size() + " module(s) to resolve outside the workspace");
+            if (otherModules.isEmpty()) {
+                IvyDEMessage.verbose("No module to resolve outside the workspace");
+            } else {
+                IvyDEMessage.info(otherModules.size()
+                        + " module(s) to resolve outside the workspace");
 
-            for (ResolveRequest request : otherModules) {
-                boolean canceled = launchResolveThread(request, monitor, step, errorsStatus,
-                        ivys.get(request), mds.get(request));
+                boolean canceled = launchResolveBatch(otherModules, executor, resolveMonitor,
+                    step, errorsStatus, ivys, mds);
                 if (canceled) {
                     IvyDEMessage.warn("Resolve job canceled");
                     return Status.CANCEL_STATUS;
                 }
             }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
 
+        IvyDEMessage.verbose(new IvyDEMessage.MessageSupplier() {
+            public String get() {
+                return "Module descriptor cache: "
+                        + IvyPlugin.getDefault().getModuleDescriptorCache();
+            }
+        });
+
         step = POST_RESOLVE_LENGTH / toResolve.size();
 
         monitor.setTaskName("Post resolve");
@@ -247,6 +414,19 @@ public class IvyResolveJob extends Job {
             monitor.worked(step);
         }
 
+        int skipped = 0;
+        for (ResolveRequest request : toResolve) {
+            if (request.isResolveSkipped()) {
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            IvyDEMessage.info(skipped + " of " + toResolve.size()
+                    + " resolve(s) skipped: nothing has changed since their last resolve");
+        }
+        IvyPlugin.getDefault().getResolveFingerprints().save();
+        IvyPlugin.getDefault().getBundleMetadataIndex().save();
+
         if (errorsStatus.getChildren().length != 0) {
             // some errors happened, stop here
             if (forceFailOnError || IvyPlugin.getPreferenceStoreHelper().isErrorPopup()) {
@@ -258,21 +438,181 @@ public class IvyResolveJob extends Job {
         return Status.OK_STATUS;
     }
 
+    /**
+     * Resolve a batch of independent requests, concurrently if an executor is given.
+     *
+     * @return <code>true</code> if the resolve has been canceled
+     */
+    private boolean launchResolveBatch(List<ResolveRequest> requests, ExecutorService executor,
+            final IProgressMonitor monitor, final int step, final MultiStatus errorsStatus,
+            final Map<ResolveRequest, Ivy> ivys, final Map<ResolveRequest, ModuleDescriptor> mds) {
+        if (executor == null || requests.size() == 1) {
+            for (ResolveRequest request : requests) {
+                boolean canceled = launchResolveThread(request, monitor, step, errorsStatus,
+                    ivys.get(request), mds.get(request));
+                if (canceled) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Map<ResolveRequest, Future<Boolean>> futures = new LinkedHashMap<>();
+        for (final ResolveRequest request : requests) {
+            futures.put(request, executor.submit(new Callable<Boolean>() {
+                public Boolean call() {
+                    return launchResolveThread(request, monitor, step, errorsStatus,
+                        ivys.get(request), mds.get(request));
+                }
+            }));
+        }
+
+        boolean canceled = false;
+        for (Entry<ResolveRequest, Future<Boolean>> entry : futures.entrySet()) {
+            try {
+                if (entry.getValue().get()) {
+                    canceled = true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                canceled = true;
+            } catch (ExecutionException e) {
+                ResolveRequest request = entry.getKey();
+                request.setResolveFailed(true);
+                IvyDEMessage.error("The resolve of " + request + " has unexpectedly stopped",
+                    e.getCause());
+                synchronized (errorsStatus) {
+                    errorsStatus.add(new Status(IStatus.ERROR, IvyPlugin.ID, IStatus.ERROR,
+                            "The resolve job of " + request + " has unexpectedly stopped",
+                            e.getCause()));
+                }
+            }
+            if (canceled) {
+                for (Future<Boolean> future : futures.values()) {
+                    future.cancel(false);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Group the requests of the workspace modules by level, a level containing only modules which
+     * depend on modules of the previous levels. The requests of a level can then be resolved
+     * concurrently.
+     *
+     * @param sortedModules
+     *            the modules, sorted by the {@link ModuleDescriptorSorter}
+     * @param inworkspaceModules
+     *            the requests of every module
+     * @return the requests, level by level
+     */
+    private List<List<ResolveRequest>> computeWorkspaceLevels(List<ModuleDescriptor> sortedModules,
+            Map<ModuleDescriptor, List<ResolveRequest>> inworkspaceModules) {
+        List<List<ResolveRequest>> levels = new ArrayList<>();
+        Map<ModuleDescriptor, Integer> moduleLevels = new HashMap<>();
+        for (int i = 0; i < sortedModules.size(); i++) {
+            ModuleDescriptor module = sortedModules.get(i);
+            int level = 0;
+            for (int j = 0; j < i; j++) {
+                ModuleDescriptor previous = sortedModules.get(j);
+                if (dependsOn(module, previous)) {
+                    level = Math.max(level, moduleLevels.get(previous) + 1);
+                }
+            }
+            moduleLevels.put(module, level);
+            while (levels.size() <= level) {
+                levels.add(new ArrayList<ResolveRequest>());
+            }
+            levels.get(level).addAll(inworkspaceModules.get(module));
+        }
+        return levels;
+    }
+
+    private boolean dependsOn(ModuleDescriptor module, ModuleDescriptor other) {
+        // the revision is not checked so that it stays safe with the workspace resolver ignoring
+        // versions or branches: it can only reduce the concurrency
+        ModuleId otherId = other.getModuleRevisionId().getModuleId();
+        for (DependencyDescriptor dd : module.getDependencies()) {
+            if (otherId.equals(dd.getDependencyId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean launchResolveThread(ResolveRequest request, final IProgressMonitor monitor,
             final int step, MultiStatus errorsStatus, final Ivy ivy, final ModuleDescriptor md) {
 
         final IStatus[] status = new IStatus[1];
 
         final IvyResolver resolver = request.getResolver();
+
+        ResolveFingerprints fingerprints = IvyPlugin.getDefault().getResolveFingerprints();
+        String fingerprint = null;
+        if (IvyPlugin.getPreferenceStoreHelper().isResolveIncremental()) {
+            fingerprint = fingerprints.compute(request, md);
+            if (fingerprint != null && !request.isForce()
+                    && fingerprints.isUpToDate(request, fingerprint)
+                    && resolver.canSkipResolve(ivy, md)) {
+                IvyDEMessage.info("Skipping the resolve of " + request
+                        + ": nothing has changed since the last resolve");
+                request.setResolveSkipped(true);
+                monitor.worked(step);
+                return false;
+            }
+        }
+
+        final Throwable[] failure = new Throwable[1];
+
+        // the Ivy instance is shared by the containers with the same settings, each resolve
+        // borrows its own
+        IvyPool.PooledIvy pooledIvy = request.getCachedIvy().getPooledIvy();
+        final Ivy resolveIvy;
+        if (pooledIvy == null) {
+            resolveIvy = ivy;
+        } else {
+            try {
+                resolveIvy = pooledIvy.borrow();
+            } catch (IvyDEException e) {
+                IvyDEMessage.error("Failed to configure Ivy for " + request + ": "
+                        + e.getMessage());
+                request.setResolveFailed(true);
+                synchronized (errorsStatus) {
+                    errorsStatus.add(e.asStatus(IStatus.ERROR, "Failed to configure Ivy for "
+                            + request));
+                }
+                monitor.worked(step);
+                return false;
+            }
+        }
+
         Runnable resolveRunner = new Runnable() {
             public void run() {
-                status[0] = resolver.resolve(ivy, md, monitor, step);
+                try {
+                    status[0] = resolver.resolve(resolveIvy, md, monitor, step);
+                } catch (RuntimeException | Error e) {
+                    failure[0] = e;
+                    throw e;
+                }
             }
         };
 
-        IvyRunner ivyRunner = new IvyRunner();
-        if (ivyRunner.launchIvyThread(resolveRunner, ivy, monitor)) {
-            return true;
+        try {
+            if (ivyRunner.launchIvyThread(resolveRunner, resolveIvy, monitor)) {
+                return true;
+            }
+        } finally {
+            if (pooledIvy != null) {
+                pooledIvy.giveBack(resolveIvy);
+            }
+        }
+
+        if (status[0] == null) {
+            // the resolve has been stopped without being canceled
+            status[0] = new Status(IStatus.ERROR, IvyPlugin.ID, IStatus.ERROR,
+                    "The resolve of " + request + " has unexpectedly stopped", failure[0]);
         }
 
         IvyMarkerManager ivyMarkerManager = IvyPlugin.getDefault().getIvyMarkerManager();
@@ -285,11 +625,22 @@ public class IvyResolveJob extends Job {
             case IStatus.OK:
             case IStatus.INFO:
                 IvyDEMessage.info("Successful resolve of " + request);
+                if (fingerprint != null && resolver.isFullResolveDone()) {
+                    if (resolver.isVolatileResult()) {
+                        // resolving again may give another result, it must not be skipped
+                        fingerprints.remove(request);
+                    } else {
+                        fingerprints.put(request, fingerprint);
+                    }
+                }
                 break;
             case IStatus.ERROR:
                 IvyDEMessage.warn("Error on resolve of " + request + ": " + status[0].getMessage());
                 request.setResolveFailed(true);
-                errorsStatus.add(status[0]);
+                fingerprints.remove(request);
+                synchronized (errorsStatus) {
+                    errorsStatus.add(status[0]);
+                }
                 break;
             default:
                 IvyPlugin.logWarn("Unknown IStatus: " + status[0].getCode());
@@ -298,4 +649,15 @@ public class IvyResolveJob extends Job {
         return false;
     }
 
+    private static class ResolveThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "IvyDE resolve worker #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
 }
@@ -19,39 +19,59 @@ package org.apache.ivyde.internal.eclipse.resolve;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.IvyNodeCallers.Caller;
 import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.retrieve.RetrieveOptions;
+import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.report.XmlReportParser;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.version.VersionMatcher;
 import org.apache.ivy.util.filter.ArtifactTypeFilter;
+import org.apache.ivyde.eclipse.cp.RetrieveSetup;
 import org.apache.ivyde.internal.eclipse.IvyDEMessage;
 import org.apache.ivyde.internal.eclipse.IvyPlugin;
 import org.apache.ivyde.internal.eclipse.cpcontainer.IvyClasspathUtil;
+import org.apache.ivyde.internal.eclipse.resolve.IncrementalRetriever.RetrieveStats;
 import org.apache.ivyde.internal.eclipse.workspaceresolver.WorkspaceResolver;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.variables.IStringVariableManager;
 import org.eclipse.core.variables.VariablesPlugin;
@@ -61,6 +81,8 @@ import org.eclipse.core.variables.VariablesPlugin;
  */
 public class IvyResolver {
 
+    private static final String SNAPSHOT = "SNAPSHOT";
+
     private boolean usePreviousResolveIfExist = false;
 
     private String[] confs;
@@ -75,6 +97,8 @@ public class IvyResolver {
 
     private String retrieveTypes = null;
 
+    private String retrieveMode = RetrieveSetup.RETRIEVE_MODE_COPY;
+
     private final String ivyXmlPath;
 
     private boolean useCacheOnly = IvyPlugin.getPreferenceStoreHelper().isOffline();
@@ -83,6 +107,10 @@ public class IvyResolver {
 
     private boolean transitiveResolve = true;
 
+    private boolean fullResolveDone = false;
+
+    private boolean volatileResult = false;
+
     public IvyResolver(String ivyXmlPath, List<String> confInput, IProject project) {
         this.ivyXmlPath = ivyXmlPath;
         this.confInput = confInput;
@@ -93,6 +121,10 @@ public class IvyResolver {
         this.usePreviousResolveIfExist = usePreviousResolveIfExist;
     }
 
+    public boolean isUsePreviousResolveIfExist() {
+        return usePreviousResolveIfExist;
+    }
+
     public void setRetrievePattern(String retrievePattern) {
         this.retrievePattern = retrievePattern;
     }
@@ -105,6 +137,10 @@ public class IvyResolver {
         this.retrieveTypes = retrieveTypes;
     }
 
+    public void setRetrieveMode(String retrieveMode) {
+        this.retrieveMode = retrieveMode;
+    }
+
     public void setUseCacheOnly(boolean useCacheOnly) {
         this.useCacheOnly = useCacheOnly;
     }
@@ -209,38 +245,101 @@ public class IvyResolver {
             IOException {
         IvyDEMessage.verbose("Trying to read previous resolve report");
 
-        ResolveResult result = new ResolveResult();
-
+        String resolveId = IvyClasspathUtil.buildResolveId(useExtendedResolveId, md);
+        File[] reports = new File[confs.length];
         // we check if all required configurations have been resolved
-        for (String conf : confs) {
-            IvyDEMessage.verbose("Fetching the resolve report for configuration " + conf);
-
-            File report = ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
-                    IvyClasspathUtil.buildResolveId(useExtendedResolveId, md), conf);
-            IvyDEMessage.debug("Checking resolve report at " + report);
-            if (!report.exists()) {
-                IvyDEMessage.info("The resolve report for the configuration " + conf
+        for (int i = 0; i < confs.length; i++) {
+            IvyDEMessage.verbose("Fetching the resolve report for configuration " + confs[i]);
+            reports[i] = ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+                resolveId, confs[i]);
+            IvyDEMessage.debug("Checking resolve report at " + reports[i]);
+            if (!reports[i].exists()) {
+                IvyDEMessage.info("The resolve report for the configuration " + confs[i]
                         + " was not found. Falling back by doing a resolve again.");
                 return doResolve(ivy, md);
             }
+        }
 
-            IvyDEMessage.verbose("Resolve report found, parsing it");
-            // found a report, try to parse it.
-            try {
-                XmlReportParser parser = new XmlReportParser();
-                parser.parse(report);
-                result.addArtifactReports(parser.getArtifactReports());
-                findAllArtifactOnRefresh(ivy, parser, result);
-            } catch (ParseException e) {
-                IvyDEMessage.info("Error while parsing the report " + report
-                        + ". Falling back by doing a resolve again.");
-                return doResolve(ivy, md);
-            }
+        IvyDEMessage.verbose("Resolve reports found, parsing them");
+        // found the reports, try to parse them.
+        XmlReportParser[] parsers;
+        try {
+            parsers = parseReports(reports);
+        } catch (ParseException e) {
+            IvyDEMessage.info(e.getMessage() + ". Falling back by doing a resolve again.");
+            return doResolve(ivy, md);
+        }
+
+        ResolveResult result = new ResolveResult();
+        // the dependencies shared by the configurations are fetched once
+        Set<ModuleRevisionId> dependencyMrids = new LinkedHashSet<>();
+        for (int i = 0; i < confs.length; i++) {
+            ArtifactDownloadReport[] artifactReports = parsers[i].getArtifactReports();
+            result.addArtifactReports(artifactReports);
+            result.addArtifactReports(confs[i], artifactReports);
+            dependencyMrids.addAll(Arrays.asList(parsers[i].getDependencyRevisionIds()));
         }
+        findAllArtifactOnRefresh(ivy, dependencyMrids, result);
 
         return result;
     }
 
+    /**
+     * Parse the resolve reports of the configurations, concurrently if there are several.
+     */
+    private XmlReportParser[] parseReports(File[] reports) throws ParseException, IOException {
+        XmlReportParser[] parsers = new XmlReportParser[reports.length];
+        if (reports.length == 1) {
+            parsers[0] = parseReport(reports[0]);
+            return parsers;
+        }
+        ExecutorService executor = IvyPlugin.getDefault().getWorkerExecutor();
+        List<Future<XmlReportParser>> futures = new ArrayList<>(reports.length);
+        try {
+            for (final File report : reports) {
+                futures.add(executor.submit(new Callable<XmlReportParser>() {
+                    public XmlReportParser call() throws ParseException {
+                        return parseReport(report);
+                    }
+                }));
+            }
+            for (int i = 0; i < reports.length; i++) {
+                try {
+                    parsers[i] = futures.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while parsing the reports");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ParseException) {
+                        throw (ParseException) e.getCause();
+                    }
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } finally {
+            for (Future<XmlReportParser> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return parsers;
+    }
+
+    private static XmlReportParser parseReport(File report) throws ParseException {
+        XmlReportParser parser = new XmlReportParser();
+        try {
+            parser.parse(report);
+        } catch (ParseException e) {
+            ParseException pe = new ParseException("Error while parsing the report " + report
+                    + ": " + e.getMessage(), e.getErrorOffset());
+            pe.initCause(e);
+            throw pe;
+        }
+        return parser;
+    }
+
     private ResolveResult doResolve(Ivy ivy, ModuleDescriptor md) throws ParseException,
             IOException {
         IvyDEMessage.debug("Doing a full resolve...");
@@ -259,6 +358,8 @@ public class IvyResolver {
         }
 
         ResolveResult result = new ResolveResult(report);
+        fullResolveDone = true;
+        volatileResult = hasVolatileRevisions(ivy, report);
 
         ArtifactDownloadReport[] artifactReports = report.getArtifactsReports(null, false);
 
@@ -277,6 +378,10 @@ public class IvyResolver {
             }
         }
         result.addArtifactReports(artifactReports);
+        for (String conf : report.getConfigurations()) {
+            result.addArtifactReports(conf, report.getConfigurationReport(conf)
+                    .getAllArtifactsReports());
+        }
 
         collectArtifactsByDependency(report, result);
 
@@ -288,36 +393,61 @@ public class IvyResolver {
      * called in the refresh process.
      *
      * @param ivy Ivy
-     * @param parser XmlReportParser
+     * @param dependencyMrids the dependencies of all the resolved configurations
      * @param result ResolveResult
      * @throws ParseException if parser fails
      */
-    private void findAllArtifactOnRefresh(Ivy ivy, XmlReportParser parser, ResolveResult result)
-            throws ParseException {
-        ModuleRevisionId[] dependencyMrids = parser.getDependencyRevisionIds();
-        IvyDEMessage.verbose("Resolve report parsed. Fetching artifacts of "
-                + dependencyMrids.length + " dependencie(s)");
+    private void findAllArtifactOnRefresh(Ivy ivy, Collection<ModuleRevisionId> dependencyMrids,
+            ResolveResult result) throws ParseException {
+        IvyDEMessage.verbose("Resolve reports parsed. Fetching artifacts of "
+                + dependencyMrids.size() + " dependencie(s)");
+        // the descriptors are only looked up in the cache, the same resolve data is shared
+        ResolveOptions options = new ResolveOptions();
+        options.setRefresh(true);
+        options.setUseCacheOnly(true);
+        ResolveData data = new ResolveData(ivy.getResolveEngine(), options);
         for (ModuleRevisionId dependencyMrid : dependencyMrids) {
             DependencyResolver depResolver = ivy.getSettings().getResolver(dependencyMrid);
             DefaultDependencyDescriptor depDescriptor = new DefaultDependencyDescriptor(
                     dependencyMrid, false);
-            ResolveOptions options = new ResolveOptions();
-            options.setRefresh(true);
-            options.setUseCacheOnly(true);
-            IvyDEMessage.debug("Fetching dependency " + dependencyMrid);
-            ResolvedModuleRevision dependency = depResolver.getDependency(depDescriptor,
-                new ResolveData(ivy.getResolveEngine(), options));
+            boolean debug = IvyDEMessage.isDebugEnabled();
+            if (debug) {
+                IvyDEMessage.debug("Fetching dependency " + dependencyMrid);
+            }
+            ResolvedModuleRevision dependency = depResolver.getDependency(depDescriptor, data);
             if (dependency != null) {
                 Artifact[] artifacts = dependency.getDescriptor().getAllArtifacts();
-                IvyDEMessage.debug("Dependency " + dependencyMrid + " found: "
-                        + artifacts.length + " artifact(s) found");
+                if (debug) {
+                    IvyDEMessage.debug("Dependency " + dependencyMrid + " found: "
+                            + artifacts.length + " artifact(s) found");
+                }
                 result.putArtifactsForDep(dependencyMrid, artifacts);
-            } else {
+            } else if (debug) {
                 IvyDEMessage.debug("Dependency " + dependencyMrid + " not found");
             }
         }
     }
 
+    /**
+     * @return <code>true</code> if a dynamic revision or a changing module has been resolved,
+     *         directly or transitively
+     */
+    private static boolean hasVolatileRevisions(Ivy ivy, ResolveReport report) {
+        VersionMatcher versionMatcher = ivy.getSettings().getVersionMatcher();
+        for (IvyNode node : report.getDependencies()) {
+            if (node.getResolvedId().getRevision().endsWith(SNAPSHOT)) {
+                return true;
+            }
+            for (Caller caller : node.getAllCallers()) {
+                DependencyDescriptor dd = caller.getDependencyDescriptor();
+                if (dd.isChanging() || versionMatcher.isDynamic(dd.getDependencyRevisionId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private void collectArtifactsByDependency(ResolveReport rr, ResolveResult result) {
         for (IvyNode node : rr.getDependencies()) {
             if (node.getDescriptor() != null) {
@@ -334,21 +464,14 @@ public class IvyResolver {
             return Status.OK_STATUS;
         }
 
-        // Perform variable substitution on the pattern.
-        IStringVariableManager varManager = VariablesPlugin.getDefault().getStringVariableManager();
         String pattern;
         try {
-            pattern = varManager.performStringSubstitution(retrievePattern, false);
+            pattern = getRetrievePattern();
         } catch (CoreException e) {
             return new Status(IStatus.ERROR, IvyPlugin.ID, IStatus.ERROR,
                     "Incorrect use of variables in retrievePattern '" + retrievePattern + "'."
                             + e.getMessage(), e);
         }
-        // For backwards compatibility we prepend the project location to the pattern,
-        // but we do it only in case the pattern does not start with a variable (i.e. ${xxx )
-        if (!retrievePattern.startsWith("${")) {
-            pattern = project.getLocation().toPortableString() + "/" + pattern;
-        }
 
         IvyDEMessage.info("Retrieving files into " + pattern);
 
@@ -365,8 +488,8 @@ public class IvyResolver {
         }
         options.setResolveId(IvyClasspathUtil.buildResolveId(useExtendedResolveId, md));
 
-        String refreshPath = IvyPatternHelper.getTokenRoot(retrievePattern);
-        if (retrieveSync && refreshPath.length() == 0) {
+        String tokenRoot = IvyPatternHelper.getTokenRoot(retrievePattern);
+        if (retrieveSync && tokenRoot.length() == 0) {
             // the root folder of the retrieve pattern is the the project itself
             // so let's prevent from deleting the entire project
             return new Status(IStatus.ERROR, IvyPlugin.ID, IStatus.ERROR,
@@ -375,44 +498,156 @@ public class IvyResolver {
                             + " Change your retrieve pattern to have a sub folder.", null);
         }
 
-        // Actually do the retrieve
-        // FIXME here we will parse a report we already have
-        // with a better Java API, we could do probably better
-        int numberOfItemsRetrieved = ivy.retrieve(md.getModuleRevisionId(), options).getNbrArtifactsCopied();
-
-        IvyDEMessage.info(numberOfItemsRetrieved + " retrieved file(s)");
-
-        if (numberOfItemsRetrieved > 0) {
-            // Only refresh if we actually retrieved a file.
-            IResource retrieveFolder;
-            if (refreshPath.length() == 0) {
-                retrieveFolder = project;
-                IvyDEMessage.verbose("Refreshing Eclipse project " + project.getName());
-            } else {
-                retrieveFolder = project.getFolder(refreshPath);
-                IvyDEMessage.verbose("Refreshing Eclipse folder " + retrieveFolder);
-            }
-            RefreshFolderJob refreshFolderJob = new RefreshFolderJob(retrieveFolder);
-            refreshFolderJob.schedule();
-        }
-
-        // recompute the files which has been copied to build a classpath
-        String resolvedPattern = IvyPatternHelper.substituteVariables(pattern, ivy.getSettings()
-                .getVariables());
+        // compute once where every artifact goes, and copy only what has changed. Ivy's retrieve
+        // is not called, so the report is parsed once and this mapping gives both the files to
+        // copy and the retrieved artifacts of the classpath
+        IvySettings settings = ivy.getSettings();
+        String resolvedPattern = IvyPatternHelper.substituteVariables(pattern,
+            settings.getVariables());
+        Map<ArtifactDownloadReport, Set<String>> retrievedArtifacts;
         try {
-            // FIXME same as above
-            Map<ArtifactDownloadReport, Set<String>> retrievedArtifacts = ivy.getRetrieveEngine().determineArtifactsToCopy(
+            retrievedArtifacts = ivy.getRetrieveEngine().determineArtifactsToCopy(
                 md.getModuleRevisionId(), resolvedPattern, options);
-            result.setRetrievedArtifacts(retrievedArtifacts);
         } catch (ParseException e) {
             // ooops, failed to parse a report we already have...
             return new Status(IStatus.ERROR, IvyPlugin.ID, IStatus.ERROR,
                     "failed to parse a resolve report in order to do the retrieve", e);
         }
+        boolean unpacked = IvyPlugin.getDefault().isIvyVersionGreaterOrEqual(2, 4, 0);
+        Map<File, File> copies = new LinkedHashMap<>();
+        for (Map.Entry<ArtifactDownloadReport, Set<String>> entry : retrievedArtifacts
+                .entrySet()) {
+            ArtifactDownloadReport adr = entry.getKey();
+            File source = adr.getLocalFile();
+            if (unpacked && adr.getUnpackedLocalFile() != null) {
+                source = adr.getUnpackedLocalFile();
+            }
+            if (source == null) {
+                continue;
+            }
+            for (String dest : entry.getValue()) {
+                copies.put(settings.resolveFile(dest), source);
+            }
+        }
+        File root = getRetrieveRoot(settings, pattern);
+        RetrieveStats stats = IvyPlugin.getDefault().getIncrementalRetriever().retrieve(copies,
+            root, retrieveSync, Arrays.asList(settings.getIgnorableFilenames()), retrieveMode,
+            monitor);
+
+        IvyDEMessage.info("Retrieve into " + root + ": " + stats);
+
+        // Only refresh the files which have actually changed
+        List<IResource> changes = getChangedResources(project.getWorkspace().getRoot(), stats);
+        if (!changes.isEmpty()) {
+            IvyDEMessage.verbose("Refreshing " + changes.size() + " retrieved resource(s)");
+            RefreshResourcesJob refreshJob = new RefreshResourcesJob(changes);
+            refreshJob.schedule();
+        }
 
+        result.setRetrievedArtifacts(retrievedArtifacts);
         return Status.OK_STATUS;
     }
 
+    /**
+     * @return the retrieve pattern, with the variables of Eclipse substituted
+     */
+    private String getRetrievePattern() throws CoreException {
+        IStringVariableManager varManager = VariablesPlugin.getDefault().getStringVariableManager();
+        String pattern = varManager.performStringSubstitution(retrievePattern, false);
+        // For backwards compatibility we prepend the project location to the pattern,
+        // but we do it only in case the pattern does not start with a variable (i.e. ${xxx )
+        if (!retrievePattern.startsWith("${")) {
+            pattern = project.getLocation().toPortableString() + "/" + pattern;
+        }
+        return pattern;
+    }
+
+    private static File getRetrieveRoot(IvySettings settings, String pattern) {
+        String resolvedPattern = IvyPatternHelper.substituteVariables(pattern,
+            settings.getVariables());
+        return settings.resolveFile(IvyPatternHelper.getTokenRoot(resolvedPattern));
+    }
+
+    /**
+     * @return the resources of the workspace changed by a retrieve
+     */
+    static List<IResource> getChangedResources(IWorkspaceRoot root, RetrieveStats stats) {
+        List<IResource> changes = new ArrayList<>();
+        for (File file : stats.getChangedFiles()) {
+            IFile resource = root.getFileForLocation(new Path(file.getAbsolutePath()));
+            if (resource != null) {
+                changes.add(resource);
+            }
+        }
+        for (File folder : stats.getChangedFolders()) {
+            IContainer resource = root.getContainerForLocation(new Path(folder
+                    .getAbsolutePath()));
+            if (resource != null) {
+                changes.add(resource);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Append to the fingerprint of the resolve the options which may change its result.
+     *
+     * @param builder the fingerprint being built
+     */
+    protected void appendFingerprint(StringBuilder builder) {
+        builder.append(";resolver=").append(this);
+        builder.append(";transitive=").append(transitiveResolve);
+        builder.append(";cacheOnly=").append(useCacheOnly);
+        builder.append(";extendedResolveId=").append(useExtendedResolveId);
+        builder.append(";retrieve=").append(retrievePattern).append(',').append(retrieveSync)
+                .append(',').append(retrieveTypes).append(',').append(retrieveMode);
+    }
+
+    /**
+     * Tell whether the result of the last resolve can be kept instead of resolving again, if the
+     * inputs of the resolve are unchanged.
+     *
+     * @param ivy Ivy
+     * @param md ModuleDescriptor
+     * @return <code>true</code> if the resolve can be skipped
+     */
+    public boolean canSkipResolve(Ivy ivy, ModuleDescriptor md) {
+        computeConfs(confInput, md);
+        String resolveId = IvyClasspathUtil.buildResolveId(useExtendedResolveId, md);
+        for (String conf : confs) {
+            if (!ivy.getResolutionCacheManager()
+                    .getConfigurationResolveReportInCache(resolveId, conf).exists()) {
+                return false;
+            }
+        }
+        if (retrievePattern != null && project != null) {
+            // the retrieved files may have been modified or deleted since
+            try {
+                File root = getRetrieveRoot(ivy.getSettings(), getRetrievePattern());
+                return IvyPlugin.getDefault().getIncrementalRetriever().isUpToDate(root);
+            } catch (CoreException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if the last resolve was a full resolve, not a refresh from the
+     *         previous resolve reports
+     */
+    public boolean isFullResolveDone() {
+        return fullResolveDone;
+    }
+
+    /**
+     * @return <code>true</code> if the result of the last full resolve may change without any
+     *         change of its inputs, because it has resolved dynamic revisions or changing modules
+     */
+    public boolean isVolatileResult() {
+        return volatileResult;
+    }
+
     /**
      * This function will be called by the {@link IvyResolveJob} after all resolve has been
      * accomplished. Note that this function will be called even if the resolve failed.
@@ -17,12 +17,70 @@
  */
 package org.apache.ivyde.internal.eclipse.resolve;
 
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.ivy.Ivy;
+import org.apache.ivyde.internal.eclipse.IvyDEMessage;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 
+/**
+ * Launch some Ivy related work on a shared executor so that it can be canceled. Virtual threads are
+ * used if the JVM supports them, otherwise each work gets its own thread. The threads are never
+ * reused: to cancel a work, Ivy waits for its thread to end, and stops it if it takes too long.
+ * <p>
+ * The canceling is event driven: {@link #cancel(IProgressMonitor)} is expected to be called as soon
+ * as the end user requests it, typically by {@link org.eclipse.core.runtime.jobs.Job#canceling()}.
+ * The monitor is still checked while waiting, for the callers which are not running within a job.
+ */
 public class IvyRunner {
 
-    private static final int WAIT_FOR_JOIN = 100;
+    private static final long CANCEL_CHECK_PERIOD = 500;
+
+    private final Set<IvyTask> runningTasks = Collections
+            .newSetFromMap(new ConcurrentHashMap<IvyTask, Boolean>());
+
+    private Executor executor;
+
+    private synchronized Executor getExecutor() {
+        if (executor == null) {
+            executor = createExecutor();
+        }
+        return executor;
+    }
+
+    private static Executor createExecutor() {
+        try {
+            Method newVirtualThreadExecutor = Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService virtualExecutor = (ExecutorService) newVirtualThreadExecutor
+                    .invoke(null);
+            IvyDEMessage.verbose("Running Ivy in virtual threads");
+            return virtualExecutor;
+        } catch (Exception e) {
+            // not supported by this JVM
+            IvyDEMessage.verbose("Running Ivy in dedicated threads");
+            return new Executor() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public void execute(Runnable r) {
+                    Thread thread = new Thread(r, "IvyDE resolver thread #"
+                            + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            };
+        }
+    }
 
     /**
      * Launch some ivy related work and cancel it if the end user has requested it.
@@ -40,24 +98,152 @@ public class IvyRunner {
             return true;
         }
 
-        Thread runnerThread = new Thread(runnable);
-        runnerThread.setName("IvyDE resolver thread");
-        runnerThread.start();
+        IvyTask task = new IvyTask(runnable, ivy, monitor);
+        runningTasks.add(task);
+        try {
+            getExecutor().execute(task);
+            while (!task.await(CANCEL_CHECK_PERIOD)) {
+                if (monitor != null && monitor.isCanceled()) {
+                    task.cancel();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel();
+        } finally {
+            runningTasks.remove(task);
+        }
+        return task.isCanceled();
+    }
+
+    /**
+     * Cancel the running Ivy work which has been launched with the given monitor, or with a
+     * wrapper of it. The work launched by other callers is left running.
+     *
+     * @param monitor
+     *            the monitor of the caller which is canceled
+     */
+    public void cancel(IProgressMonitor monitor) {
+        for (IvyTask task : runningTasks) {
+            if (task.isLaunchedWith(monitor)) {
+                task.cancel();
+            }
+        }
+    }
 
-        while (true) {
+    /**
+     * Cancel every running Ivy work. The interruption of Ivy, which can take some time, is done
+     * asynchronously; the threads waiting for the work are released once it has stopped, or once
+     * Ivy has given up interrupting it.
+     */
+    public void cancel() {
+        for (IvyTask task : runningTasks) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Cancel every running work and release the threads.
+     */
+    public synchronized void shutdown() {
+        cancel();
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+        executor = null;
+    }
+
+    private final class IvyTask implements Runnable {
+
+        private final Runnable runnable;
+
+        private final Ivy ivy;
+
+        private final IProgressMonitor monitor;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Thread thread;
+
+        private boolean canceled = false;
+
+        private IvyTask(Runnable runnable, Ivy ivy, IProgressMonitor monitor) {
+            this.runnable = runnable;
+            this.ivy = ivy;
+            this.monitor = monitor;
+        }
+
+        public void run() {
+            synchronized (this) {
+                if (canceled) {
+                    return;
+                }
+                thread = Thread.currentThread();
+            }
             try {
-                runnerThread.join(WAIT_FOR_JOIN);
-            } catch (InterruptedException e) {
-                ivy.interrupt(runnerThread);
-                return true;
+                runnable.run();
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                done.countDown();
+            }
+        }
+
+        private boolean await(long timeout) throws InterruptedException {
+            return done.await(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        private boolean isLaunchedWith(IProgressMonitor callerMonitor) {
+            IProgressMonitor m = monitor;
+            while (m != null) {
+                if (m == callerMonitor) {
+                    return true;
+                }
+                m = m instanceof ProgressMonitorWrapper
+                        ? ((ProgressMonitorWrapper) m).getWrappedProgressMonitor()
+                        : null;
             }
-            if (!runnerThread.isAlive()) {
-                return false;
+            return false;
+        }
+
+        private synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        private void cancel() {
+            final Thread operatingThread;
+            synchronized (this) {
+                if (canceled || done.getCount() == 0) {
+                    return;
+                }
+                canceled = true;
+                operatingThread = thread;
             }
-            if (monitor != null && monitor.isCanceled()) {
-                ivy.interrupt(runnerThread);
-                return true;
+            if (operatingThread == null) {
+                // not started yet, it won't be
+                done.countDown();
+                return;
             }
+            // Ivy may wait for the thread to stop, so don't block the canceling thread
+            Thread interrupter = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        ivy.interrupt(operatingThread);
+                    } catch (RuntimeException e) {
+                        // Ivy may try to stop the thread, which is not supported by recent JVMs
+                        IvyDEMessage.verbose("Ivy could not interrupt the resolve: "
+                                + e.getMessage());
+                    }
+                    if (done.getCount() != 0) {
+                        IvyDEMessage.warn("The canceled resolve is still running, giving up"
+                                + " waiting for it");
+                        done.countDown();
+                    }
+                }
+            }, "IvyDE resolve interrupter");
+            interrupter.setDaemon(true);
+            interrupter.start();
         }
     }
 
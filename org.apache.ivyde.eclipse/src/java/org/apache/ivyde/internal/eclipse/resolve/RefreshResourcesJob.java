@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.resolve;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Refresh some resources in a single workspace operation, so that only one resource delta is
+ * built. The resources which are in a folder also refreshed are skipped.
+ */
+public class RefreshResourcesJob extends WorkspaceJob {
+
+    private final List<IResource> resources;
+
+    public RefreshResourcesJob(Collection<? extends IResource> resources) {
+        super("IvyDE refresh of " + resources.size() + " resource(s)");
+        this.resources = filterNested(resources);
+    }
+
+    public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+        for (IResource resource : resources) {
+            if (monitor != null && monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+            // the new or deleted folders are refreshed with their content
+            resource.refreshLocal(IResource.DEPTH_INFINITE, null);
+        }
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * @return the resources to refresh, without the ones in a folder also refreshed
+     */
+    static List<IResource> filterNested(Collection<? extends IResource> resources) {
+        // a set, since every ancestor of every resource is looked up
+        Set<IResource> all = new HashSet<>(resources);
+        List<IResource> filtered = new ArrayList<>();
+        for (IResource resource : resources) {
+            if (!isNested(resource, all)) {
+                filtered.add(resource);
+            }
+        }
+        return filtered;
+    }
+
+    private static boolean isNested(IResource resource, Set<IResource> others) {
+        for (IResource parent = resource.getParent(); parent != null; parent = parent
+                .getParent()) {
+            if (others.contains(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
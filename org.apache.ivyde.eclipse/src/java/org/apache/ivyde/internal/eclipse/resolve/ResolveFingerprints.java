@@ -0,0 +1,182 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.resolve;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.HexEncoder;
+import org.apache.ivyde.eclipse.IvyDEException;
+import org.apache.ivyde.eclipse.cp.IvyClasspathContainer;
+import org.apache.ivyde.eclipse.cp.IvyClasspathContainerHelper;
+import org.apache.ivyde.internal.eclipse.CachedIvy;
+import org.apache.ivyde.internal.eclipse.IvyPlugin;
+import org.apache.ivyde.internal.eclipse.cpcontainer.IvyClasspathContainerImpl;
+import org.apache.ivyde.internal.eclipse.ui.preferences.PreferenceConstants;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+/**
+ * Fingerprints of the inputs of the last successful resolve of every container: the ivy.xml with
+ * the parent descriptors it extends and the configurations files it includes, the effective
+ * settings, the resolve options, the IvyDE preferences and, when resolving in the
+ * workspace, the Ivy projects of the workspace. They are persisted so that the incremental mode
+ * can skip the resolves which would produce the same result, even after a restart. The resolves
+ * of dynamic revisions or of changing modules have no fingerprint, since their result may change
+ * while their inputs don't.
+ */
+public class ResolveFingerprints {
+
+    private final Properties fingerprints = new Properties();
+
+    private final File file;
+
+    private boolean dirty = false;
+
+    public ResolveFingerprints(File file) {
+        this.file = file;
+        if (!file.exists()) {
+            return;
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            fingerprints.load(in);
+        } catch (IOException e) {
+            IvyPlugin.logWarn("IvyDE resolve fingerprints could not be loaded", e);
+        }
+    }
+
+    /**
+     * Compute the fingerprint of the inputs of a resolve.
+     *
+     * @return the fingerprint, <code>null</code> if it cannot be computed reliably
+     */
+    String compute(ResolveRequest request, ModuleDescriptor md) {
+        CachedIvy cachedIvy = request.getCachedIvy();
+        String settingsFingerprint = cachedIvy.getIvyFingerprint();
+        if (settingsFingerprint == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(settingsFingerprint);
+        File ivyFile;
+        try {
+            ivyFile = cachedIvy.getIvyFile();
+            builder.append(";ivy=").append(ChecksumHelper.computeAsString(ivyFile, "md5"));
+        } catch (IvyDEException | IOException e) {
+            return null;
+        }
+        Map<File, String> includedFiles = IvyPlugin.getDefault().getModuleDescriptorCache()
+                .getIncludedFiles(ivyFile, md);
+        if (includedFiles == null) {
+            return null;
+        }
+        builder.append(";included=").append(includedFiles);
+        builder.append(";module=").append(md.getModuleRevisionId());
+        request.getResolver().appendFingerprint(builder);
+        IPreferenceStore store = IvyPlugin.getDefault().getPreferenceStore();
+        for (String pref : new TreeSet<>(PreferenceConstants.ALL)) {
+            builder.append(';').append(pref).append('=').append(store.getString(pref));
+        }
+        if (request.isInWorkspace()) {
+            appendWorkspace(builder);
+        }
+        return digest(builder.toString());
+    }
+
+    private void appendWorkspace(StringBuilder builder) {
+        List<String> modules = new ArrayList<>();
+        for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+            if (!project.isAccessible()) {
+                continue;
+            }
+            for (IvyClasspathContainer container : IvyClasspathContainerHelper
+                    .getContainers(project)) {
+                try {
+                    File ivyFile = ((IvyClasspathContainerImpl) container).getState()
+                            .getIvyFile();
+                    modules.add(project.getName() + ":" + ivyFile + "@" + ivyFile.lastModified()
+                            + "/" + ivyFile.length());
+                } catch (IvyDEException e) {
+                    modules.add(project.getName() + ":<invalid>");
+                }
+            }
+        }
+        Collections.sort(modules);
+        builder.append(";workspace=").append(modules);
+    }
+
+    /**
+     * Check whether the last successful resolve of the request had the same fingerprint.
+     */
+    synchronized boolean isUpToDate(ResolveRequest request, String fingerprint) {
+        return fingerprint.equals(fingerprints.getProperty(getKey(request)));
+    }
+
+    synchronized void put(ResolveRequest request, String fingerprint) {
+        fingerprints.setProperty(getKey(request), fingerprint);
+        dirty = true;
+    }
+
+    synchronized void remove(ResolveRequest request) {
+        if (fingerprints.remove(getKey(request)) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Persist the fingerprints, if they have changed.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            fingerprints.store(out, "");
+            dirty = false;
+        } catch (IOException e) {
+            IvyPlugin.logWarn("IvyDE resolve fingerprints could not be saved", e);
+        }
+    }
+
+    private static String getKey(ResolveRequest request) {
+        return request.getResolver().getClass().getSimpleName() + ":"
+                + request.getCachedIvy().getId();
+    }
+
+    private static String digest(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            return HexEncoder.encode(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -31,8 +31,12 @@ public class ResolveRequest {
 
     private boolean forceFailOnError = false;
 
+    private boolean force = false;
+
     private boolean resolveFailed = false;
 
+    private boolean resolveSkipped = false;
+
     public ResolveRequest(IvyResolver resolver, CachedIvy cachedIvy) {
         this.resolver = resolver;
         this.cachedIvy = cachedIvy;
@@ -46,6 +50,18 @@ public class ResolveRequest {
         return forceFailOnError;
     }
 
+    /**
+     * @param force <code>true</code> if the resolve is explicitly requested by the end user, so
+     *            that the incremental mode never skips it
+     */
+    public void setForce(boolean force) {
+        this.force = force;
+    }
+
+    public boolean isForce() {
+        return force;
+    }
+
     public IvyResolver getResolver() {
         return resolver;
     }
@@ -78,6 +94,37 @@ public class ResolveRequest {
         return resolveFailed;
     }
 
+    public void setResolveSkipped(boolean resolveSkipped) {
+        this.resolveSkipped = resolveSkipped;
+    }
+
+    public boolean isResolveSkipped() {
+        return resolveSkipped;
+    }
+
+    /**
+     * Tell whether both requests can be merged: they must be about the same container or retrieve
+     * setup, and be handled by the same kind of resolver, since what is done with the result of
+     * the resolve depends on it. For instance a container is only updated by an
+     * IvyClasspathResolver.
+     */
+    boolean canMerge(ResolveRequest other) {
+        return cachedIvy == other.cachedIvy && resolver.getClass() == other.resolver.getClass();
+    }
+
+    /**
+     * Merge into this request the options of an older request on the same target, the strongest
+     * options winning: a full resolve beats a refresh, and failing on error and forcing the
+     * resolve are sticky.
+     */
+    void merge(ResolveRequest older) {
+        if (!older.resolver.isUsePreviousResolveIfExist()) {
+            resolver.setUsePreviousResolveIfExist(false);
+        }
+        forceFailOnError |= older.forceFailOnError;
+        force |= older.force;
+    }
+
     public String toString() {
         return resolver.toString();
     }
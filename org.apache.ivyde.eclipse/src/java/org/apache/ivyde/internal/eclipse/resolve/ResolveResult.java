@@ -18,6 +18,7 @@
 package org.apache.ivyde.internal.eclipse.resolve;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -44,6 +45,8 @@ public class ResolveResult {
 
     private final Map<ModuleRevisionId, Artifact[]> artifactsByDependency = new HashMap<>();
 
+    private final Map<ModuleRevisionId, Set<String>> confsByDependency = new HashMap<>();
+
     /**
      * Mapping of resolved artifact to their retrieved path, <code>null</code> if there were no
      * retrieve
@@ -108,6 +111,18 @@ public class ResolveResult {
         artifactsByDependency.put(resolvedId, allArtifacts);
     }
 
+    void addArtifactReports(String conf, ArtifactDownloadReport[] reports) {
+        for (ArtifactDownloadReport report : reports) {
+            ModuleRevisionId mrid = report.getArtifact().getModuleRevisionId();
+            Set<String> confs = confsByDependency.get(mrid);
+            if (confs == null) {
+                confs = new LinkedHashSet<>();
+                confsByDependency.put(mrid, confs);
+            }
+            confs.add(conf);
+        }
+    }
+
     /**
      * @return the reports of the artifacts resolved
      */
@@ -115,6 +130,15 @@ public class ResolveResult {
         return artifactReports;
     }
 
+    /**
+     * @param mrid the revision of a resolved dependency
+     * @return the resolved configurations which are pulling the dependency in
+     */
+    public Set<String> getConfs(ModuleRevisionId mrid) {
+        Set<String> confs = confsByDependency.get(mrid);
+        return confs == null ? Collections.<String> emptySet() : confs;
+    }
+
     /**
      * @return the reports of the artifacts by dependency
      */
@@ -17,31 +17,41 @@
  */
 package org.apache.ivyde.internal.eclipse.resolve;
 
-import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.WorkspaceJob;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 
-public class RefreshFolderJob extends WorkspaceJob {
+/**
+ * Progress monitor which can be shared by the resolves running concurrently in the
+ * {@link IvyResolveJob}: every report to the wrapped monitor is serialized.
+ */
+public class SynchronizedProgressMonitor extends ProgressMonitorWrapper {
+
+    public SynchronizedProgressMonitor(IProgressMonitor monitor) {
+        super(monitor);
+    }
+
+    public synchronized void beginTask(String name, int totalWork) {
+        super.beginTask(name, totalWork);
+    }
 
-    private final IResource folder;
+    public synchronized void done() {
+        super.done();
+    }
+
+    public synchronized void internalWorked(double work) {
+        super.internalWorked(work);
+    }
+
+    public synchronized void setTaskName(String name) {
+        super.setTaskName(name);
+    }
 
-    public RefreshFolderJob(IResource folder) {
-        super("IvyDE refresh " + folder);
-        this.folder = folder;
+    public synchronized void subTask(String name) {
+        super.subTask(name);
     }
 
-    public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
-        if (monitor != null && monitor.isCanceled()) {
-            return Status.CANCEL_STATUS;
-        }
-        folder.refreshLocal(IResource.DEPTH_INFINITE, monitor);
-        if (monitor != null && monitor.isCanceled()) {
-            return Status.CANCEL_STATUS;
-        }
-        return Status.OK_STATUS;
+    public synchronized void worked(int work) {
+        super.worked(work);
     }
 
 }
@@ -78,6 +78,8 @@ public class StandaloneRetrieveSerializer {
 
     private static final String RETRIEVE_PATTERN = "pattern";
 
+    private static final String RETRIEVE_MODE = "mode";
+
     private static final String RESOLVE_IN_WORKSPACE = "resolveInWorkspace";
 
     public void write(OutputStream out, List<StandaloneRetrieveSetup> setuplist)
@@ -188,6 +190,12 @@ public class StandaloneRetrieveSerializer {
         attr = document.createAttribute(RETRIEVE_SYNC);
         attr.setValue(Boolean.toString(retrieveSetup.isRetrieveSync()));
         attributes.setNamedItem(attr);
+
+        if (!RetrieveSetup.RETRIEVE_MODE_COPY.equals(retrieveSetup.getRetrieveMode())) {
+            attr = document.createAttribute(RETRIEVE_MODE);
+            attr.setValue(retrieveSetup.getRetrieveMode());
+            attributes.setNamedItem(attr);
+        }
     }
 
     public List<StandaloneRetrieveSetup> read(InputStream in, IProject project)
@@ -318,6 +326,12 @@ public class StandaloneRetrieveSerializer {
         String sync = getAttribute(attributes, RETRIEVE_SYNC);
         retrieveSetup.setRetrieveSync(Boolean.valueOf(sync));
 
+        // optional, the setups saved before the retrieve modes are copies
+        Node mode = attributes.getNamedItem(RETRIEVE_MODE);
+        if (mode != null) {
+            retrieveSetup.setRetrieveMode(mode.getNodeValue());
+        }
+
         return retrieveSetup;
     }
 
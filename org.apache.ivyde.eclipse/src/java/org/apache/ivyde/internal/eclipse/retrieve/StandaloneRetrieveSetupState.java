@@ -63,4 +63,10 @@ public class StandaloneRetrieveSetupState extends CachedIvy {
     protected boolean isTransitiveResolve() {
         return false;
     }
+
+    public String getId() {
+        IProject project = setup.getProject();
+        return (project == null ? "" : project.getName()) + ":" + setup.getName() + ":"
+                + setup.getRetrieveSetup().getRetrievePattern();
+    }
 }
@@ -17,6 +17,8 @@
  */
 package org.apache.ivyde.internal.eclipse.ui;
 
+import java.util.Arrays;
+
 import org.apache.ivyde.eclipse.cp.RetrieveSetup;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.swt.SWT;
@@ -25,6 +27,7 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
@@ -41,6 +44,13 @@ public class RetrieveComposite extends Composite {
     public static final String TOOLTIP_RETRIEVE_TYPES = "Comma separated list of types to retrieve"
             + "\nExample: '*' or 'jar,source'";
 
+    public static final String TOOLTIP_RETRIEVE_MODE = "How the artifacts are put into the"
+            + " retrieve folder\nA hard link is made only if the folder is on the same file system,"
+            + " otherwise the artifact is copied";
+
+    private static final String[] RETRIEVE_MODES = new String[] {RetrieveSetup.RETRIEVE_MODE_COPY,
+            RetrieveSetup.RETRIEVE_MODE_LINK, RetrieveSetup.RETRIEVE_MODE_STORE};
+
     private static final String DEFAULT_PATTERN = "/[type]s/[artifact]-[revision](-[classifier]).[ext]";
 
     private final PathEditor retrievePatternText;
@@ -51,6 +61,8 @@ public class RetrieveComposite extends Composite {
 
     private final Text typesText;
 
+    private final Combo modeCombo;
+
     public RetrieveComposite(Composite parent, int style, boolean withConf, IProject project) {
         super(parent, style);
         GridLayout layout = new GridLayout(2, false);
@@ -103,6 +115,15 @@ public class RetrieveComposite extends Composite {
         typesText.setLayoutData(new GridData(GridData.FILL, GridData.FILL, true, false));
         typesText.setToolTipText(TOOLTIP_RETRIEVE_TYPES);
 
+        label = new Label(this, SWT.NONE);
+        label.setText("Retrieve with:");
+
+        modeCombo = new Combo(this, SWT.READ_ONLY);
+        modeCombo.setLayoutData(new GridData(GridData.FILL, GridData.FILL, true, false));
+        modeCombo.setToolTipText(TOOLTIP_RETRIEVE_MODE);
+        modeCombo.add("Copies of the artifacts");
+        modeCombo.add("Hard links to the cache");
+        modeCombo.add("Hard links to a store shared by the projects");
     }
 
     public RetrieveSetup getRetrieveSetup() {
@@ -113,6 +134,7 @@ public class RetrieveComposite extends Composite {
             setup.setRetrieveConfs(confsText.getText());
         }
         setup.setRetrieveTypes(typesText.getText());
+        setup.setRetrieveMode(RETRIEVE_MODES[Math.max(0, modeCombo.getSelectionIndex())]);
         return setup;
     }
 
@@ -123,6 +145,8 @@ public class RetrieveComposite extends Composite {
             confsText.setText(setup.getRetrieveConfs());
         }
         typesText.setText(setup.getRetrieveTypes());
+        modeCombo.select(Math.max(0, Arrays.asList(RETRIEVE_MODES).indexOf(setup
+                .getRetrieveMode())));
         setEnabled(true);
     }
 
@@ -134,5 +158,6 @@ public class RetrieveComposite extends Composite {
             confsText.setEnabled(enabled);
         }
         typesText.setEnabled(enabled);
+        modeCombo.setEnabled(enabled);
     }
 }
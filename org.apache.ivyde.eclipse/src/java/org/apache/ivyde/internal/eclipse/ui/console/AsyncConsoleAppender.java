@@ -0,0 +1,274 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.ui.console;
+
+import org.apache.ivy.util.Message;
+
+/**
+ * Appends lines to the console from a dedicated thread, so that the threads logging, typically the
+ * resolve ones, never wait for the console. The lines are kept in a bounded buffer, and written by
+ * batches of consecutive lines of the same level.
+ * <p>
+ * When the buffer is full, the debug and verbose lines are dropped. A more important line takes the
+ * place of the oldest buffered debug or verbose line, or of the oldest line if there is none. So
+ * that this is done in constant time, the debug and verbose lines are kept in their own ring, and
+ * the lines of both rings are put back in order when written. The number of lost lines is reported
+ * in the console once there is room again.
+ */
+public abstract class AsyncConsoleAppender {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private final Object lock = new Object();
+
+    private final String name;
+
+    private final int capacity;
+
+    private final Ring importantLines;
+
+    /**
+     * The buffered debug and verbose lines
+     */
+    private final Ring detailedLines;
+
+    private long sequence = 0;
+
+    private int size = 0;
+
+    private int dropped = 0;
+
+    private boolean writing = false;
+
+    private boolean stopped = false;
+
+    private Thread thread;
+
+    public AsyncConsoleAppender(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        importantLines = new Ring(capacity);
+        detailedLines = new Ring(capacity);
+    }
+
+    /**
+     * Write some lines to the console.
+     *
+     * @param level the level of the lines
+     * @param text the lines, separated by a line feed
+     */
+    protected abstract void write(int level, String text);
+
+    public void append(int level, String line) {
+        synchronized (lock) {
+            if (stopped) {
+                return;
+            }
+            boolean detailed = level >= Message.MSG_VERBOSE;
+            if (size == capacity) {
+                dropped++;
+                if (detailed) {
+                    return;
+                }
+                if (detailedLines.size > 0) {
+                    detailedLines.removeOldest();
+                } else {
+                    importantLines.removeOldest();
+                }
+                size--;
+            }
+            (detailed ? detailedLines : importantLines).add(sequence++, level, line);
+            size++;
+            if (thread == null) {
+                thread = new Thread(new Runnable() {
+                    public void run() {
+                        drain();
+                    }
+                }, name);
+                thread.setDaemon(true);
+                thread.start();
+            } else if (size == 1) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the number of lines lost since the appender was created
+     */
+    public int getDropped() {
+        synchronized (lock) {
+            return dropped;
+        }
+    }
+
+    /**
+     * Wait for the lines appended so far to be written.
+     *
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return <code>true</code> if everything has been written
+     */
+    public boolean flush(long timeout) {
+        long end = System.currentTimeMillis() + timeout;
+        synchronized (lock) {
+            while (size > 0 || writing) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Stop the appender, once the pending lines are written. The lines appended afterwards are
+     * ignored.
+     */
+    public void stop() {
+        synchronized (lock) {
+            stopped = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void drain() {
+        int reportedDropped = 0;
+        while (true) {
+            int[] batchLevels;
+            String[] batchLines;
+            int count;
+            int newlyDropped;
+            synchronized (lock) {
+                while (size == 0 && !stopped) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // a daemon thread which is only stopped by stop()
+                    }
+                }
+                if (size == 0) {
+                    thread = null;
+                    lock.notifyAll();
+                    return;
+                }
+                count = size;
+                batchLevels = new int[count];
+                batchLines = new String[count];
+                for (int i = 0; i < count; i++) {
+                    // merge the rings back in the order of the lines
+                    Ring ring;
+                    if (detailedLines.size == 0) {
+                        ring = importantLines;
+                    } else if (importantLines.size == 0) {
+                        ring = detailedLines;
+                    } else {
+                        ring = importantLines.getOldestSequence() < detailedLines
+                                .getOldestSequence() ? importantLines : detailedLines;
+                    }
+                    batchLevels[i] = ring.getOldestLevel();
+                    batchLines[i] = ring.removeOldest();
+                }
+                size = 0;
+                writing = true;
+                newlyDropped = dropped - reportedDropped;
+                reportedDropped = dropped;
+            }
+            try {
+                if (newlyDropped > 0) {
+                    write(Message.MSG_WARN, "[IvyDE] " + newlyDropped
+                            + " line(s) not logged, the console could not keep up");
+                }
+                writeBatch(batchLevels, batchLines, count);
+            } finally {
+                synchronized (lock) {
+                    writing = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * A bounded queue of lines, with their level and their sequence number.
+     */
+    private static final class Ring {
+
+        private final long[] sequences;
+
+        private final int[] levels;
+
+        private final String[] lines;
+
+        private int head = 0;
+
+        private int size = 0;
+
+        private Ring(int capacity) {
+            sequences = new long[capacity];
+            levels = new int[capacity];
+            lines = new String[capacity];
+        }
+
+        private void add(long sequence, int level, String line) {
+            int tail = (head + size) % lines.length;
+            sequences[tail] = sequence;
+            levels[tail] = level;
+            lines[tail] = line;
+            size++;
+        }
+
+        private long getOldestSequence() {
+            return sequences[head];
+        }
+
+        private int getOldestLevel() {
+            return levels[head];
+        }
+
+        private String removeOldest() {
+            String line = lines[head];
+            lines[head] = null;
+            head = (head + 1) % lines.length;
+            size--;
+            return line;
+        }
+    }
+
+    private void writeBatch(int[] batchLevels, String[] batchLines, int count) {
+        StringBuilder text = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > start) {
+                text.append('\n');
+            }
+            text.append(batchLines[i]);
+            if (i + 1 == count || batchLevels[i + 1] != batchLevels[start]) {
+                write(batchLevels[start], text.toString());
+                text.setLength(0);
+                start = i + 1;
+            }
+        }
+    }
+}
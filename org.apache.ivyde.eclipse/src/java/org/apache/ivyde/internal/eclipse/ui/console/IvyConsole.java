@@ -56,6 +56,8 @@ public class IvyConsole extends MessageConsole implements MessageLogger {
 
     // CheckStyle:MagicNumber| ON
 
+    private static final long SHUTDOWN_TIMEOUT = 2000;
+
     private final ConsoleDocument document;
 
     private boolean initialized = false;
@@ -70,6 +72,13 @@ public class IvyConsole extends MessageConsole implements MessageLogger {
 
     private final IvyDEMessageLogger ivyDEMessageLogger;
 
+    private final AsyncConsoleAppender appender = new AsyncConsoleAppender("IvyDE console",
+            AsyncConsoleAppender.DEFAULT_CAPACITY) {
+        protected void write(int level, String text) {
+            writeLine(level, text);
+        }
+    };
+
     public IvyConsole() {
         this("Ivy", IvyPlugin.getImageDescriptor("icons/logo16x16.gif")); //$NON-NLS-1$
     }
@@ -182,7 +191,7 @@ public class IvyConsole extends MessageConsole implements MessageLogger {
         synchronized (document) {
             visible = true;
             for (ConsoleDocument.ConsoleLine line : document.getLines()) {
-                appendLine(line.getType(), line.getLine());
+                streams[line.getType()].println(line.getLine());
             }
             document.clear();
         }
@@ -196,7 +205,18 @@ public class IvyConsole extends MessageConsole implements MessageLogger {
         doAppendLine(level, line);
     }
 
+    /**
+     * Append a line to the console, regardless of the log level. The line is written
+     * asynchronously, so the calling thread never waits for the console.
+     *
+     * @param level the level of the line
+     * @param line the line
+     */
     public void doAppendLine(int level, String line) {
+        appender.append(level, line);
+    }
+
+    private void writeLine(int level, String line) {
         showConsole();
         synchronized (document) {
             if (visible) {
@@ -253,6 +273,15 @@ public class IvyConsole extends MessageConsole implements MessageLogger {
         }
     }
 
+    /**
+     * Write the pending lines and stop the thread writing them. To be called when the plugin
+     * stops, before the console is destroyed.
+     */
+    public void shutdown() {
+        appender.stop();
+        appender.flush(SHUTDOWN_TIMEOUT);
+    }
+
     /**
      * Show the console.
      *
@@ -28,7 +28,7 @@ public class IvyDEMessageLogger implements MessageLogger {
 
     private final IvyConsole console;
 
-    private int logLevel;
+    private volatile int logLevel;
 
     public IvyDEMessageLogger(IvyConsole console) {
         this.console = console;
@@ -44,8 +44,12 @@ public class IvyDEMessageLogger implements MessageLogger {
         return logLevel;
     }
 
+    public boolean isEnabled(int level) {
+        return level <= logLevel;
+    }
+
     public void log(String msg, int level) {
-        if (level <= logLevel) {
+        if (isEnabled(level)) {
             console.doAppendLine(level, "[IvyDE] " + msg);
         }
     }
@@ -46,7 +46,9 @@ public class RetrieveAction extends Action {
         resolver.setRetrievePattern(retrieveSetup.getRetrievePattern());
         resolver.setRetrieveSync(retrieveSetup.isRetrieveSync());
         resolver.setRetrieveTypes(retrieveSetup.getRetrieveTypes());
+        resolver.setRetrieveMode(retrieveSetup.getRetrieveMode());
         ResolveRequest request = new ResolveRequest(resolver, setup.getState());
+        request.setForce(true);
         ivyResolveJob.addRequest(request);
     }
 }
@@ -17,6 +17,9 @@
  */
 package org.apache.ivyde.internal.eclipse.ui.preferences;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.ivyde.eclipse.cp.AdvancedSetup;
 import org.apache.ivyde.eclipse.cp.ClasspathSetup;
 import org.apache.ivyde.eclipse.cp.MappingSetup;
@@ -31,8 +34,33 @@ public class IvyDEPreferenceStoreHelper {
 
     private final IPreferenceStore prefStore;
 
+    /*
+     * Snapshots of the setups, read from the store only when some preference has changed. They are
+     * shared by every caller, so they must not be modified.
+     */
+
+    private volatile SettingsSetup settingsSetup;
+
+    private volatile ClasspathSetup classpathSetup;
+
+    private volatile MappingSetup mappingSetup;
+
+    private volatile AdvancedSetup advancedSetup;
+
     public IvyDEPreferenceStoreHelper(IPreferenceStore prefStore) {
         this.prefStore = prefStore;
+        refreshSetups();
+    }
+
+    /**
+     * Read the setups again from the preference store. The previous snapshots are kept as is, for
+     * the callers which are still using them.
+     */
+    public void refreshSetups() {
+        settingsSetup = readSettingsSetup();
+        classpathSetup = readClasspathSetup();
+        mappingSetup = readMappingSetup();
+        advancedSetup = readAdvancedSetup();
     }
 
     public String getIvyOrg() {
@@ -51,14 +79,20 @@ public class IvyDEPreferenceStoreHelper {
         prefStore.setValue(PreferenceConstants.ORGANISATION_URL, url);
     }
 
+    /**
+     * @return the settings setup of the preferences, shared so read only
+     */
     public SettingsSetup getSettingsSetup() {
+        return settingsSetup;
+    }
+
+    private SettingsSetup readSettingsSetup() {
         SettingsSetup setup = new SettingsSetup();
         setup.setIvySettingsPath(prefStore.getString(PreferenceConstants.IVYSETTINGS_PATH));
         setup.setLoadSettingsOnDemand(prefStore
                 .getBoolean(PreferenceConstants.LOAD_SETTINGS_ON_DEMAND));
         setup.setIvyUserDir(prefStore.getString(PreferenceConstants.IVY_USER_DIR));
-        setup.setPropertyFiles(IvyClasspathUtil.split(prefStore
-                .getString(PreferenceConstants.PROPERTY_FILES)));
+        setup.setPropertyFiles(readList(PreferenceConstants.PROPERTY_FILES));
         return setup;
     }
 
@@ -71,13 +105,19 @@ public class IvyDEPreferenceStoreHelper {
             setup.isLoadSettingsOnDemand());
     }
 
+    /**
+     * @return the classpath setup of the preferences, shared so read only
+     */
     public ClasspathSetup getClasspathSetup() {
+        return classpathSetup;
+    }
+
+    private ClasspathSetup readClasspathSetup() {
         ClasspathSetup setup = new ClasspathSetup();
         setup.setResolveInWorkspace(prefStore.getBoolean(PreferenceConstants.RESOLVE_IN_WORKSPACE));
         setup.setTransitiveResolve(prefStore.getBoolean(PreferenceConstants.TRANSITIVE_RESOLVE));
         setup.setReadOSGiMetadata(prefStore.getBoolean(PreferenceConstants.READ_OSGI_METADATA));
-        setup.setAcceptedTypes(IvyClasspathUtil.split(prefStore
-                .getString(PreferenceConstants.ACCEPTED_TYPES)));
+        setup.setAcceptedTypes(readList(PreferenceConstants.ACCEPTED_TYPES));
         setup.setAlphaOrder(prefStore.getBoolean(PreferenceConstants.ALPHABETICAL_ORDER));
         setup.setRetrievedClasspath(prefStore.getBoolean(PreferenceConstants.RETRIEVED_CLASSPATH));
         RetrieveSetup retrieveSetup = new RetrieveSetup();
@@ -87,6 +127,8 @@ public class IvyDEPreferenceStoreHelper {
                 .getBoolean(PreferenceConstants.RETRIEVED_CLASSPATH_SYNC));
         retrieveSetup.setRetrieveTypes(prefStore
                 .getString(PreferenceConstants.RETRIEVED_CLASSPATH_TYPES));
+        retrieveSetup.setRetrieveMode(prefStore
+                .getString(PreferenceConstants.RETRIEVED_CLASSPATH_MODE));
         setup.setRetrieveSetup(retrieveSetup);
         return setup;
     }
@@ -106,18 +148,23 @@ public class IvyDEPreferenceStoreHelper {
             retrieveSetup.isRetrieveSync());
         prefStore.setValue(PreferenceConstants.RETRIEVED_CLASSPATH_TYPES,
             retrieveSetup.getRetrieveTypes());
+        prefStore.setValue(PreferenceConstants.RETRIEVED_CLASSPATH_MODE,
+            retrieveSetup.getRetrieveMode());
     }
 
+    /**
+     * @return the mapping setup of the preferences, shared so read only
+     */
     public MappingSetup getMappingSetup() {
+        return mappingSetup;
+    }
+
+    private MappingSetup readMappingSetup() {
         MappingSetup setup = new MappingSetup();
-        setup.setSourceTypes(IvyClasspathUtil.split(prefStore
-                .getString(PreferenceConstants.SOURCES_TYPES)));
-        setup.setJavadocTypes(IvyClasspathUtil.split(prefStore
-                .getString(PreferenceConstants.JAVADOC_TYPES)));
-        setup.setSourceSuffixes(IvyClasspathUtil.split(prefStore
-                .getString(PreferenceConstants.SOURCES_SUFFIXES)));
-        setup.setJavadocSuffixes(IvyClasspathUtil.split(prefStore
-                .getString(PreferenceConstants.JAVADOC_SUFFIXES)));
+        setup.setSourceTypes(readList(PreferenceConstants.SOURCES_TYPES));
+        setup.setJavadocTypes(readList(PreferenceConstants.JAVADOC_TYPES));
+        setup.setSourceSuffixes(readList(PreferenceConstants.SOURCES_SUFFIXES));
+        setup.setJavadocSuffixes(readList(PreferenceConstants.JAVADOC_SUFFIXES));
         setup.setMapIfOnlyOneSource(prefStore
                 .getBoolean(PreferenceConstants.MAP_IF_ONLY_ONE_SOURCE));
         setup.setMapIfOnlyOneJavadoc(prefStore
@@ -140,7 +187,14 @@ public class IvyDEPreferenceStoreHelper {
             setup.isMapIfOnlyOneJavadoc());
     }
 
+    /**
+     * @return the advanced setup of the preferences, shared so read only
+     */
     public AdvancedSetup getAdvancedSetup() {
+        return advancedSetup;
+    }
+
+    private AdvancedSetup readAdvancedSetup() {
         AdvancedSetup setup = new AdvancedSetup();
         setup.setResolveBeforeLaunch(prefStore
                 .getBoolean(PreferenceConstants.RESOLVE_BEFORE_LAUNCH));
@@ -149,6 +203,10 @@ public class IvyDEPreferenceStoreHelper {
         return setup;
     }
 
+    private List<String> readList(String name) {
+        return Collections.unmodifiableList(IvyClasspathUtil.split(prefStore.getString(name)));
+    }
+
     public void setAdvancedSetup(AdvancedSetup setup) {
         prefStore
                 .setValue(PreferenceConstants.RESOLVE_BEFORE_LAUNCH, setup.isResolveBeforeLaunch());
@@ -304,4 +362,28 @@ public class IvyDEPreferenceStoreHelper {
         prefStore.setValue(PreferenceConstants.ERROR_POPUP, errorPopup);
     }
 
+    public int getResolveConcurrency() {
+        return prefStore.getInt(PreferenceConstants.RESOLVE_CONCURRENCY);
+    }
+
+    public void setResolveConcurrency(int resolveConcurrency) {
+        prefStore.setValue(PreferenceConstants.RESOLVE_CONCURRENCY, resolveConcurrency);
+    }
+
+    public boolean isResolveIncremental() {
+        return prefStore.getBoolean(PreferenceConstants.RESOLVE_INCREMENTAL);
+    }
+
+    public void setResolveIncremental(boolean resolveIncremental) {
+        prefStore.setValue(PreferenceConstants.RESOLVE_INCREMENTAL, resolveIncremental);
+    }
+
+    public boolean isDeferAttachmentDownload() {
+        return prefStore.getBoolean(PreferenceConstants.DEFER_ATTACHMENT_DOWNLOAD);
+    }
+
+    public void setDeferAttachmentDownload(boolean deferAttachmentDownload) {
+        prefStore.setValue(PreferenceConstants.DEFER_ATTACHMENT_DOWNLOAD, deferAttachmentDownload);
+    }
+
 }
@@ -29,6 +29,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
@@ -70,6 +71,12 @@ public class IvyPreferencePage extends PreferencePage implements IWorkbenchPrefe
 
     private Button errorPopupButton;
 
+    private Spinner resolveConcurrencySpinner;
+
+    private Button resolveIncrementalButton;
+
+    private Button deferAttachmentDownloadButton;
+
     public IvyPreferencePage() {
         setPreferenceStore(IvyPlugin.getDefault().getPreferenceStore());
         Object ivydeVersion = IvyPlugin.getDefault().getBundle().getHeaders().get(
@@ -157,6 +164,36 @@ public class IvyPreferencePage extends PreferencePage implements IWorkbenchPrefe
         errorPopupButton.setLayoutData(new GridData(GridData.FILL, GridData.FILL, true, false, 3, 1));
         errorPopupButton.setText("Open a popup on each failed resolve");
 
+        resolveIncrementalButton = new Button(composite, SWT.CHECK);
+        resolveIncrementalButton.setLayoutData(new GridData(GridData.FILL, GridData.FILL, true,
+                false, 3, 1));
+        resolveIncrementalButton.setText("Skip the resolve of unchanged containers");
+        resolveIncrementalButton.setToolTipText("Keep the last resolve of a container when its"
+                + " ivy.xml, its settings and its configuration have not changed");
+
+        deferAttachmentDownloadButton = new Button(composite, SWT.CHECK);
+        deferAttachmentDownloadButton.setLayoutData(new GridData(GridData.FILL, GridData.FILL,
+                true, false, 3, 1));
+        deferAttachmentDownloadButton.setText("Download the sources and javadocs after setting"
+                + " the classpath");
+        deferAttachmentDownloadButton.setToolTipText("Set the classpath as soon as it is resolved,"
+                + " and attach the sources and javadocs to download once they are downloaded");
+
+        Composite concurrencyComposite = new Composite(composite, SWT.NONE);
+        concurrencyComposite.setLayoutData(new GridData(GridData.FILL, GridData.FILL, true,
+                false));
+        GridLayout concurrencyLayout = new GridLayout(2, false);
+        concurrencyLayout.marginWidth = 0;
+        concurrencyComposite.setLayout(concurrencyLayout);
+
+        label = new Label(concurrencyComposite, SWT.NONE);
+        label.setText("Number of concurrent resolves:");
+        label.setToolTipText("How many containers can be resolved at the same time;"
+                + " 1 resolves them one after another");
+        resolveConcurrencySpinner = new Spinner(concurrencyComposite, SWT.BORDER);
+        resolveConcurrencySpinner.setMinimum(1);
+        resolveConcurrencySpinner.setMaximum(64);
+
         // CheckStyle:MagicNumber| ON
 
         initPreferences();
@@ -194,6 +231,9 @@ public class IvyPreferencePage extends PreferencePage implements IWorkbenchPrefe
 
         offlineButton.setSelection(helper.isOffline());
         errorPopupButton.setSelection(helper.isErrorPopup());
+        resolveConcurrencySpinner.setSelection(helper.getResolveConcurrency());
+        resolveIncrementalButton.setSelection(helper.isResolveIncremental());
+        deferAttachmentDownloadButton.setSelection(helper.isDeferAttachmentDownload());
     }
 
     public boolean performOk() {
@@ -220,6 +260,9 @@ public class IvyPreferencePage extends PreferencePage implements IWorkbenchPrefe
 
         helper.setOffline(offlineButton.getSelection());
         helper.setErrorPopup(errorPopupButton.getSelection());
+        helper.setResolveConcurrency(resolveConcurrencySpinner.getSelection());
+        helper.setResolveIncremental(resolveIncrementalButton.getSelection());
+        helper.setDeferAttachmentDownload(deferAttachmentDownloadButton.getSelection());
         return true;
     }
 
@@ -253,5 +296,9 @@ public class IvyPreferencePage extends PreferencePage implements IWorkbenchPrefe
 
         offlineButton.setSelection(PreferenceInitializer.DEFAULT_OFFLINE);
         errorPopupButton.setSelection(PreferenceInitializer.DEFAULT_ERROR_POPUP);
+        resolveConcurrencySpinner.setSelection(PreferenceInitializer.DEFAULT_RESOLVE_CONCURRENCY);
+        resolveIncrementalButton.setSelection(PreferenceInitializer.DEFAULT_RESOLVE_INCREMENTAL);
+        deferAttachmentDownloadButton
+                .setSelection(PreferenceInitializer.DEFAULT_DEFER_ATTACHMENT_DOWNLOAD);
     }
 }
@@ -123,6 +123,8 @@ public final class PreferenceConstants {
 
     public static final String RETRIEVED_CLASSPATH_TYPES = "retrievedClasspath.types";
 
+    public static final String RETRIEVED_CLASSPATH_MODE = "retrievedClasspath.mode";
+
     public static final String MAP_IF_ONLY_ONE_SOURCE = "mapIfOnlyOneSource";
 
     public static final String MAP_IF_ONLY_ONE_JAVADOC = "mapIfOnlyOneJavadoc";
@@ -131,6 +133,12 @@ public final class PreferenceConstants {
 
     public static final String ERROR_POPUP = "error.popup";
 
+    public static final String RESOLVE_CONCURRENCY = "resolve.concurrency";
+
+    public static final String RESOLVE_INCREMENTAL = "resolve.incremental";
+
+    public static final String DEFER_ATTACHMENT_DOWNLOAD = "attachment.defer";
+
     public static final Set<String> ALL = new HashSet<>();
 
     static {
@@ -76,12 +76,15 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
 
     private static final String DEFAULT_RETRIEVED_CLASSPATH_TYPES = "jar";
 
+    private static final String DEFAULT_RETRIEVED_CLASSPATH_MODE = RetrieveSetup.RETRIEVE_MODE_COPY;
+
     public static final RetrieveSetup DEFAULT_RETRIEVED_CLASSPATH_SETUP = new RetrieveSetup();
 
     static {
         DEFAULT_RETRIEVED_CLASSPATH_SETUP.setRetrievePattern(DEFAULT_RETRIEVED_CLASSPATH_PATTERN);
         DEFAULT_RETRIEVED_CLASSPATH_SETUP.setRetrieveSync(DEFAULT_RETRIEVED_CLASSPATH_SYNC);
         DEFAULT_RETRIEVED_CLASSPATH_SETUP.setRetrieveTypes(DEFAULT_RETRIEVED_CLASSPATH_TYPES);
+        DEFAULT_RETRIEVED_CLASSPATH_SETUP.setRetrieveMode(DEFAULT_RETRIEVED_CLASSPATH_MODE);
     }
 
     public static final ClasspathSetup DEFAULT_CLASSPATH_SETUP = new ClasspathSetup();
@@ -152,6 +155,12 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
 
     public static final boolean DEFAULT_ERROR_POPUP = true;
 
+    public static final int DEFAULT_RESOLVE_CONCURRENCY = 1;
+
+    public static final boolean DEFAULT_RESOLVE_INCREMENTAL = false;
+
+    public static final boolean DEFAULT_DEFER_ATTACHMENT_DOWNLOAD = false;
+
     public void initializeDefaultPreferences() {
         IPreferenceStore store = IvyPlugin.getDefault().getPreferenceStore();
         store.setDefault(PreferenceConstants.P_BOOLEAN, true);
@@ -212,9 +221,15 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
             DEFAULT_RETRIEVED_CLASSPATH_SYNC);
         store.setDefault(PreferenceConstants.RETRIEVED_CLASSPATH_TYPES,
             DEFAULT_RETRIEVED_CLASSPATH_TYPES);
+        store.setDefault(PreferenceConstants.RETRIEVED_CLASSPATH_MODE,
+            DEFAULT_RETRIEVED_CLASSPATH_MODE);
 
         store.setDefault(PreferenceConstants.OFFLINE, DEFAULT_OFFLINE);
         store.setDefault(PreferenceConstants.ERROR_POPUP, DEFAULT_ERROR_POPUP);
+        store.setDefault(PreferenceConstants.RESOLVE_CONCURRENCY, DEFAULT_RESOLVE_CONCURRENCY);
+        store.setDefault(PreferenceConstants.RESOLVE_INCREMENTAL, DEFAULT_RESOLVE_INCREMENTAL);
+        store.setDefault(PreferenceConstants.DEFER_ATTACHMENT_DOWNLOAD,
+            DEFAULT_DEFER_ATTACHMENT_DOWNLOAD);
     }
 
     private String asString(RGB value) {
@@ -0,0 +1,373 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.workspaceresolver;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.osgi.core.ManifestHeaderElement;
+import org.apache.ivy.osgi.core.ManifestHeaderValue;
+import org.apache.ivyde.eclipse.IvyDEException;
+import org.apache.ivyde.eclipse.cp.IvyClasspathContainer;
+import org.apache.ivyde.eclipse.cp.IvyClasspathContainerHelper;
+import org.apache.ivyde.internal.eclipse.IvyDEMessage;
+import org.apache.ivyde.internal.eclipse.IvyPlugin;
+import org.apache.ivyde.internal.eclipse.cpcontainer.IvyClasspathContainerImpl;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+
+/**
+ * Index of the modules published by the Ivy containers of the workspace, so that the
+ * {@link WorkspaceResolver} doesn't have to walk through every container of every project for
+ * each dependency.
+ * <p>
+ * The containers of a project are read again only when the project has changed: opened, closed,
+ * added, removed, its classpath changed, one of its ivy.xml files changed or the descriptor of one
+ * of its containers parsed again. The lookup maps are then rebuilt on the next lookup.
+ */
+public class WorkspaceModuleIndex implements IResourceChangeListener, IElementChangedListener {
+
+    /**
+     * A container of the workspace which publishes a module.
+     */
+    public static final class Candidate {
+
+        private final IProject project;
+
+        private final ModuleDescriptor md;
+
+        /**
+         * The OSGi packages exported by the module, mapped to their version, parsed once from the
+         * Export-Package header of the descriptor.
+         */
+        private final Map<String, String> exportedPackages;
+
+        private Candidate(IProject project, ModuleDescriptor md,
+                Map<String, String> exportedPackages) {
+            this.project = project;
+            this.md = md;
+            this.exportedPackages = exportedPackages;
+        }
+
+        public IProject getProject() {
+            return project;
+        }
+
+        public ModuleDescriptor getModuleDescriptor() {
+            return md;
+        }
+
+        /**
+         * @param pkg the name of an OSGi package exported by the module
+         * @return the version of the exported package, <code>null</code> if it is not specified
+         */
+        public String getExportedPackageVersion(String pkg) {
+            return exportedPackages.get(pkg);
+        }
+    }
+
+    /**
+     * Immutable lookup maps, replaced as a whole when the index is rebuilt.
+     */
+    private static final class Lookup {
+
+        private final Map<ModuleId, List<Candidate>> byModuleId = new HashMap<>();
+
+        private final Map<String, List<Candidate>> bySymbolicName = new HashMap<>();
+
+        private final Map<String, List<Candidate>> byExportedPackage = new HashMap<>();
+
+        private static <K> void add(Map<K, List<Candidate>> map, K key, Candidate candidate) {
+            List<Candidate> candidates = map.get(key);
+            if (candidates == null) {
+                candidates = new ArrayList<>();
+                map.put(key, candidates);
+            }
+            candidates.add(candidate);
+        }
+    }
+
+    private final Map<IProject, List<Candidate>> candidatesByProject = new LinkedHashMap<>();
+
+    private final Map<IProject, List<File>> ivyFilesByProject = new HashMap<>();
+
+    private final Set<IProject> dirtyProjects = Collections
+            .newSetFromMap(new ConcurrentHashMap<IProject, Boolean>());
+
+    private final AtomicBoolean allDirty = new AtomicBoolean(true);
+
+    private final AtomicLong changes = new AtomicLong();
+
+    private volatile Lookup lookup;
+
+    /**
+     * The ivy.xml files of the last rebuild, watched even while the lookup is to be rebuilt
+     */
+    private volatile Set<File> ivyFiles = Collections.emptySet();
+
+    public List<Candidate> findByModuleId(ModuleId mid) {
+        return nonNull(getLookup().byModuleId.get(mid));
+    }
+
+    public List<Candidate> findBySymbolicName(String symbolicName) {
+        return nonNull(getLookup().bySymbolicName.get(symbolicName));
+    }
+
+    /**
+     * @param pkg the name of an OSGi package
+     * @return the candidates which export the package
+     */
+    public List<Candidate> findByExportedPackage(String pkg) {
+        return nonNull(getLookup().byExportedPackage.get(pkg));
+    }
+
+    private static List<Candidate> nonNull(List<Candidate> candidates) {
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        return candidates;
+    }
+
+    private Lookup getLookup() {
+        Lookup current = lookup;
+        if (current != null) {
+            return current;
+        }
+        return rebuild();
+    }
+
+    private synchronized Lookup rebuild() {
+        if (lookup != null) {
+            return lookup;
+        }
+        long startChanges = changes.get();
+        if (allDirty.getAndSet(false)) {
+            candidatesByProject.clear();
+            ivyFilesByProject.clear();
+        }
+        Set<IProject> dirty = new HashSet<>();
+        Iterator<IProject> it = dirtyProjects.iterator();
+        while (it.hasNext()) {
+            dirty.add(it.next());
+            it.remove();
+        }
+        IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+        Map<IProject, List<Candidate>> previous = new HashMap<>(candidatesByProject);
+        candidatesByProject.clear();
+        int indexed = 0;
+        for (IProject project : projects) {
+            List<Candidate> candidates = previous.get(project);
+            if (candidates == null || dirty.contains(project)) {
+                candidates = indexProject(project, candidates);
+                indexed++;
+            }
+            candidatesByProject.put(project, candidates);
+        }
+        ivyFilesByProject.keySet().retainAll(candidatesByProject.keySet());
+
+        // the extra infos are only available since Ivy 2.4
+        boolean osgi = IvyPlugin.getDefault().isIvyVersionGreaterOrEqual(2, 4, 0);
+        Lookup newLookup = new Lookup();
+        for (List<Candidate> candidates : candidatesByProject.values()) {
+            for (Candidate candidate : candidates) {
+                ModuleDescriptor md = candidate.md;
+                Lookup.add(newLookup.byModuleId, md.getModuleRevisionId().getModuleId(),
+                    candidate);
+                if (!osgi) {
+                    continue;
+                }
+                String symbolicName = md.getExtraInfoContentByTagName("Bundle-SymbolicName");
+                if (symbolicName != null) {
+                    Lookup.add(newLookup.bySymbolicName, symbolicName, candidate);
+                }
+                for (String pkg : candidate.exportedPackages.keySet()) {
+                    Lookup.add(newLookup.byExportedPackage, pkg, candidate);
+                }
+            }
+        }
+        Set<File> newIvyFiles = new HashSet<>();
+        for (List<File> files : ivyFilesByProject.values()) {
+            newIvyFiles.addAll(files);
+        }
+        ivyFiles = newIvyFiles;
+        IvyDEMessage.verbose("Workspace module index rebuilt: " + indexed + " project(s) read, "
+                + newLookup.byModuleId.size() + " module(s) indexed");
+        if (changes.get() == startChanges) {
+            // if some change happened meanwhile, the next lookup will rebuild again
+            lookup = newLookup;
+        }
+        return newLookup;
+    }
+
+    private List<Candidate> indexProject(IProject project, List<Candidate> previous) {
+        List<Candidate> candidates = new ArrayList<>();
+        List<File> ivyFiles = new ArrayList<>();
+        if (project.isAccessible()) {
+            for (IvyClasspathContainer container : IvyClasspathContainerHelper
+                    .getContainers(project)) {
+                IvyClasspathContainerImpl ivycp = (IvyClasspathContainerImpl) container;
+                try {
+                    ivyFiles.add(ivycp.getState().getIvyFile());
+                } catch (IvyDEException e) {
+                    // the descriptor won't be found either
+                }
+                ModuleDescriptor md = ivycp.getState().getCachedModuleDescriptor();
+                if (md != null) {
+                    candidates.add(new Candidate(project, md, getExportedPackages(md, previous)));
+                }
+            }
+        }
+        ivyFilesByProject.put(project, ivyFiles);
+        return candidates;
+    }
+
+    private Map<String, String> getExportedPackages(ModuleDescriptor md,
+            List<Candidate> previous) {
+        if (previous != null) {
+            // the parsed descriptors are shared, so an unchanged one is the very same instance
+            for (Candidate candidate : previous) {
+                if (candidate.md == md) {
+                    return candidate.exportedPackages;
+                }
+            }
+        }
+        // the extra infos are only available since Ivy 2.4
+        if (!IvyPlugin.getDefault().isIvyVersionGreaterOrEqual(2, 4, 0)) {
+            return Collections.emptyMap();
+        }
+        String header = md.getExtraInfoContentByTagName("Export-Package");
+        if (header == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> exportedPackages = new HashMap<>();
+        try {
+            for (ManifestHeaderElement element : new ManifestHeaderValue(header).getElements()) {
+                String version = element.getAttributes().get("version");
+                for (String pkg : element.getValues()) {
+                    if (!exportedPackages.containsKey(pkg)) {
+                        exportedPackages.put(pkg, version);
+                    }
+                }
+            }
+        } catch (ParseException e) {
+            IvyDEMessage.warn("Unable to parse the exported packages of "
+                    + md.getModuleRevisionId() + ": " + e.getMessage());
+        }
+        return exportedPackages;
+    }
+
+    /**
+     * Mark a project to be indexed again on the next lookup.
+     * <p>
+     * This is called from the resource and Java model listeners, so it must never block on a
+     * rebuild.
+     */
+    public void invalidate(IProject project) {
+        dirtyProjects.add(project);
+        changes.incrementAndGet();
+        lookup = null;
+    }
+
+    public void invalidateAll() {
+        allDirty.set(true);
+        changes.incrementAndGet();
+        lookup = null;
+    }
+
+    public void resourceChanged(IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if (delta == null) {
+            return;
+        }
+        final Set<File> watched = ivyFiles;
+        try {
+            delta.accept(new IResourceDeltaVisitor() {
+                public boolean visit(IResourceDelta d) {
+                    IResource resource = d.getResource();
+                    switch (resource.getType()) {
+                        case IResource.ROOT:
+                            return true;
+                        case IResource.PROJECT:
+                            if (d.getKind() != IResourceDelta.CHANGED
+                                    || (d.getFlags() & IResourceDelta.OPEN) != 0) {
+                                invalidate((IProject) resource);
+                                return false;
+                            }
+                            return true;
+                        case IResource.FILE:
+                            if (resource.getLocation() != null
+                                    && watched.contains(resource.getLocation().toFile())) {
+                                invalidate(resource.getProject());
+                            }
+                            return false;
+                        default:
+                            return true;
+                    }
+                }
+            });
+        } catch (CoreException e) {
+            IvyPlugin.log(e);
+            invalidateAll();
+        }
+    }
+
+    public void elementChanged(ElementChangedEvent event) {
+        visit(event.getDelta());
+    }
+
+    private void visit(IJavaElementDelta delta) {
+        IJavaElement element = delta.getElement();
+        if (element.getElementType() == IJavaElement.JAVA_PROJECT) {
+            if ((delta.getFlags() & (IJavaElementDelta.F_CLASSPATH_CHANGED
+                    | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0
+                    || delta.getKind() != IJavaElementDelta.CHANGED) {
+                invalidate(element.getJavaProject().getProject());
+            }
+            return;
+        }
+        if (element.getElementType() == IJavaElement.JAVA_MODEL) {
+            for (IJavaElementDelta child : delta.getAffectedChildren()) {
+                visit(child);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.ivy.Ivy;
@@ -46,19 +47,13 @@ import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.osgi.core.BundleInfo;
-import org.apache.ivy.osgi.core.ManifestHeaderElement;
-import org.apache.ivy.osgi.core.ManifestHeaderValue;
 import org.apache.ivy.plugins.resolver.AbstractResolver;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
 import org.apache.ivy.plugins.version.VersionMatcher;
 import org.apache.ivy.util.Message;
-import org.apache.ivyde.eclipse.cp.IvyClasspathContainer;
-import org.apache.ivyde.eclipse.cp.IvyClasspathContainerHelper;
 import org.apache.ivyde.internal.eclipse.IvyDEMessage;
 import org.apache.ivyde.internal.eclipse.IvyPlugin;
-import org.apache.ivyde.internal.eclipse.cpcontainer.IvyClasspathContainerImpl;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.ResourcesPlugin;
 
 /**
  * This is an Eclipse workspace Ivy resolver. When used with the custom IvyClasspathContainer
@@ -109,8 +104,6 @@ public class WorkspaceResolver extends AbstractResolver {
 
     public static final String IVYDE_WORKSPACE_ARTIFACT_REPORTS = "IvyDEWorkspaceArtifactReports";
 
-    private final IProject[] projects;
-
     private final boolean ignoreBranchOnWorkspaceProjects;
 
     private final boolean ignoreVersionOnWorkspaceProjects;
@@ -123,8 +116,6 @@ public class WorkspaceResolver extends AbstractResolver {
         setSettings(ivySettings);
         setCache(CACHE_NAME);
 
-        projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
-
         ignoreBranchOnWorkspaceProjects = IvyPlugin.getPreferenceStoreHelper()
                 .getIgnoreBranchOnWorkspaceProjects();
 
@@ -194,142 +185,132 @@ public class WorkspaceResolver extends AbstractResolver {
 
         VersionMatcher versionMatcher = getSettings().getVersionMatcher();
 
-        // Iterate over workspace to find Java project which has an Ivy
-        // container for this dependency
-        for (IProject p : projects) {
-            if (!p.exists()) {
-                continue;
-            }
-            for (IvyClasspathContainer container : IvyClasspathContainerHelper.getContainers(p)) {
-                ModuleDescriptor md = ((IvyClasspathContainerImpl) container).getState().getCachedModuleDescriptor();
-                if (md == null) {
-                    continue;
-                }
-                ModuleRevisionId candidateMrid = md.getModuleRevisionId();
+        // Lookup the projects of the workspace which have an Ivy container for this dependency
+        WorkspaceModuleIndex index = IvyPlugin.getDefault().getWorkspaceModuleIndex();
+        List<WorkspaceModuleIndex.Candidate> candidates;
+        if (osgiResolveInWorkspaceAvailable && org.equals(BundleInfo.BUNDLE_TYPE)) {
+            candidates = index.findBySymbolicName(module);
+        } else if (osgiResolveInWorkspaceAvailable && org.equals(BundleInfo.PACKAGE_TYPE)) {
+            candidates = index.findByExportedPackage(module);
+        } else {
+            candidates = index.findByModuleId(dependencyMrid.getModuleId());
+        }
+        for (WorkspaceModuleIndex.Candidate candidate : candidates) {
+            IProject p = candidate.getProject();
+            ModuleDescriptor md = candidate.getModuleDescriptor();
+            ModuleRevisionId candidateMrid = md.getModuleRevisionId();
 
-                // search a match on the organization and the module name
+            // search a match on the organization and the module name
 
-                if (osgiResolveInWorkspaceAvailable && org.equals(BundleInfo.BUNDLE_TYPE)) {
-                    // looking for an OSGi bundle via its symbolic name
-                    if (!module.equals(md.getExtraInfoContentByTagName("Bundle-SymbolicName"))) {
-                        // not found, skip to next
-                        continue;
-                    }
-                } else if (osgiResolveInWorkspaceAvailable && org.equals(BundleInfo.PACKAGE_TYPE)) {
-                    // looking for an OSGi bundle via its exported package
-                    String exportedPackages = md.getExtraInfoContentByTagName("Export-Package");
-                    if (exportedPackages == null) {
-                        // not found, skip to next
-                        continue;
-                    }
-                    boolean found = false;
-                    String version = null;
-                    ManifestHeaderValue exportElements = new ManifestHeaderValue(exportedPackages);
-                    for (ManifestHeaderElement exportElement : exportElements.getElements()) {
-                        if (exportElement.getValues().contains(module)) {
-                            found = true;
-                            version = exportElement.getAttributes().get("version");
-                            break;
-                        }
-                    }
-                    if (!found) {
-                        // not found, skip to next
-                        continue;
-                    }
-                    if (version == null) {
-                        // no version means anything can match. Let's trick the version matcher by
-                        // setting the exact expected version
-                        version = dependencyMrid.getRevision();
-                    }
-                    md.setResolvedModuleRevisionId(ModuleRevisionId.newInstance(org, module,
-                        version));
-                } else {
-                    if (!candidateMrid.getModuleId().equals(dependencyMrid.getModuleId())) {
-                        // it doesn't match org#module, skip to next
-                        continue;
-                    }
+            if (osgiResolveInWorkspaceAvailable && org.equals(BundleInfo.BUNDLE_TYPE)) {
+                // looking for an OSGi bundle via its symbolic name
+                if (!module.equals(md.getExtraInfoContentByTagName("Bundle-SymbolicName"))) {
+                    // not found, skip to next
+                    continue;
                 }
+            } else if (osgiResolveInWorkspaceAvailable && org.equals(BundleInfo.PACKAGE_TYPE)) {
+                // looking for an OSGi bundle via its exported package, the index only returned
+                // the candidates which export it
+                String version = candidate.getExportedPackageVersion(module);
+                if (version == null) {
+                    // no version means anything can match. Let's trick the version matcher by
+                    // setting the exact expected version
+                    version = dependencyMrid.getRevision();
+                }
+                // the descriptor is shared with the other resolves, so work on a copy
+                DefaultModuleDescriptor packageMd = cloneMd(md, null);
+                packageMd.setResolvedModuleRevisionId(ModuleRevisionId.newInstance(org, module,
+                    version));
+                md = packageMd;
+            } else {
+                if (!candidateMrid.getModuleId().equals(dependencyMrid.getModuleId())) {
+                    // it doesn't match org#module, skip to next
+                    continue;
+                }
+            }
 
+            if (IvyDEMessage.isVerboseEnabled()) {
                 IvyDEMessage.verbose("Workspace resolver found potential matching project "
                         + p.getName() + " with module " + candidateMrid + " for module "
                         + dependencyMrid);
+            }
 
-                if (!ignoreBranchOnWorkspaceProjects) {
-                    ModuleId mid = dependencyMrid.getModuleId();
-                    String defaultBranch = getSettings().getDefaultBranch(mid);
-                    String dependencyBranch = dependencyMrid.getBranch();
-                    String candidateBranch = candidateMrid.getBranch();
-                    if (dependencyBranch == null) {
-                        dependencyBranch = defaultBranch;
-                    }
-                    if (candidateBranch == null) {
-                        candidateBranch = defaultBranch;
+            if (!ignoreBranchOnWorkspaceProjects) {
+                ModuleId mid = dependencyMrid.getModuleId();
+                String defaultBranch = getSettings().getDefaultBranch(mid);
+                String dependencyBranch = dependencyMrid.getBranch();
+                String candidateBranch = candidateMrid.getBranch();
+                if (dependencyBranch == null) {
+                    dependencyBranch = defaultBranch;
+                }
+                if (candidateBranch == null) {
+                    candidateBranch = defaultBranch;
+                }
+                if (dependencyBranch != candidateBranch) {
+                    // Both cannot be null
+                    if (dependencyBranch == null || candidateBranch == null) {
+                        IvyDEMessage.verbose("\t\trejected since branches doesn't match"
+                                + " (one is set, the other isn't)");
+                        continue;
                     }
-                    if (dependencyBranch != candidateBranch) {
-                        // Both cannot be null
-                        if (dependencyBranch == null || candidateBranch == null) {
-                            IvyDEMessage
-                                    .verbose("\t\trejected since branches doesn't match (one is set, the other isn't)");
-                            continue;
-                        }
-                        if (!dependencyBranch.equals(candidateBranch)) {
-                            IvyDEMessage.verbose("\t\trejected since branches doesn't match");
-                            continue;
-                        }
+                    if (!dependencyBranch.equals(candidateBranch)) {
+                        IvyDEMessage.verbose("\t\trejected since branches doesn't match");
+                        continue;
                     }
                 }
+            }
 
-                // Found one; check if it is for the module we need
-                if (ignoreVersionOnWorkspaceProjects
-                        || md.getModuleRevisionId().getRevision().equals(Ivy.getWorkingRevision())
-                        || versionMatcher.accept(dd.getDependencyRevisionId(), md)) {
+            // Found one; check if it is for the module we need
+            if (ignoreVersionOnWorkspaceProjects
+                    || md.getModuleRevisionId().getRevision().equals(Ivy.getWorkingRevision())
+                    || versionMatcher.accept(dd.getDependencyRevisionId(), md)) {
 
-                    if (ignoreVersionOnWorkspaceProjects) {
-                        IvyDEMessage.verbose("\t\tmatched (version are ignored)");
-                    } else {
-                        IvyDEMessage.verbose("\t\tversion matched");
-                    }
+                if (ignoreVersionOnWorkspaceProjects) {
+                    IvyDEMessage.verbose("\t\tmatched (version are ignored)");
+                } else {
+                    IvyDEMessage.verbose("\t\tversion matched");
+                }
 
-                    Artifact af = new DefaultArtifact(md.getModuleRevisionId(),
-                            md.getPublicationDate(), p.getFullPath().toString(),
-                            ECLIPSE_PROJECT_TYPE, ECLIPSE_PROJECT_EXTENSION);
-
-                    DependencyArtifactDescriptor[] dArtifacts = dd.getAllDependencyArtifacts();
-                    if (dArtifacts != null) {
-                        // the dependency is declaring explicitly some artifacts to download
-                        // we need to trick to and map these requested artifact by the Eclipse
-                        // project
-
-                        // we need the context which is used when downloading data, which is the
-                        // parent of the current one so let's hack: popContext (the child),
-                        // getContext (the parent), setVar, pushContext (child)
-                        IvyContext currentContext = IvyContext.popContext();
-                        IvyContext parentContext = IvyContext.getContext();
-                        Map<Artifact, Artifact> workspaceArtifacts = parentContext.get(IVYDE_WORKSPACE_ARTIFACTS);
-                        if (workspaceArtifacts == null) {
-                            workspaceArtifacts = new HashMap<>();
-                            parentContext.set(IVYDE_WORKSPACE_ARTIFACTS, workspaceArtifacts);
-                        }
-                        for (DependencyArtifactDescriptor dArtifact : dArtifacts) {
-                            Artifact artifact = new MDArtifact(md, dArtifact.getName(),
-                                    dArtifact.getType(), dArtifact.getExt(),
-                                    dArtifact.getUrl(),
-                                    dArtifact.getQualifiedExtraAttributes());
-                            workspaceArtifacts.put(artifact, af);
-                        }
-                        IvyContext.pushContext(currentContext);
+                Artifact af = new DefaultArtifact(md.getModuleRevisionId(),
+                        md.getPublicationDate(), p.getFullPath().toString(),
+                        ECLIPSE_PROJECT_TYPE, ECLIPSE_PROJECT_EXTENSION);
+
+                DependencyArtifactDescriptor[] dArtifacts = dd.getAllDependencyArtifacts();
+                if (dArtifacts != null) {
+                    // the dependency is declaring explicitly some artifacts to download
+                    // we need to trick to and map these requested artifact by the Eclipse
+                    // project
+
+                    // we need the context which is used when downloading data, which is the
+                    // parent of the current one so let's hack: popContext (the child),
+                    // getContext (the parent), setVar, pushContext (child)
+                    IvyContext currentContext = IvyContext.popContext();
+                    IvyContext parentContext = IvyContext.getContext();
+                    Map<Artifact, Artifact> workspaceArtifacts = parentContext
+                            .get(IVYDE_WORKSPACE_ARTIFACTS);
+                    if (workspaceArtifacts == null) {
+                        workspaceArtifacts = new HashMap<>();
+                        parentContext.set(IVYDE_WORKSPACE_ARTIFACTS, workspaceArtifacts);
                     }
+                    for (DependencyArtifactDescriptor dArtifact : dArtifacts) {
+                        Artifact artifact = new MDArtifact(md, dArtifact.getName(),
+                                dArtifact.getType(), dArtifact.getExt(),
+                                dArtifact.getUrl(),
+                                dArtifact.getQualifiedExtraAttributes());
+                        workspaceArtifacts.put(artifact, af);
+                    }
+                    IvyContext.pushContext(currentContext);
+                }
 
-                    DefaultModuleDescriptor workspaceMd = cloneMd(md, af);
+                DefaultModuleDescriptor workspaceMd = cloneMd(md, af);
 
-                    MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(af);
-                    madr.setDownloadStatus(DownloadStatus.SUCCESSFUL);
-                    madr.setSearched(true);
+                MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(af);
+                madr.setDownloadStatus(DownloadStatus.SUCCESSFUL);
+                madr.setSearched(true);
 
-                    return new ResolvedModuleRevision(this, this, workspaceMd, madr);
-                } else {
-                    IvyDEMessage.verbose("\t\treject as version didn't match");
-                }
+                return new ResolvedModuleRevision(this, this, workspaceMd, madr);
+            } else {
+                IvyDEMessage.verbose("\t\treject as version didn't match");
             }
         }
 
@@ -337,6 +318,9 @@ public class WorkspaceResolver extends AbstractResolver {
         return null;
     }
 
+    /**
+     * @param af the artifact of every configuration, <code>null</code> for no artifact
+     */
     private DefaultModuleDescriptor cloneMd(ModuleDescriptor md, Artifact af) {
 
         DefaultModuleDescriptor newMd = new DefaultModuleDescriptor(md.getModuleRevisionId(),
@@ -353,11 +337,15 @@ public class WorkspaceResolver extends AbstractResolver {
 
         Configuration[] allConfs = md.getConfigurations();
         if (allConfs.length == 0) {
-            newMd.addArtifact(ModuleDescriptor.DEFAULT_CONFIGURATION, af);
+            if (af != null) {
+                newMd.addArtifact(ModuleDescriptor.DEFAULT_CONFIGURATION, af);
+            }
         } else {
             for (Configuration conf : allConfs) {
                 newMd.addConfiguration(conf);
-                newMd.addArtifact(conf.getName(), af);
+                if (af != null) {
+                    newMd.addArtifact(conf.getName(), af);
+                }
             }
         }
 
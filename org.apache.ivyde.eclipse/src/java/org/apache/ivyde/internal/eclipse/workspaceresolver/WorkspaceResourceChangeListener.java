@@ -54,6 +54,11 @@ public class WorkspaceResourceChangeListener implements IResourceChangeListener
         try {
             if (event.getType() == IResourceChangeEvent.PRE_CLOSE
                     || event.getType() == IResourceChangeEvent.PRE_DELETE) {
+                IResource closed = event.getResource();
+                if (closed instanceof IProject && closed.getLocation() != null) {
+                    IvyPlugin.getDefault().getModuleDescriptorCache()
+                            .invalidateAll(closed.getLocation().toFile());
+                }
                 if (!IvyPlugin.getPreferenceStoreHelper().getAutoResolveOnClose()) {
                     return;
                 }
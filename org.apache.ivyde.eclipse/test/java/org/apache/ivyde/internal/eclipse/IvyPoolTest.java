@@ -0,0 +1,131 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivyde.eclipse.IvyDEException;
+import org.apache.ivyde.eclipse.cp.ResolvedPath;
+import org.eclipse.core.resources.IProject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class IvyPoolTest {
+
+    private final IvyPool ivyPool = new IvyPool();
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final IvyPool.IvyFactory factory = new IvyPool.IvyFactory() {
+        public Ivy createIvy() {
+            created.incrementAndGet();
+            return Ivy.newInstance();
+        }
+    };
+
+    @Test
+    public void testShared() throws Exception {
+        Owner owner1 = new Owner();
+        Owner owner2 = new Owner();
+        IvyPool.PooledIvy pooled = ivyPool.lease(owner1, "settings", false, factory);
+        assertSame(pooled, ivyPool.lease(owner2, "settings", false, factory));
+        assertEquals(1, created.get());
+
+        // a reload is seen by every owner
+        Ivy ivy = pooled.getIvy();
+        ivyPool.lease(owner2, "settings", true, factory);
+        assertNotSame(ivy, pooled.getIvy());
+
+        ivyPool.release(owner1);
+        assertEquals(1, ivyPool.size());
+        ivyPool.release(owner2);
+        assertEquals(0, ivyPool.size());
+    }
+
+    @Test
+    public void testBorrow() throws Exception {
+        IvyPool.PooledIvy pooled = ivyPool.lease(new Owner(), "settings", false, factory);
+
+        // the concurrent resolves never share an instance
+        Ivy first = pooled.borrow();
+        Ivy second = pooled.borrow();
+        assertSame(pooled.getIvy(), first);
+        assertNotSame(first, second);
+        assertEquals(2, created.get());
+
+        // the spare is kept for the next concurrent resolves
+        pooled.giveBack(second);
+        assertSame(second, pooled.borrow());
+        pooled.giveBack(second);
+        pooled.giveBack(first);
+        assertSame(first, pooled.borrow());
+        pooled.giveBack(first);
+        assertEquals(2, created.get());
+
+        // the spares configured with the former settings are dropped
+        ivyPool.lease(new Owner(), "settings", true, factory);
+        Ivy shared = pooled.borrow();
+        assertSame(pooled.getIvy(), shared);
+        assertNotSame(second, pooled.borrow());
+        assertEquals(4, created.get());
+    }
+
+    private static final class Owner extends CachedIvy {
+
+        protected IProject getProject() {
+            return null;
+        }
+
+        protected String getIvyXmlPath() {
+            return null;
+        }
+
+        protected ResolvedPath getIvySettingsPath() {
+            return null;
+        }
+
+        protected boolean isLoadSettingsOnDemandPath() {
+            return false;
+        }
+
+        protected ResolvedPath getIvyUserDir() {
+            return null;
+        }
+
+        protected Collection<String> getPropertyFiles() throws IvyDEException {
+            return null;
+        }
+
+        protected boolean isResolveInWorkspace() {
+            return false;
+        }
+
+        protected boolean isTransitiveResolve() {
+            return false;
+        }
+
+        public String getId() {
+            return "owner";
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IvySettingsDependenciesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File settings;
+
+    private File included;
+
+    private File properties;
+
+    private File ideProperties;
+
+    @Before
+    public void setUp() throws IOException {
+        settings = folder.newFile("ivysettings.xml");
+        included = folder.newFile("ivysettings-resolvers.xml");
+        properties = folder.newFile("ivysettings.properties");
+        ideProperties = folder.newFile("ivyde.properties");
+        write(ideProperties, "resolvers.file=ivysettings-resolvers.xml\n");
+        write(properties, "repo.dir=/tmp/repo\n");
+        write(settings, "<ivysettings>\n"
+                + "  <properties file=\"${ivy.settings.dir}/ivysettings.properties\"/>\n"
+                + "  <include file=\"${resolvers.file}\"/>\n"
+                + "</ivysettings>\n");
+        write(included, "<ivysettings><resolvers/></ivysettings>\n");
+    }
+
+    @Test
+    public void testClosure() {
+        IvySettingsDependencies deps = IvySettingsDependencies.collect(settings,
+            Collections.singleton(ideProperties), null);
+        assertEquals(4, deps.getFiles().size());
+        assertTrue(deps.getFiles().contains(included.getAbsoluteFile()));
+        assertTrue(deps.getFiles().contains(properties.getAbsoluteFile()));
+        assertFalse(deps.isUsingBaseDir());
+        assertTrue(deps.isUpToDate());
+    }
+
+    @Test
+    public void testTouchIsNotAChange() {
+        IvySettingsDependencies deps = IvySettingsDependencies.collect(settings,
+            Collections.singleton(ideProperties), null);
+        assertTrue(included.setLastModified(included.lastModified() - 10000));
+        assertTrue(deps.isUpToDate());
+    }
+
+    @Test
+    public void testIncludedChange() throws IOException {
+        IvySettingsDependencies deps = IvySettingsDependencies.collect(settings,
+            Collections.singleton(ideProperties), null);
+        write(included, "<ivysettings><resolvers><chain name=\"main\"/></resolvers></ivysettings>");
+        assertFalse(deps.isUpToDate());
+        IvySettingsDependencies newDeps = IvySettingsDependencies.collect(settings,
+            Collections.singleton(ideProperties), null);
+        assertFalse(deps.getDigest().equals(newDeps.getDigest()));
+    }
+
+    @Test
+    public void testBaseDir() throws IOException {
+        File project = folder.newFolder("project");
+        File projectResolvers = new File(project, "ivysettings-project.xml");
+        write(projectResolvers, "<ivysettings><resolvers/></ivysettings>\n");
+        write(settings, "<ivysettings>\n"
+                + "  <include file=\"${basedir}/ivysettings-project.xml\"/>\n"
+                + "</ivysettings>\n");
+        IvySettingsDependencies deps = IvySettingsDependencies.collect(settings,
+            Collections.<File> emptySet(), project);
+        assertTrue(deps.getFiles().contains(projectResolvers.getAbsoluteFile()));
+        assertTrue(deps.isUsingBaseDir());
+
+        // only the variables are a reference to the base dir
+        write(settings, "<ivysettings>\n"
+                + "  <!-- the base dir of the repository -->\n"
+                + "  <property name=\"repo.basedir\" value=\"${ivy.settings.dir}\"/>\n"
+                + "</ivysettings>\n");
+        deps = IvySettingsDependencies.collect(settings, Collections.<File> emptySet(), project);
+        assertFalse(deps.isUsingBaseDir());
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ModuleDescriptorCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParentChange() throws Exception {
+        File parent = write("parent.xml", "<ivy-module version=\"2.0\">"
+                + "<info organisation=\"org\" module=\"parent\" revision=\"1\"/>"
+                + "<configurations><conf name=\"default\"/></configurations>"
+                + "</ivy-module>");
+        File ivyFile = write("module/ivy.xml", "<ivy-module version=\"2.0\">"
+                + "<info module=\"child\"><extends organisation=\"org\" module=\"parent\""
+                + " revision=\"1\" location=\"../parent.xml\"/></info>"
+                + "</ivy-module>");
+        IvySettings settings = new IvySettings();
+        ModuleDescriptorCache cache = new ModuleDescriptorCache();
+
+        ModuleDescriptor md = cache.getModuleDescriptor(settings, ivyFile);
+        assertEquals(1, md.getConfigurations().length);
+        assertSame(md, cache.getModuleDescriptor(settings, ivyFile));
+
+        write("parent.xml", "<ivy-module version=\"2.0\">"
+                + "<info organisation=\"org\" module=\"parent\" revision=\"1\"/>"
+                + "<configurations><conf name=\"default\"/><conf name=\"test\"/>"
+                + "</configurations></ivy-module>");
+        parent.setLastModified(parent.lastModified() + 10000);
+        md = cache.getModuleDescriptor(settings, ivyFile);
+        assertEquals(2, md.getConfigurations().length);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testIncludedFiles() throws Exception {
+        File parent = write("parent.xml", "<ivy-module version=\"2.0\">"
+                + "<info organisation=\"org\" module=\"parent\" revision=\"1\"/>"
+                + "<configurations><include file=\"confs.xml\"/></configurations>"
+                + "</ivy-module>");
+        File confs = write("confs.xml", "<configurations><conf name=\"default\"/>"
+                + "</configurations>");
+        File ivyFile = write("module/ivy.xml", "<ivy-module version=\"2.0\">"
+                + "<info module=\"child\"><extends organisation=\"org\" module=\"parent\""
+                + " revision=\"1\" location=\"../parent.xml\"/></info>"
+                + "</ivy-module>");
+        IvySettings settings = new IvySettings();
+        ModuleDescriptorCache cache = new ModuleDescriptorCache();
+
+        ModuleDescriptor md = cache.getModuleDescriptor(settings, ivyFile);
+        Map<File, String> includedFiles = cache.getIncludedFiles(ivyFile, md);
+        Set<File> files = new HashSet<>();
+        for (File included : includedFiles.keySet()) {
+            files.add(included.getCanonicalFile());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(parent.getCanonicalFile(),
+            confs.getCanonicalFile())), files);
+
+        confs.setLastModified(confs.lastModified() + 10000);
+        assertNull(cache.getIncludedFiles(ivyFile, md));
+        ModuleDescriptor reparsed = cache.getModuleDescriptor(settings, ivyFile);
+        assertNull(cache.getIncludedFiles(ivyFile, md));
+        assertNotEquals(includedFiles, cache.getIncludedFiles(ivyFile, reparsed));
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivyde.internal.eclipse.cpcontainer.IvyClasspathContainerMapper.ArtifactMatcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare the lookup of the sources of every artifact of a synthetic 2000 artifacts report via the
+ * {@link ArtifactReportIndex} with the former implementation, which was going through every
+ * resolved artifact for each lookup. The measures are given in the failure message.
+ */
+public class ArtifactReportIndexBenchmarkTest {
+
+    private static final int MODULES = 1000;
+
+    private static final int ITERATIONS = 5;
+
+    private final ArtifactMatcher sourceMatcher = new ArtifactMatcher() {
+        public boolean matchName(Artifact artifact, String artifactName) {
+            return getNames(artifact).contains(artifactName);
+        }
+
+        public Collection<String> getNames(Artifact artifact) {
+            return Arrays.asList(artifact.getName(), artifact.getName() + "-sources");
+        }
+
+        public boolean match(Artifact a) {
+            return "source".equals(a.getType());
+        }
+
+        public String getName() {
+            return "sources";
+        }
+    };
+
+    @Test
+    public void testMapping() {
+        // 1000 jars, half of them having their sources, the other half their javadoc
+        List<ArtifactDownloadReport> all = new ArrayList<>();
+        List<Artifact> jars = new ArrayList<>();
+        for (int i = 0; i < MODULES; i++) {
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org" + (i % 50), "module" + i,
+                "1." + i);
+            Artifact jar = new DefaultArtifact(mrid, new Date(), "module" + i, "jar", "jar");
+            jars.add(jar);
+            all.add(newReport(jar));
+            if (i % 2 == 0) {
+                all.add(newReport(new DefaultArtifact(mrid, new Date(), "module" + i + "-sources",
+                        "source", "jar")));
+            } else {
+                all.add(newReport(new DefaultArtifact(mrid, new Date(), "module" + i + "-javadoc",
+                        "javadoc", "jar")));
+            }
+        }
+
+        long linear = Long.MAX_VALUE;
+        long indexed = Long.MAX_VALUE;
+        for (int n = 0; n < ITERATIONS; n++) {
+            long start = System.nanoTime();
+            for (Artifact jar : jars) {
+                findLinear(all, jar);
+            }
+            linear = Math.min(linear, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            // the index is built once per mapping
+            ArtifactReportIndex index = new ArtifactReportIndex(all, sourceMatcher);
+            for (Artifact jar : jars) {
+                index.find(jar);
+            }
+            indexed = Math.min(indexed, System.nanoTime() - start);
+        }
+
+        ArtifactReportIndex index = new ArtifactReportIndex(all, sourceMatcher);
+        for (int i = 0; i < MODULES; i++) {
+            ArtifactDownloadReport found = index.find(jars.get(i));
+            assertEquals(findLinear(all, jars.get(i)), found);
+            if (i % 2 == 0) {
+                assertNotNull(found);
+            } else {
+                assertNull(found);
+            }
+        }
+
+        assertTrue("Mapping the sources of " + all.size() + " artifacts: linear scan "
+                + (linear / 1000) + "us, index " + (indexed / 1000) + "us", indexed < linear);
+    }
+
+    private ArtifactDownloadReport findLinear(Collection<ArtifactDownloadReport> all,
+            Artifact artifact) {
+        for (ArtifactDownloadReport otherAdr : all) {
+            Artifact otherArtifact = otherAdr.getArtifact();
+            if (otherAdr.getLocalFile() != null
+                    && sourceMatcher.matchName(artifact, otherArtifact.getName())
+                    && otherArtifact.getModuleRevisionId().equals(artifact.getModuleRevisionId())
+                    && sourceMatcher.match(otherArtifact)) {
+                return otherAdr;
+            }
+        }
+        return null;
+    }
+
+    private static ArtifactDownloadReport newReport(Artifact artifact) {
+        ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
+        adr.setLocalFile(new File(artifact.getName() + "." + artifact.getExt()));
+        return adr;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivyde.internal.eclipse.cpcontainer.IvyClasspathContainerMapper.ArtifactMatcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ArtifactReportIndexTest {
+
+    private static final ModuleRevisionId MRID = ModuleRevisionId.newInstance("org", "module",
+        "1.0");
+
+    private final ArtifactMatcher sourceMatcher = new ArtifactMatcher() {
+        public boolean matchName(Artifact artifact, String artifactName) {
+            return getNames(artifact).contains(artifactName);
+        }
+
+        public Collection<String> getNames(Artifact artifact) {
+            return Arrays.asList(artifact.getName() + "-sources", artifact.getName());
+        }
+
+        public boolean match(Artifact a) {
+            return "source".equals(a.getType());
+        }
+
+        public String getName() {
+            return "sources";
+        }
+    };
+
+    @Test
+    public void testFind() {
+        // half of the jars having their sources, the other half their javadoc
+        List<ArtifactDownloadReport> all = new ArrayList<>();
+        List<Artifact> jars = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org" + (i % 5), "module" + i,
+                "1." + i);
+            Artifact jar = newArtifact(mrid, "module" + i, "jar");
+            jars.add(jar);
+            all.add(newReport(jar));
+            if (i % 2 == 0) {
+                all.add(newReport(newArtifact(mrid, "module" + i + "-sources", "source")));
+            } else {
+                all.add(newReport(newArtifact(mrid, "module" + i + "-javadoc", "javadoc")));
+            }
+        }
+
+        ArtifactReportIndex index = new ArtifactReportIndex(all, sourceMatcher);
+        for (int i = 0; i < jars.size(); i++) {
+            ArtifactDownloadReport found = index.find(jars.get(i));
+            if (i % 2 == 0) {
+                assertSame(all.get(2 * i + 1), found);
+            } else {
+                assertNull(found);
+            }
+        }
+    }
+
+    @Test
+    public void testFirstResolvedWins() {
+        Artifact jar = newArtifact(MRID, "module", "jar");
+        ArtifactDownloadReport sameName = newReport(newArtifact(MRID, "module", "source"));
+        ArtifactDownloadReport suffixed = newReport(newArtifact(MRID, "module-sources",
+            "source"));
+
+        // whatever the order of the names given by the matcher
+        ArtifactReportIndex index = new ArtifactReportIndex(
+                Arrays.asList(newReport(jar), sameName, suffixed), sourceMatcher);
+        assertSame(sameName, index.find(jar));
+
+        index = new ArtifactReportIndex(Arrays.asList(newReport(jar), suffixed, sameName),
+                sourceMatcher);
+        assertSame(suffixed, index.find(jar));
+    }
+
+    @Test
+    public void testNotDownloaded() {
+        Artifact jar = newArtifact(MRID, "module", "jar");
+        ArtifactDownloadReport sources = new ArtifactDownloadReport(newArtifact(MRID,
+            "module-sources", "source"));
+
+        ArtifactReportIndex index = new ArtifactReportIndex(
+                Arrays.asList(newReport(jar), sources), sourceMatcher);
+        assertNull(index.find(jar));
+    }
+
+    @Test
+    public void testOtherRevision() {
+        Artifact jar = newArtifact(MRID, "module", "jar");
+        ModuleRevisionId other = ModuleRevisionId.newInstance("org", "module", "2.0");
+        ArtifactDownloadReport sources = newReport(newArtifact(other, "module-sources",
+            "source"));
+
+        ArtifactReportIndex index = new ArtifactReportIndex(
+                Arrays.asList(newReport(jar), sources), sourceMatcher);
+        assertNull(index.find(jar));
+        assertEquals(sources, index.find(newArtifact(other, "module", "jar")));
+    }
+
+    private static Artifact newArtifact(ModuleRevisionId mrid, String name, String type) {
+        return new DefaultArtifact(mrid, new Date(), name, type, "jar");
+    }
+
+    private static ArtifactDownloadReport newReport(Artifact artifact) {
+        ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
+        adr.setLocalFile(new File(artifact.getName() + "." + artifact.getExt()));
+        return adr;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.ivyde.internal.eclipse.cpcontainer.BundleMetadataIndex.BundleMetadata;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BundleMetadataIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File bundleDir;
+
+    @Before
+    public void setUp() throws IOException {
+        bundleDir = folder.newFolder("bundle");
+        File manifest = BundleMetadataIndex.getManifestFile(bundleDir);
+        manifest.getParentFile().mkdirs();
+        Files.write(manifest.toPath(), ("Manifest-Version: 1.0\n"
+                + "Bundle-ManifestVersion: 2\n"
+                + "Bundle-SymbolicName: org.example.bundle\n"
+                + "Bundle-Version: 1.0.0\n"
+                + "Bundle-ClassPath: .,lib/present.jar,lib/missing.jar\n"
+                + "Export-Package: org.example.api,org.example.spi\n").getBytes(
+                    StandardCharsets.UTF_8));
+        new File(bundleDir, "lib").mkdirs();
+        Files.write(new File(bundleDir, "lib/present.jar").toPath(), new byte[0]);
+    }
+
+    @Test
+    public void testMetadata() throws Exception {
+        BundleMetadataIndex index = new BundleMetadataIndex(folder.newFile("index.properties"));
+        BundleMetadata metadata = index.getMetadata(bundleDir);
+        assertEquals(Arrays.asList(".", "lib/present.jar", "lib/missing.jar"),
+            metadata.getClasspath());
+        assertEquals(Arrays.asList("org.example.api", "org.example.spi"),
+            metadata.getExportedPackages());
+        assertTrue(metadata.isExisting("."));
+        assertTrue(metadata.isExisting("lib/present.jar"));
+        assertFalse(metadata.isExisting("lib/missing.jar"));
+        assertSame(metadata, index.getMetadata(bundleDir));
+        assertNull(index.getMetadata(folder.newFolder("not-a-bundle")));
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        File file = new File(folder.getRoot(), "index.properties");
+        BundleMetadataIndex index = new BundleMetadataIndex(file);
+        BundleMetadata metadata = index.getMetadata(bundleDir);
+        index.save();
+
+        BundleMetadata loaded = new BundleMetadataIndex(file).getMetadata(bundleDir);
+        assertEquals(metadata.getClasspath(), loaded.getClasspath());
+        assertEquals(metadata.getExportedPackages(), loaded.getExportedPackages());
+        assertTrue(loaded.isExisting("lib/present.jar"));
+        assertFalse(loaded.isExisting("lib/missing.jar"));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        // the inner jars are part of the stamp
+        assertTrue(new File(bundleDir, "lib/present.jar").delete());
+        Files.write(new File(bundleDir, "lib/missing.jar").toPath(), new byte[0]);
+        loaded = new BundleMetadataIndex(file).getMetadata(bundleDir);
+        assertFalse(loaded.isExisting("lib/present.jar"));
+        assertTrue(loaded.isExisting("lib/missing.jar"));
+
+        Files.write(BundleMetadataIndex.getManifestFile(bundleDir).toPath(),
+            ("Manifest-Version: 1.0\n" + "Bundle-SymbolicName: org.example.bundle\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        loaded = new BundleMetadataIndex(file).getMetadata(bundleDir);
+        assertNull(loaded.getClasspath());
+        assertEquals(Collections.emptyList(), loaded.getExportedPackages());
+    }
+}
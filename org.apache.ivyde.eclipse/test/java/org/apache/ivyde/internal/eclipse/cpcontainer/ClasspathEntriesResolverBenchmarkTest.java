@@ -0,0 +1,98 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare the detection of the conflicting revisions in a large report with the former
+ * implementation, which was comparing every pair of artifacts. The measures are given in the
+ * failure message.
+ */
+public class ClasspathEntriesResolverBenchmarkTest {
+
+    private static final int MODULES = 5000;
+
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void testFindDuplicates() {
+        // 5000 modules, with 3 artifacts each, one module out of 100 resolved in 2 revisions
+        List<ModuleRevisionId> mrids = new ArrayList<>();
+        for (int i = 0; i < MODULES; i++) {
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org" + (i % 50), "module" + i,
+                "1.0");
+            mrids.addAll(Arrays.asList(mrid, mrid, mrid));
+            if (i % 100 == 0) {
+                mrids.add(ModuleRevisionId.newInstance(mrid, "2.0"));
+            }
+        }
+
+        long nested = Long.MAX_VALUE;
+        long grouped = Long.MAX_VALUE;
+        Set<ModuleId> expected = null;
+        Map<ModuleId, Collection<ModuleRevisionId>> duplicates = null;
+        for (int n = 0; n < ITERATIONS; n++) {
+            long start = System.nanoTime();
+            expected = findDuplicatesNested(mrids);
+            nested = Math.min(nested, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            duplicates = ClasspathEntriesResolver.findDuplicates(mrids);
+            grouped = Math.min(grouped, System.nanoTime() - start);
+        }
+
+        assertEquals(MODULES / 100, duplicates.size());
+        assertEquals(expected, duplicates.keySet());
+        for (Collection<ModuleRevisionId> revisions : duplicates.values()) {
+            assertEquals(2, revisions.size());
+        }
+
+        assertTrue("Finding the duplicates among " + mrids.size() + " artifacts: nested loops "
+                + (nested / 1000) + "us, grouping " + (grouped / 1000) + "us", grouped < nested);
+    }
+
+    private static Set<ModuleId> findDuplicatesNested(List<ModuleRevisionId> mrids) {
+        Set<ModuleId> duplicates = new HashSet<>();
+        for (int i = 0; i < mrids.size() - 1; i++) {
+            ModuleRevisionId mrid1 = mrids.get(i);
+            for (int j = i + 1; j < mrids.size(); j++) {
+                ModuleRevisionId mrid2 = mrids.get(j);
+                if (mrid1.getModuleId().equals(mrid2.getModuleId())
+                        && !mrid1.getRevision().equals(mrid2.getRevision())) {
+                    duplicates.add(mrid1.getModuleId());
+                    break;
+                }
+            }
+        }
+        return duplicates;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClasspathEntriesResolverTest {
+
+    private static final ModuleRevisionId A1 = ModuleRevisionId.newInstance("org", "a", "1.0");
+
+    private static final ModuleRevisionId A2 = ModuleRevisionId.newInstance("org", "a", "2.0");
+
+    private static final ModuleRevisionId A3 = ModuleRevisionId.newInstance("org", "a", "3.0");
+
+    private static final ModuleRevisionId B1 = ModuleRevisionId.newInstance("org", "b", "1.0");
+
+    private static final ModuleRevisionId C1 = ModuleRevisionId.newInstance("org", "c", "1.0");
+
+    private static final ModuleRevisionId C2 = ModuleRevisionId.newInstance("org", "c", "2.0");
+
+    @Test
+    public void testNoDuplicates() {
+        // a module having several artifacts is not a duplicate
+        assertTrue(ClasspathEntriesResolver.findDuplicates(Arrays.asList(A1, A1, B1, A1, B1))
+                .isEmpty());
+    }
+
+    @Test
+    public void testDuplicates() {
+        Map<ModuleId, Collection<ModuleRevisionId>> duplicates = ClasspathEntriesResolver
+                .findDuplicates(Arrays.asList(C1, A1, A2, B1, A1, C2, A3, A2));
+
+        assertEquals(Arrays.asList(C1.getModuleId(), A1.getModuleId()),
+            new ArrayList<>(duplicates.keySet()));
+        // each revision once, in the resolved order
+        assertEquals(Arrays.asList(C1, C2), new ArrayList<>(duplicates.get(C1.getModuleId())));
+        assertEquals(Arrays.asList(A1, A2, A3),
+            new ArrayList<>(duplicates.get(A1.getModuleId())));
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.cpcontainer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.JavaCore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare the size and the load time of the state of a 2000 entries container in the binary format
+ * with the former XML format, which was built as a DOM and written by a {@link Transformer}. The
+ * save is not compared, its time being mostly spent writing the file. The JDT entries requiring a
+ * running workspace, simple implementations of {@link IClasspathEntry} are used.
+ */
+public class IvyClasspathContainerSerializerBenchmarkTest {
+
+    private static final int ENTRIES = 2000;
+
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        IvyClasspathContainerSerializer serializer = new IvyClasspathContainerSerializer(
+                folder.getRoot(), null) {
+            IClasspathEntry buildCpEntry(int kind, IPath path, IPath sourcePath,
+                    IAccessRule[] accessRules, IClasspathAttribute[] cpAttrs) {
+                return new LibraryEntry(path, sourcePath, accessRules, cpAttrs);
+            }
+        };
+        IClasspathEntry[] entries = new IClasspathEntry[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            IPath jar = new Path("/home/user/.ivy2/cache/org" + (i % 50) + "/module" + i
+                    + "/jars/module" + i + "-1.0.jar");
+            IPath sources = new Path("/home/user/.ivy2/cache/org" + (i % 50) + "/module" + i
+                    + "/sources/module" + i + "-1.0-sources.jar");
+            IAccessRule[] rules = i % 10 == 0 ? new IAccessRule[] {
+                    JavaCore.newAccessRule(new Path("org/module" + i + "/**"),
+                        IAccessRule.K_ACCESSIBLE),
+                    JavaCore.newAccessRule(new Path("**"), IAccessRule.K_NON_ACCESSIBLE)}
+                    : new IAccessRule[0];
+            IClasspathAttribute[] attrs = new IClasspathAttribute[] {JavaCore
+                    .newClasspathAttribute(IClasspathAttribute.JAVADOC_LOCATION_ATTRIBUTE_NAME,
+                        "jar:file:/home/user/.ivy2/cache/org" + (i % 50) + "/module" + i
+                                + "/javadocs/module" + i + "-1.0-javadoc.jar!/")};
+            entries[i] = new LibraryEntry(jar, sources, rules, attrs);
+        }
+
+        File xmlFile = new File(folder.getRoot(), "project.xml");
+        File stateFile = new File(folder.getRoot(), "project.cpstate");
+        long xmlLoad = Long.MAX_VALUE;
+        long binaryLoad = Long.MAX_VALUE;
+        IClasspathEntry[] fromXml = null;
+        IClasspathEntry[] fromBinary = null;
+        for (int n = 0; n < ITERATIONS; n++) {
+            try (OutputStream out = new FileOutputStream(xmlFile)) {
+                writeXml(out, entries);
+            }
+
+            long start = System.nanoTime();
+            try (InputStream in = new FileInputStream(xmlFile)) {
+                Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                        .parse(in);
+                fromXml = serializer.readCpEntries(document.getDocumentElement());
+            }
+            xmlLoad = Math.min(xmlLoad, System.nanoTime() - start);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(stateFile)))) {
+                serializer.writeCpEntries(out, entries);
+            }
+
+            start = System.nanoTime();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(stateFile)))) {
+                fromBinary = serializer.readCpEntries(in);
+            }
+            binaryLoad = Math.min(binaryLoad, System.nanoTime() - start);
+        }
+
+        assertArrayEquals(entries, fromBinary);
+        assertArrayEquals(fromXml, fromBinary);
+
+        assertTrue("binary " + stateFile.length() + " bytes, XML " + xmlFile.length() + " bytes",
+            stateFile.length() < xmlFile.length());
+        assertTrue("binary " + binaryLoad + "ns, XML " + xmlLoad + "ns", binaryLoad < xmlLoad);
+    }
+
+    /**
+     * The former DOM based serialization of the entries
+     */
+    private static void writeXml(OutputStream out, IClasspathEntry[] entries) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .newDocument();
+        Element cpEntriesNode = document.createElement("cpentries");
+        document.appendChild(cpEntriesNode);
+        for (IClasspathEntry entry : entries) {
+            Element cpEntryNode = document.createElement("cpentry");
+            cpEntriesNode.appendChild(cpEntryNode);
+            cpEntryNode.setAttribute("kind", Integer.toString(entry.getEntryKind()));
+            cpEntryNode.setAttribute("path", entry.getPath().toString());
+            if (entry.getSourceAttachmentPath() != null) {
+                cpEntryNode.setAttribute("source", entry.getSourceAttachmentPath().toString());
+            }
+            Element accessRulesNode = document.createElement("accessRules");
+            cpEntryNode.appendChild(accessRulesNode);
+            for (IAccessRule accessRule : entry.getAccessRules()) {
+                Element ruleNode = document.createElement("rule");
+                accessRulesNode.appendChild(ruleNode);
+                ruleNode.setAttribute("pattern", accessRule.getPattern().toString());
+                ruleNode.setAttribute("kind", Integer.toString(accessRule.getKind()));
+            }
+            Element cpAttrsNode = document.createElement("cpattrs");
+            cpEntryNode.appendChild(cpAttrsNode);
+            for (IClasspathAttribute attribute : entry.getExtraAttributes()) {
+                Element attrNode = document.createElement("attr");
+                cpAttrsNode.appendChild(attrNode);
+                attrNode.setAttribute("name", attribute.getName());
+                attrNode.setAttribute("value", attribute.getValue());
+            }
+        }
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.transform(new DOMSource(document), new StreamResult(out));
+    }
+
+    private static final class LibraryEntry implements IClasspathEntry {
+
+        private final IPath path;
+
+        private final IPath sourcePath;
+
+        private final IAccessRule[] accessRules;
+
+        private final IClasspathAttribute[] attributes;
+
+        private LibraryEntry(IPath path, IPath sourcePath, IAccessRule[] accessRules,
+                IClasspathAttribute[] attributes) {
+            this.path = path;
+            this.sourcePath = sourcePath;
+            this.accessRules = accessRules;
+            this.attributes = attributes;
+        }
+
+        public boolean combineAccessRules() {
+            return false;
+        }
+
+        public IAccessRule[] getAccessRules() {
+            return accessRules;
+        }
+
+        public int getContentKind() {
+            return 0;
+        }
+
+        public int getEntryKind() {
+            return CPE_LIBRARY;
+        }
+
+        public IPath[] getExclusionPatterns() {
+            return new IPath[0];
+        }
+
+        public IClasspathAttribute[] getExtraAttributes() {
+            return attributes;
+        }
+
+        public IPath[] getInclusionPatterns() {
+            return new IPath[0];
+        }
+
+        public IPath getOutputLocation() {
+            return null;
+        }
+
+        public IPath getPath() {
+            return path;
+        }
+
+        public IPath getSourceAttachmentPath() {
+            return sourcePath;
+        }
+
+        public IPath getSourceAttachmentRootPath() {
+            return sourcePath;
+        }
+
+        public IClasspathEntry getReferencingEntry() {
+            return null;
+        }
+
+        public boolean isExported() {
+            return false;
+        }
+
+        public IClasspathEntry getResolvedEntry() {
+            return this;
+        }
+
+        public boolean isTest() {
+            return false;
+        }
+
+        public boolean isWithoutTestCode() {
+            return false;
+        }
+
+        public IPath getExternalAnnotationPath(IProject project, boolean resolve) {
+            return null;
+        }
+
+        public int hashCode() {
+            return path.hashCode();
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LibraryEntry)) {
+                return false;
+            }
+            LibraryEntry other = (LibraryEntry) obj;
+            return path.equals(other.path) && Objects.equals(sourcePath, other.sourcePath)
+                    && Arrays.equals(accessRules, other.accessRules)
+                    && Arrays.equals(attributes, other.attributes);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.resolve;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.ivyde.eclipse.cp.RetrieveSetup;
+import org.apache.ivyde.internal.eclipse.resolve.IncrementalRetriever.RetrieveStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalRetrieverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+
+    private IncrementalRetriever retriever;
+
+    private File cache;
+
+    private File lib;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = Executors.newFixedThreadPool(2);
+        retriever = new IncrementalRetriever(folder.newFolder("manifests"),
+                new File(folder.getRoot(), "store"), executor);
+        cache = folder.newFolder("cache");
+        lib = new File(folder.getRoot(), "lib");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRetrieve() throws Exception {
+        File a = write(new File(cache, "a.jar"), "a");
+        File b = write(new File(cache, "b.jar"), "bb");
+        Map<File, File> copies = new LinkedHashMap<>();
+        copies.put(new File(lib, "a.jar"), a);
+        copies.put(new File(lib, "b.jar"), b);
+
+        RetrieveStats stats = retrieve(copies, false);
+        assertEquals(2, stats.getCopiedFiles());
+        assertEquals(3, stats.getCopiedBytes());
+        assertEquals("bb", read(new File(lib, "b.jar")));
+
+        stats = retrieve(copies, false);
+        assertEquals(0, stats.getCopiedFiles());
+        assertEquals(2, stats.getSkippedFiles());
+
+        // downloaded again with the same content
+        assertTrue(a.setLastModified(a.lastModified() + 10000));
+        stats = retrieve(copies, false);
+        assertEquals(0, stats.getCopiedFiles());
+
+        write(b, "cc");
+        assertTrue(b.setLastModified(b.lastModified() + 20000));
+        stats = retrieve(copies, false);
+        assertEquals(1, stats.getCopiedFiles());
+        assertEquals("cc", read(new File(lib, "b.jar")));
+
+        // modified in the retrieve folder
+        write(new File(lib, "a.jar"), "z");
+        stats = retrieve(copies, false);
+        assertEquals(1, stats.getCopiedFiles());
+        assertEquals("a", read(new File(lib, "a.jar")));
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        File a = write(new File(cache, "a.jar"), "a");
+        write(new File(lib, "old.jar"), "old");
+        write(new File(lib, "sub/old.jar"), "old");
+        write(new File(lib, ".svn"), "");
+        Map<File, File> copies = Collections.singletonMap(new File(lib, "sub/a.jar"), a);
+
+        RetrieveStats stats = retrieve(copies, true);
+        assertEquals(1, stats.getCopiedFiles());
+        assertEquals(2, stats.getDeletedFiles());
+        assertFalse(new File(lib, "old.jar").exists());
+        assertFalse(new File(lib, "sub/old.jar").exists());
+        assertTrue(new File(lib, "sub/a.jar").exists());
+        assertTrue(new File(lib, ".svn").exists());
+        assertEquals(new HashSet<>(Arrays.asList(new File(lib, "sub/a.jar"), new File(lib,
+            "old.jar"), new File(lib, "sub/old.jar"))), stats.getChangedFiles());
+        assertTrue(stats.getChangedFolders().isEmpty());
+
+        stats = retrieve(Collections.singletonMap(new File(lib, "new/a.jar"), a), true);
+        assertTrue(stats.getChangedFiles().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(new File(lib, "new"), new File(lib, "sub"))),
+            stats.getChangedFolders());
+    }
+
+    @Test
+    public void testSyncKeepsLinkedFolders() throws Exception {
+        File a = write(new File(cache, "a.jar"), "a");
+        File outside = write(new File(folder.getRoot(), "outside/b.jar"), "b");
+        File link = new File(lib, "sub/outside");
+        new File(lib, "sub").mkdirs();
+        Files.createSymbolicLink(link.toPath(), outside.getParentFile().toPath());
+        File linkInKept = new File(lib, "outside");
+        Files.createSymbolicLink(linkInKept.toPath(), outside.getParentFile().toPath());
+
+        Map<File, File> copies = new LinkedHashMap<>();
+        copies.put(new File(lib, "a.jar"), a);
+        copies.put(new File(lib, "outside/a.jar"), a);
+        RetrieveStats stats = retrieve(copies, true);
+        assertEquals(1, stats.getDeletedFiles());
+        assertFalse(Files.exists(link.toPath(), LinkOption.NOFOLLOW_LINKS));
+        assertTrue(Files.isSymbolicLink(linkInKept.toPath()));
+        assertEquals("b", read(outside));
+    }
+
+    @Test
+    public void testUpToDate() throws Exception {
+        File a = write(new File(cache, "a.jar"), "a");
+        assertFalse(retriever.isUpToDate(lib));
+        retrieve(Collections.singletonMap(new File(lib, "a.jar"), a), false);
+        assertTrue(retriever.isUpToDate(lib));
+
+        assertTrue(new File(lib, "a.jar").delete());
+        assertFalse(retriever.isUpToDate(lib));
+    }
+
+    @Test
+    public void testLinks() throws Exception {
+        File a = write(new File(cache, "a.jar"), "a");
+        File b = write(new File(cache, "b.jar"), "b");
+        Map<File, File> copies = new LinkedHashMap<>();
+        copies.put(new File(lib, "a.jar"), a);
+        copies.put(new File(lib, "b.jar"), b);
+
+        RetrieveStats stats = retrieve(copies, false, RetrieveSetup.RETRIEVE_MODE_LINK);
+        assertEquals(2, stats.getLinkedFiles());
+        assertTrue(Files.isSameFile(a.toPath(), new File(lib, "a.jar").toPath()));
+        // the cache is left as Ivy made it
+        assertWritable(a);
+        stats = retrieve(copies, false, RetrieveSetup.RETRIEVE_MODE_LINK);
+        assertEquals(2, stats.getSkippedFiles());
+
+        // Ivy replaces the file of its cache
+        File downloaded = write(new File(cache, "b.jar.part"), "c");
+        Files.move(downloaded.toPath(), b.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(b.setLastModified(b.lastModified() + 20000));
+        assertEquals("b", read(new File(lib, "b.jar")));
+
+        // back to copies, the cache is not written through the links
+        stats = retrieve(copies, false, RetrieveSetup.RETRIEVE_MODE_COPY);
+        assertEquals(2, stats.getCopiedFiles());
+        write(new File(lib, "a.jar"), "z");
+        assertEquals("a", read(a));
+
+        // a second project sharing the store
+        stats = retrieve(copies, false, RetrieveSetup.RETRIEVE_MODE_STORE);
+        assertEquals(2, stats.getLinkedFiles());
+        File lib2 = new File(folder.getRoot(), "lib2");
+        Map<File, File> copies2 = Collections.singletonMap(new File(lib2, "a.jar"), a);
+        retriever.retrieve(copies2, lib2, false, Collections.<String>emptySet(),
+            RetrieveSetup.RETRIEVE_MODE_STORE, null);
+        assertTrue(Files.isSameFile(new File(lib, "a.jar").toPath(),
+            new File(lib2, "a.jar").toPath()));
+        assertFalse(Files.isSameFile(a.toPath(), new File(lib2, "a.jar").toPath()));
+
+        // removing the links keeps the shared files
+        stats = retrieve(Collections.<File, File>emptyMap(), true,
+            RetrieveSetup.RETRIEVE_MODE_STORE);
+        assertEquals(2, stats.getDeletedFiles());
+        assertEquals("a", read(new File(lib2, "a.jar")));
+        assertEquals("a", read(a));
+    }
+
+    @Test
+    public void testModifiedLinks() throws Exception {
+        File a = write(new File(cache, "a.jar"), "a");
+        Map<File, File> copies = Collections.singletonMap(new File(lib, "a.jar"), a);
+        retrieve(copies, false, RetrieveSetup.RETRIEVE_MODE_STORE);
+
+        // written through the link, the stored file is modified too
+        File linked = write(new File(lib, "a.jar"), "z");
+        assertTrue(linked.setLastModified(linked.lastModified() + 20000));
+        RetrieveStats stats = retrieve(copies, false, RetrieveSetup.RETRIEVE_MODE_STORE);
+        assertEquals(1, stats.getLinkedFiles());
+        assertEquals("a", read(new File(lib, "a.jar")));
+        assertEquals("a", read(a));
+    }
+
+    private static void assertWritable(File file) throws IOException {
+        // the permissions are checked since root can write anyway
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertTrue(Files.getPosixFilePermissions(file.toPath()).contains(
+                PosixFilePermission.OWNER_WRITE));
+        }
+    }
+
+    private RetrieveStats retrieve(Map<File, File> copies, boolean sync) throws IOException {
+        return retrieve(copies, sync, RetrieveSetup.RETRIEVE_MODE_COPY);
+    }
+
+    private RetrieveStats retrieve(Map<File, File> copies, boolean sync, String mode)
+            throws IOException {
+        return retriever.retrieve(copies, lib, sync, Collections.singleton(".svn"), mode, null);
+    }
+
+    private static File write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
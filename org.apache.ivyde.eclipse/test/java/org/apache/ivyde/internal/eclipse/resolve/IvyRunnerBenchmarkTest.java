@@ -0,0 +1,138 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.resolve;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ivy.Ivy;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare the overhead of launching Ivy work via the {@link IvyRunner} with the former
+ * implementation, which was creating a thread per work and polling it. The measures are given in
+ * the failure messages: the runner is expected to cost at most twice as much as the former
+ * implementation, and to release a canceled caller without waiting for the next check of its
+ * monitor.
+ */
+public class IvyRunnerBenchmarkTest {
+
+    private static final int WARMUP = 200;
+
+    private static final int ITERATIONS = 2000;
+
+    private static final int WAIT_FOR_JOIN = 100;
+
+    private static final long CANCEL_CHECK_PERIOD = 500;
+
+    private final Ivy ivy = Ivy.newInstance();
+
+    @Test
+    public void testOverhead() {
+        final AtomicInteger counter = new AtomicInteger();
+        Runnable work = new Runnable() {
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+
+        IvyRunner ivyRunner = new IvyRunner();
+        try {
+            for (int i = 0; i < WARMUP; i++) {
+                launchThreadPerWork(work);
+                ivyRunner.launchIvyThread(work, ivy, new NullProgressMonitor());
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                launchThreadPerWork(work);
+            }
+            long threadPerWork = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                ivyRunner.launchIvyThread(work, ivy, new NullProgressMonitor());
+            }
+            long executor = System.nanoTime() - start;
+
+            assertTrue("Per work overhead: thread per work " + (threadPerWork / ITERATIONS)
+                    + "ns, runner " + (executor / ITERATIONS) + "ns",
+                executor < 2 * threadPerWork);
+        } finally {
+            ivyRunner.shutdown();
+        }
+        assertEquals(2 * (WARMUP + ITERATIONS), counter.get());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IvyRunner ivyRunner = new IvyRunner();
+        final boolean[] canceled = new boolean[1];
+        final IProgressMonitor monitor = new NullProgressMonitor();
+        Thread waiter = new Thread() {
+            public void run() {
+                canceled[0] = ivyRunner.launchIvyThread(new Runnable() {
+                    public void run() {
+                        started.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            // canceled
+                        }
+                    }
+                }, ivy, monitor);
+            }
+        };
+        waiter.start();
+        started.await();
+        long start = System.nanoTime();
+        ivyRunner.cancel(monitor);
+        waiter.join();
+        long latency = System.nanoTime() - start;
+        release.countDown();
+        ivyRunner.shutdown();
+
+        assertTrue(canceled[0]);
+        assertTrue("Cancel latency: " + (latency / 1000) + "us",
+            latency < TimeUnit.MILLISECONDS.toNanos(CANCEL_CHECK_PERIOD));
+    }
+
+    private void launchThreadPerWork(Runnable work) {
+        Thread runnerThread = new Thread(work);
+        runnerThread.setName("IvyDE resolver thread");
+        runnerThread.start();
+        while (true) {
+            try {
+                runnerThread.join(WAIT_FOR_JOIN);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!runnerThread.isAlive()) {
+                return;
+            }
+        }
+    }
+}
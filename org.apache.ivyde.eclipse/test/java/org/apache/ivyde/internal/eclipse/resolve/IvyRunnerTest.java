@@ -0,0 +1,178 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.resolve;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ivy.Ivy;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class IvyRunnerTest {
+
+    private static final long TIMEOUT = 10000;
+
+    private final Ivy ivy = Ivy.newInstance();
+
+    private final IvyRunner ivyRunner = new IvyRunner();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        ivyRunner.shutdown();
+    }
+
+    @Test
+    public void testRun() {
+        final AtomicInteger counter = new AtomicInteger();
+        Runnable work = new Runnable() {
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+        for (int i = 0; i < 10; i++) {
+            assertFalse(ivyRunner.launchIvyThread(work, ivy, new NullProgressMonitor()));
+        }
+        assertEquals(10, counter.get());
+    }
+
+    @Test
+    public void testDedicatedThreads() {
+        // Ivy may stop the thread of a canceled work, it must not run any other work afterwards
+        final List<Thread> threads = new ArrayList<>();
+        Runnable work = new Runnable() {
+            public void run() {
+                threads.add(Thread.currentThread());
+            }
+        };
+        ivyRunner.launchIvyThread(work, ivy, new NullProgressMonitor());
+        ivyRunner.launchIvyThread(work, ivy, new NullProgressMonitor());
+        assertEquals(2, threads.size());
+        assertNotSame(threads.get(0), threads.get(1));
+    }
+
+    @Test
+    public void testCanceledMonitor() {
+        final AtomicBoolean run = new AtomicBoolean();
+        IProgressMonitor monitor = new NullProgressMonitor();
+        monitor.setCanceled(true);
+        assertTrue(ivyRunner.launchIvyThread(new Runnable() {
+            public void run() {
+                run.set(true);
+            }
+        }, ivy, monitor));
+        assertFalse(run.get());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        IProgressMonitor monitor = new NullProgressMonitor();
+        Launcher launcher = new Launcher(monitor);
+        launcher.awaitStarted();
+
+        ivyRunner.cancel(monitor);
+        launcher.join(TIMEOUT);
+
+        assertFalse(launcher.isAlive());
+        assertTrue(launcher.canceled);
+        assertTrue(launcher.interrupted);
+    }
+
+    @Test
+    public void testCancelOnlyTheCanceledCaller() throws Exception {
+        IProgressMonitor canceledMonitor = new NullProgressMonitor();
+        IProgressMonitor otherMonitor = new NullProgressMonitor();
+        Launcher canceledLauncher = new Launcher(canceledMonitor);
+        Launcher otherLauncher = new Launcher(otherMonitor);
+        canceledLauncher.awaitStarted();
+        otherLauncher.awaitStarted();
+
+        ivyRunner.cancel(canceledMonitor);
+        canceledLauncher.join(TIMEOUT);
+
+        assertTrue(canceledLauncher.canceled);
+        assertTrue(otherLauncher.isAlive());
+
+        release.countDown();
+        otherLauncher.join(TIMEOUT);
+
+        assertFalse(otherLauncher.canceled);
+        assertFalse(otherLauncher.interrupted);
+    }
+
+    @Test
+    public void testCancelWrappedMonitor() throws Exception {
+        IProgressMonitor monitor = new NullProgressMonitor();
+        Launcher launcher = new Launcher(new SynchronizedProgressMonitor(monitor));
+        launcher.awaitStarted();
+
+        ivyRunner.cancel(monitor);
+        launcher.join(TIMEOUT);
+
+        assertTrue(launcher.canceled);
+    }
+
+    /**
+     * Launch in its own thread some Ivy work which waits for the test to release it.
+     */
+    private final class Launcher extends Thread {
+
+        private final IProgressMonitor monitor;
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private volatile boolean canceled;
+
+        private volatile boolean interrupted;
+
+        private Launcher(IProgressMonitor monitor) {
+            this.monitor = monitor;
+            start();
+        }
+
+        public void run() {
+            canceled = ivyRunner.launchIvyThread(new Runnable() {
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }, ivy, monitor);
+        }
+
+        private void awaitStarted() throws InterruptedException {
+            started.await();
+        }
+    }
+}
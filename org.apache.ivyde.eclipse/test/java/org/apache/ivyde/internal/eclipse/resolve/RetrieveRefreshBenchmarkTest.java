@@ -0,0 +1,191 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.resolve;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.ivyde.eclipse.cp.RetrieveSetup;
+import org.apache.ivyde.internal.eclipse.resolve.IncrementalRetriever.RetrieveStats;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.runtime.IPath;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compare the refresh of the whole retrieve folder with the refresh of the changed resources,
+ * after a retrieve updating 10 jars of a 1000 files lib folder and adding a new folder. The
+ * workspace not being available in the tests, its resources are simulated, and the cost of the
+ * refresh is counted by the resources it checks: every resource under a refreshed one is checked
+ * against the file system, and is part of the scope of the resource delta.
+ */
+public class RetrieveRefreshBenchmarkTest {
+
+    private static final int FILES = 1000;
+
+    private static final int FOLDERS = 20;
+
+    private static final int UPDATED = 10;
+
+    private static final int ADDED = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        File cache = folder.newFolder("cache");
+        File lib = new File(folder.getRoot(), "lib");
+        Map<File, File> copies = new LinkedHashMap<>();
+        for (int i = 0; i < FILES; i++) {
+            File jar = new File(cache, "module" + i + ".jar");
+            Files.write(jar.toPath(), ("module" + i).getBytes(StandardCharsets.UTF_8));
+            copies.put(new File(lib, "org" + (i % FOLDERS) + "/module" + i + ".jar"), jar);
+        }
+        IncrementalRetriever retriever = new IncrementalRetriever(folder.newFolder("manifests"),
+                folder.newFolder("store"), executor);
+        retrieve(retriever, copies, lib);
+
+        for (int i = 0; i < UPDATED; i++) {
+            File jar = new File(cache, "module" + (i * 100) + ".jar");
+            Files.write(jar.toPath(), ("module" + i + "-2").getBytes(StandardCharsets.UTF_8));
+            jar.setLastModified(jar.lastModified() + 10000);
+        }
+        for (int i = 0; i < ADDED; i++) {
+            File jar = new File(cache, "added" + i + ".jar");
+            Files.write(jar.toPath(), ("added" + i).getBytes(StandardCharsets.UTF_8));
+            copies.put(new File(lib, "neworg/added" + i + ".jar"), jar);
+        }
+        RetrieveStats stats = retrieve(retriever, copies, lib);
+        assertEquals(UPDATED + ADDED, stats.getCopiedFiles());
+
+        // what the refresh job is given
+        List<IResource> refreshed = RefreshResourcesJob.filterNested(IvyResolver
+                .getChangedResources(newWorkspaceRoot(), stats));
+        // the updated files, and the new folder with its content
+        assertEquals(UPDATED + 1, refreshed.size());
+        int targeted = 0;
+        for (IResource resource : refreshed) {
+            targeted += countScope(getFile(resource));
+        }
+        assertEquals(UPDATED + 1 + ADDED, targeted);
+
+        // the lib folder, its sub folders and the retrieved files
+        int whole = countScope(lib);
+        assertEquals(1 + FOLDERS + 1 + FILES + ADDED, whole);
+    }
+
+    private static RetrieveStats retrieve(IncrementalRetriever retriever,
+            Map<File, File> copies, File lib) throws Exception {
+        return retriever.retrieve(copies, lib, true, Collections.<String>emptySet(),
+            RetrieveSetup.RETRIEVE_MODE_COPY, null);
+    }
+
+    /**
+     * @return the number of resources checked by a refresh of the resource at this location
+     */
+    private static int countScope(File file) {
+        int count = 1;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                count += countScope(child);
+            }
+        }
+        return count;
+    }
+
+    private IWorkspaceRoot newWorkspaceRoot() {
+        return (IWorkspaceRoot) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {IWorkspaceRoot.class}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("getFileForLocation")) {
+                        return newResource(((IPath) args[0]).toFile(), IFile.class);
+                    }
+                    if (method.getName().equals("getContainerForLocation")) {
+                        return newResource(((IPath) args[0]).toFile(), IFolder.class);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    /**
+     * @return a resource at the location, whose ancestors are the folders of the test
+     */
+    private IResource newResource(File file, Class<? extends IResource> type) {
+        if (!file.getAbsolutePath().startsWith(folder.getRoot().getAbsolutePath())) {
+            return null;
+        }
+        return (IResource) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {type}, new SimulatedResource(file));
+    }
+
+    private static File getFile(IResource resource) {
+        return ((SimulatedResource) Proxy.getInvocationHandler(resource)).file;
+    }
+
+    private class SimulatedResource implements InvocationHandler {
+
+        private final File file;
+
+        SimulatedResource(File file) {
+            this.file = file;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getParent":
+                    return newResource(file.getParentFile(), IFolder.class);
+                case "equals":
+                    return args[0] instanceof IResource && Proxy.isProxyClass(args[0].getClass())
+                            && file.equals(getFile((IResource) args[0]));
+                case "hashCode":
+                    return file.hashCode();
+                case "toString":
+                    return file.toString();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivyde.internal.eclipse.ui.console;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.ivy.util.Message;
+import org.apache.ivyde.internal.eclipse.IvyDEMessage;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check that a disabled debug message is not built, and measure the cost of a log call for the
+ * logging thread when the message is written directly to a slow console or through the
+ * {@link AsyncConsoleAppender}, checking that no line is lost. The measures are given in the
+ * failure message. The Eclipse console not being available in the tests, it is simulated by a
+ * synchronized sink spending a few microseconds per write.
+ */
+public class LoggingBenchmarkTest {
+
+    private static final int ENABLED_MESSAGES = 5000;
+
+    private static final int ITERATIONS = 5;
+
+    private static final long WRITE_NANOS = 5000;
+
+    private final Object module = new Object() {
+        public String toString() {
+            return "org.apache#ivy;2.5.0";
+        }
+    };
+
+    private static long sink;
+
+    @Test
+    public void testDisabledLevel() {
+        final boolean[] built = new boolean[1];
+        assertFalse(IvyDEMessage.isDebugEnabled());
+        IvyDEMessage.debug(new IvyDEMessage.MessageSupplier() {
+            public String get() {
+                built[0] = true;
+                return "Retrieving " + module;
+            }
+        });
+        assertFalse(built[0]);
+    }
+
+    @Test
+    public void testEnabledLevel() {
+        final SlowSink direct = new SlowSink();
+        final SlowSink async = new SlowSink();
+        AsyncConsoleAppender appender = new AsyncConsoleAppender("benchmark",
+                AsyncConsoleAppender.DEFAULT_CAPACITY) {
+            protected void write(int level, String text) {
+                async.write(text);
+            }
+        };
+        long sync = Long.MAX_VALUE;
+        long queued = Long.MAX_VALUE;
+        for (int n = 0; n < ITERATIONS; n++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ENABLED_MESSAGES; i++) {
+                direct.write("Retrieving " + module + " artifact #" + i);
+            }
+            sync = Math.min(sync, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < ENABLED_MESSAGES; i++) {
+                appender.append(Message.MSG_INFO, "Retrieving " + module + " artifact #" + i);
+            }
+            queued = Math.min(queued, System.nanoTime() - start);
+            assertTrue(appender.flush(10000));
+        }
+        appender.stop();
+
+        // the timings depend too much on the machine to be checked
+        String measures = "appended in " + queued + "ns, written in " + sync + "ns";
+        assertEquals(measures, 0, appender.getDropped());
+        assertEquals(measures, direct.lines, async.lines);
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> written = new ArrayList<>();
+        AsyncConsoleAppender appender = new AsyncConsoleAppender("overflow", 2) {
+            protected void write(int level, String text) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.add(level + ":" + text);
+            }
+        };
+        appender.append(Message.MSG_INFO, "first");
+        blocked.await();
+        appender.append(Message.MSG_INFO, "a");
+        appender.append(Message.MSG_DEBUG, "b");
+        appender.append(Message.MSG_DEBUG, "dropped");
+        appender.append(Message.MSG_ERR, "c");
+        assertEquals(2, appender.getDropped());
+        release.countDown();
+        appender.stop();
+        assertTrue(appender.flush(10000));
+
+        assertEquals(4, written.size());
+        assertEquals(Message.MSG_INFO + ":first", written.get(0));
+        assertTrue(written.get(1).startsWith(Message.MSG_WARN + ":[IvyDE] 2 line(s)"));
+        // the error took the place of the debug line, not of the older info line
+        assertEquals(Message.MSG_INFO + ":a", written.get(2));
+        assertEquals(Message.MSG_ERR + ":c", written.get(3));
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> written = new ArrayList<>();
+        AsyncConsoleAppender appender = new AsyncConsoleAppender("order", 4) {
+            protected void write(int level, String text) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.add(level + ":" + text);
+            }
+        };
+        appender.append(Message.MSG_INFO, "first");
+        blocked.await();
+        appender.append(Message.MSG_DEBUG, "a");
+        appender.append(Message.MSG_INFO, "b");
+        appender.append(Message.MSG_INFO, "c");
+        appender.append(Message.MSG_VERBOSE, "d");
+        appender.append(Message.MSG_WARN, "e");
+        release.countDown();
+        appender.stop();
+        assertTrue(appender.flush(10000));
+
+        // the debug and verbose lines are written in their place among the other lines
+        assertEquals(Arrays.asList(Message.MSG_INFO + ":first",
+            Message.MSG_WARN + ":[IvyDE] 1 line(s) not logged, the console could not keep up",
+            Message.MSG_INFO + ":b\nc", Message.MSG_VERBOSE + ":d", Message.MSG_WARN + ":e"),
+            written);
+    }
+
+    private static class SlowSink {
+
+        private int lines;
+
+        synchronized void write(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+            lines++;
+            long end = System.nanoTime() + WRITE_NANOS;
+            while (System.nanoTime() < end) {
+                sink++;
+            }
+        }
+    }
+}